@@ -0,0 +1,68 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.dao;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.meeds.crowdin.gamification.entity.DeadLetterEventEntity;
+import io.meeds.crowdin.gamification.model.DeadLetterStatus;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface DeadLetterEventDAO extends JpaRepository<DeadLetterEventEntity, Long> {
+
+  List<DeadLetterEventEntity> findByStatusInAndNextRetryDateBeforeOrderByIdAsc(Collection<DeadLetterStatus> statuses,
+                                                                               Date date,
+                                                                               Pageable pageable);
+
+  @Query("""
+      SELECT d FROM CrowdinDeadLetter d
+      WHERE d.projectId = :projectId AND d.status IN :statuses
+      ORDER BY d.id DESC
+      LIMIT :limit OFFSET :offset
+      """)
+  List<DeadLetterEventEntity> findDeadLetters(@Param("projectId") long projectId,
+                                              @Param("statuses") Collection<DeadLetterStatus> statuses,
+                                              @Param("offset") int offset,
+                                              @Param("limit") int limit);
+
+  List<DeadLetterEventEntity> findByProjectIdAndStatusIn(long projectId, Collection<DeadLetterStatus> statuses);
+
+  @Modifying
+  @Transactional
+  @Query("""
+      UPDATE CrowdinDeadLetter d SET d.nextRetryDate = :leaseExpiry
+      WHERE d.id = :id AND d.status = :status AND d.nextRetryDate = :nextRetryDate
+      """)
+  int claimDeadLetter(@Param("id") long id,
+                      @Param("status") DeadLetterStatus status,
+                      @Param("nextRetryDate") Date nextRetryDate,
+                      @Param("leaseExpiry") Date leaseExpiry);
+
+  @Modifying
+  @Transactional
+  long deleteByProjectIdAndStatusIn(long projectId, Collection<DeadLetterStatus> statuses);
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.dao;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.meeds.crowdin.gamification.entity.WebhookBatchEntity;
+
+import java.util.Date;
+import java.util.List;
+
+public interface WebhookBatchDAO extends JpaRepository<WebhookBatchEntity, Long> {
+
+  @Query("""
+      SELECT b.id FROM CrowdinWebhookInbox b
+      WHERE (b.leaseExpiry IS NULL OR b.leaseExpiry < :now)
+      AND NOT EXISTS (SELECT p.id FROM CrowdinWebhookInbox p WHERE p.projectId = b.projectId AND p.id < b.id)
+      ORDER BY b.id ASC
+      """)
+  List<Long> findClaimableBatchIds(@Param("now") Date now, Pageable pageable);
+
+  @Modifying
+  @Transactional
+  @Query("""
+      UPDATE CrowdinWebhookInbox b SET b.leaseOwner = :owner, b.leaseExpiry = :expiry
+      WHERE b.id = :id AND (b.leaseExpiry IS NULL OR b.leaseExpiry < :now)
+      """)
+  int claimBatch(@Param("id") long id, @Param("owner") String owner, @Param("expiry") Date expiry, @Param("now") Date now);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM CrowdinWebhookInbox b WHERE b.id = :id AND b.leaseOwner = :owner")
+  int deleteLeasedBatch(@Param("id") long id, @Param("owner") String owner);
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import io.meeds.crowdin.gamification.model.DeadLetterStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Entity(name = "CrowdinDeadLetter")
+@Table(name = "CROWDIN_DEAD_LETTERS")
+@Data
+public class DeadLetterEventEntity implements Serializable {
+
+  private static final long serialVersionUID = -7765019328519512407L;
+
+  @Id
+  @SequenceGenerator(name = "SEQ_CROWDIN_DEAD_LETTERS_ID", sequenceName = "SEQ_CROWDIN_DEAD_LETTERS_ID", allocationSize = 1)
+  @GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_CROWDIN_DEAD_LETTERS_ID")
+  @Column(name = "ID")
+  private Long              id;
+
+  @Column(name = "PROJECT_ID", nullable = false)
+  private Long              projectId;
+
+  @Column(name = "EVENT_DATA", nullable = false)
+  private String            eventData;
+
+  @Column(name = "CANCELLING", nullable = false)
+  private Boolean           cancelling;
+
+  @Column(name = "FAILURE_REASON")
+  private String            failureReason;
+
+  @Column(name = "ATTEMPTS", nullable = false)
+  private Integer           attempts;
+
+  @Column(name = "NEXT_RETRY_DATE", nullable = false)
+  private Date              nextRetryDate;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "STATUS", nullable = false)
+  private DeadLetterStatus  status;
+
+  @Column(name = "CREATED_DATE", nullable = false)
+  private Date              createdDate;
+}
@@ -0,0 +1,45 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Entity(name = "CrowdinProcessedEvent")
+@Table(name = "CROWDIN_PROCESSED_EVENTS")
+@Data
+public class ProcessedEventEntity implements Serializable {
+
+  private static final long serialVersionUID = 5213846372816044925L;
+
+  @Id
+  @SequenceGenerator(name = "SEQ_CROWDIN_PROCESSED_EVENTS_ID", sequenceName = "SEQ_CROWDIN_PROCESSED_EVENTS_ID", allocationSize = 1)
+  @GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_CROWDIN_PROCESSED_EVENTS_ID")
+  @Column(name = "ID")
+  private Long              id;
+
+  @Column(name = "EVENT_KEY", nullable = false, unique = true)
+  private String            eventKey;
+
+  @Column(name = "PROCESSED_DATE", nullable = false)
+  private Date              processedDate;
+}
@@ -0,0 +1,48 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Entity(name = "CrowdinWebhookArchive")
+@Table(name = "CROWDIN_WEBHOOK_ARCHIVE")
+@Data
+public class WebhookArchiveEntity implements Serializable {
+
+  private static final long serialVersionUID = 4410268395719604376L;
+
+  @Id
+  @SequenceGenerator(name = "SEQ_CROWDIN_WEBHOOK_ARCHIVE_ID", sequenceName = "SEQ_CROWDIN_WEBHOOK_ARCHIVE_ID", allocationSize = 1)
+  @GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_CROWDIN_WEBHOOK_ARCHIVE_ID")
+  @Column(name = "ID")
+  private Long              id;
+
+  @Column(name = "PROJECT_ID", nullable = false)
+  private Long              projectId;
+
+  @Column(name = "RECEIVED_DATE", nullable = false)
+  private Date              receivedDate;
+
+  @Column(name = "PAYLOAD", nullable = false)
+  private byte[]            payload;
+}
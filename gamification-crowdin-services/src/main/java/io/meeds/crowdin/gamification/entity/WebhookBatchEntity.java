@@ -0,0 +1,57 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Entity(name = "CrowdinWebhookInbox")
+@Table(name = "CROWDIN_WEBHOOK_INBOX")
+@Data
+public class WebhookBatchEntity implements Serializable {
+
+  private static final long serialVersionUID = -3416570126287409311L;
+
+  @Id
+  @SequenceGenerator(name = "SEQ_CROWDIN_WEBHOOK_INBOX_ID", sequenceName = "SEQ_CROWDIN_WEBHOOK_INBOX_ID", allocationSize = 1)
+  @GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_CROWDIN_WEBHOOK_INBOX_ID")
+  @Column(name = "ID")
+  private Long              id;
+
+  @Column(name = "PROJECT_ID")
+  private Long              projectId;
+
+  @Column(name = "BEARER_TOKEN", nullable = false)
+  private String            bearerToken;
+
+  @Column(name = "PAYLOAD", nullable = false)
+  private String            payload;
+
+  @Column(name = "CREATED_DATE", nullable = false)
+  private Date              createdDate;
+
+  @Column(name = "LEASE_OWNER")
+  private String            leaseOwner;
+
+  @Column(name = "LEASE_EXPIRY")
+  private Date              leaseExpiry;
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when Crowdin API rejects the requests sent with an access token
+ * because its rate limit is exceeded, and the request couldn't be retried
+ * within the allowed delay.
+ */
+public class CrowdinRateLimitException extends RuntimeException {
+
+  private static final long serialVersionUID = -6215931894067212508L;
+
+  /**
+   * Delay, in seconds, after which the request can be sent again
+   */
+  @Getter
+  private final long        retryAfter;
+
+  public CrowdinRateLimitException(String message, long retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+}
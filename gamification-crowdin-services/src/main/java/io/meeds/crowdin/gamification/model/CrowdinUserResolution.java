@@ -0,0 +1,36 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.model;
+
+import java.io.Serializable;
+
+/**
+ * Resolution of a Crowdin username to the Meeds user who connected it. A null
+ * username means that no Meeds user is connected to the Crowdin account.
+ *
+ * @param username Meeds username, or null when the Crowdin user isn't connected
+ * @param identityExists whether a social identity exists for the Meeds user
+ * @param resolvedTime time of the resolution, in milliseconds
+ */
+public record CrowdinUserResolution(String username, boolean identityExists, long resolvedTime) implements Serializable {
+
+  public boolean isConnected() {
+    return username != null;
+  }
+}
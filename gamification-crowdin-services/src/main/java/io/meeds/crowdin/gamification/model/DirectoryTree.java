@@ -0,0 +1,87 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory directory tree of a Crowdin project, holding for each directory
+ * the precomputed list of the directory itself and of all its ancestors, so
+ * that checking whether a directory belongs to a subtree doesn't depend on
+ * the tree size.
+ */
+public class DirectoryTree {
+
+  private static final String[]       NO_ANCESTORS = new String[0];
+
+  private static final int            MAX_DEPTH    = 1000;
+
+  private final Map<String, String>   parents      = new ConcurrentHashMap<>();
+
+  private final Map<String, String[]> ancestors    = new ConcurrentHashMap<>();
+
+  public DirectoryTree(Collection<RemoteDirectory> directories) {
+    addDirectories(directories);
+  }
+
+  public boolean contains(String directoryId) {
+    return parents.containsKey(directoryId);
+  }
+
+  public int size() {
+    return parents.size();
+  }
+
+  /**
+   * @param directoryId Crowdin directory id
+   * @return the directory id followed by the ids of its ancestors, from the
+   *         closest to the root, or an empty array when the directory is
+   *         unknown
+   */
+  public String[] getAncestors(String directoryId) {
+    return directoryId == null ? NO_ANCESTORS : ancestors.getOrDefault(directoryId, NO_ANCESTORS);
+  }
+
+  /**
+   * Adds directories to the tree. The ancestors of added directories must
+   * either be already in the tree or be added at the same time.
+   *
+   * @param directories added Crowdin directories
+   */
+  public void addDirectories(Collection<RemoteDirectory> directories) {
+    directories.forEach(directory -> parents.put(String.valueOf(directory.getId()),
+                                                 directory.getParentId() == null ? "" : String.valueOf(directory.getParentId())));
+    directories.forEach(directory -> ancestors.put(String.valueOf(directory.getId()),
+                                                   computeAncestors(String.valueOf(directory.getId()))));
+  }
+
+  private String[] computeAncestors(String directoryId) {
+    List<String> directoryAncestors = new ArrayList<>();
+    String currentId = directoryId;
+    while (currentId != null && !currentId.isEmpty() && directoryAncestors.size() < MAX_DEPTH) {
+      directoryAncestors.add(currentId);
+      currentId = parents.get(currentId);
+    }
+    return directoryAncestors.toArray(NO_ANCESTORS);
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Details of a gamification event computed from a Crowdin event, serialized
+ * as JSON in the realization event details and matched against the rules
+ * properties. The version allows to tell structured details apart from the
+ * details of realizations stored before this format.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EventDetails(@JsonProperty("v") int version,
+                           String projectId,
+                           String languageId,
+                           boolean mustBeHuman,
+                           String directoryId,
+                           int totalTargetItem) {
+
+  public static final int CURRENT_VERSION = 1;
+
+  public static final int LEGACY_VERSION  = 0;
+
+  public static EventDetails of(Event event) {
+    return new EventDetails(CURRENT_VERSION,
+                            event.getProjectId(),
+                            event.getLanguageId(),
+                            event.isMustBeHuman(),
+                            event.getDirectoryId(),
+                            event.getTotalWords());
+  }
+}
@@ -18,6 +18,8 @@
  */
 package io.meeds.crowdin.gamification.model;
 
+import java.io.Serializable;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -25,11 +27,15 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class RemoteDirectory {
+public class RemoteDirectory implements Serializable {
+
+  private static final long serialVersionUID = 4805836916301287554L;
+
+  private long              id;
 
-  private long   id;
+  private long              projectId;
 
-  private long   projectId;
+  private String            path;
 
-  private String path;
+  private Long              parentId;
 }
@@ -18,6 +18,8 @@
  */
 package io.meeds.crowdin.gamification.model;
 
+import java.io.Serializable;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -25,9 +27,11 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class RemoteLanguage {
+public class RemoteLanguage implements Serializable {
+
+  private static final long serialVersionUID = -6217355061384927913L;
 
-  private String id;
+  private String            id;
 
-  private String name;
+  private String            name;
 }
@@ -22,12 +22,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.util.List;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class RemoteProject implements Cloneable {
+public class RemoteProject implements Cloneable, Serializable {
+
+  private static final long    serialVersionUID = -1739572045158243677L;
 
   private long                 id;
 
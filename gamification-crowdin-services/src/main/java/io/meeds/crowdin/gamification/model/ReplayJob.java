@@ -0,0 +1,75 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReplayJob implements Cloneable {
+
+  public enum Status {
+    RUNNING, COMPLETED, CANCELLED, FAILED;
+  }
+
+  private long   id;
+
+  private long   projectId;
+
+  private Date   from;
+
+  private Date   to;
+
+  private String startedBy;
+
+  private Status status;
+
+  /** Identifier of the last replayed archive, used to resume the replay */
+  private long   cursor;
+
+  private long   replayedBatches;
+
+  private long   replayedEvents;
+
+  private Date   startDate;
+
+  private Date   endDate;
+
+  private String error;
+
+  public ReplayJob clone() { // NOSONAR
+    return new ReplayJob(id,
+                         projectId,
+                         from,
+                         to,
+                         startedBy,
+                         status,
+                         cursor,
+                         replayedBatches,
+                         replayedEvents,
+                         startDate,
+                         endDate,
+                         error);
+  }
+}
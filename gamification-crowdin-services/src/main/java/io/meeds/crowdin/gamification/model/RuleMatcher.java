@@ -0,0 +1,91 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+/**
+ * Predicate compiled from the event properties of a Crowdin gamification
+ * rule, matching event details without any allocation. A rule directory
+ * matches the strings of its whole subtree. Empty directory or language sets
+ * match any directory or language.
+ *
+ * @param projectId Crowdin project id of the rule
+ * @param mustBeHuman whether machine translations are excluded
+ * @param directoryIds accepted Crowdin directory ids
+ * @param languageIds accepted Crowdin target language ids
+ */
+public record RuleMatcher(String projectId, boolean mustBeHuman, Set<String> directoryIds, Set<String> languageIds) {
+
+  public static RuleMatcher compile(Map<String, String> eventProperties) {
+    return new RuleMatcher(eventProperties.get(PROJECT_ID),
+                           Boolean.parseBoolean(eventProperties.get(MUST_BE_HUMAN)),
+                           toSet(eventProperties.get(DIRECTORY_IDS)),
+                           toSet(eventProperties.get(LANGUAGE_IDS)));
+  }
+
+  /**
+   * @param eventDetails details of the event
+   * @param directoryTree directory tree of the event project, or null when not
+   *          loaded, in which case only the exact directories of the rule
+   *          match
+   * @return true if the event matches the rule
+   */
+  public boolean matches(EventDetails eventDetails, DirectoryTree directoryTree) {
+    return projectId != null && projectId.equals(eventDetails.projectId())
+        && (!mustBeHuman || eventDetails.mustBeHuman())
+        && matchesDirectory(eventDetails.directoryId(), directoryTree)
+        && (languageIds.isEmpty() || languageIds.contains(eventDetails.languageId()));
+  }
+
+  /**
+   * @param eventDetails details of the event
+   * @return true if the event matches the rule only when its directory is in
+   *         the subtree of a rule directory, which requires the directory tree
+   *         of the project
+   */
+  public boolean requiresDirectoryTree(EventDetails eventDetails) {
+    return projectId != null && projectId.equals(eventDetails.projectId()) && eventDetails.directoryId() != null
+        && !directoryIds.isEmpty() && !directoryIds.contains(eventDetails.directoryId());
+  }
+
+  private boolean matchesDirectory(String directoryId, DirectoryTree directoryTree) {
+    if (directoryIds.isEmpty() || directoryIds.contains(directoryId)) {
+      return true;
+    } else if (directoryTree == null) {
+      return false;
+    }
+    for (String ancestorId : directoryTree.getAncestors(directoryId)) {
+      if (directoryIds.contains(ancestorId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Set<String> toSet(String ids) {
+    return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(Arrays.asList(ids.split(","))));
+  }
+}
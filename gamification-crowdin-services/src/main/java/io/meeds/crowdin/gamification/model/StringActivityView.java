@@ -0,0 +1,91 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.model;
+
+import io.meeds.crowdin.gamification.utils.WordCounter;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+/**
+ * Flat view of the translation or comment of a Crowdin event, holding all the
+ * fields needed to compute its gamification events. The view is extracted
+ * once per Crowdin event, whatever the number of gamification events
+ * computed from it.
+ *
+ * @param objectId gamification object id of the string activity
+ * @param objectType gamification object type
+ * @param username Crowdin username of the activity author
+ * @param projectId Crowdin project id
+ * @param languageId Crowdin target language id
+ * @param directoryId Crowdin directory id of the string file
+ * @param mustBeHuman whether the activity was made by a human
+ * @param wordsCount number of words of the source string, segmented according
+ *          to the project source language
+ */
+public record StringActivityView(String objectId,
+                                 String objectType,
+                                 String username,
+                                 String projectId,
+                                 String languageId,
+                                 String directoryId,
+                                 boolean mustBeHuman,
+                                 int wordsCount) {
+
+  public static StringActivityView of(WebhookEvent.Translation translation) {
+    return new StringActivityView(constructObjectIdAsJsonString(translation),
+                                  TRANSLATION,
+                                  translation.username(),
+                                  translation.projectId(),
+                                  translation.targetLanguageId(),
+                                  translation.directoryId(),
+                                  translation.provider() == null,
+                                  WordCounter.countWords(translation.text(), translation.sourceLanguageId()));
+  }
+
+  public static StringActivityView of(WebhookEvent.Comment comment) {
+    return new StringActivityView(constructObjectIdAsJsonString(comment),
+                                  COMMENT,
+                                  comment.username(),
+                                  comment.projectId(),
+                                  comment.targetLanguageId(),
+                                  comment.directoryId(),
+                                  true,
+                                  0);
+  }
+
+  /**
+   * @param eventName gamification event name
+   * @param earner Crowdin username or Meeds identity id of the earner
+   * @param cancelling whether the event cancels a previous realization
+   * @return the gamification event of the activity
+   */
+  public Event toEvent(String eventName, String earner, boolean cancelling) {
+    return new Event(eventName,
+                     earner,
+                     earner,
+                     objectId,
+                     objectType,
+                     projectId,
+                     languageId,
+                     mustBeHuman,
+                     directoryId,
+                     cancelling,
+                     wordsCount);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.model;
+
+/**
+ * Immutable view of a single event of a Crowdin webhook batch, bound from the
+ * payload template declared when creating the webhook. Only one of
+ * {@link #translation()} and {@link #comment()} is set, depending on the event
+ * type.
+ */
+public record WebhookEvent(String event, Translation translation, Comment comment) {
+
+  /**
+   * @return the translation or the comment of the event, depending on its type
+   */
+  public StringActivity activity() {
+    return translation != null ? translation : comment;
+  }
+
+  /**
+   * Common shape of translation and comment payloads
+   */
+  public interface StringActivity {
+
+    String id();
+
+    Language targetLanguage();
+
+    User user();
+
+    StringItem string();
+
+    default String username() {
+      return user() == null ? null : user().username();
+    }
+
+    default String targetLanguageId() {
+      return targetLanguage() == null ? null : targetLanguage().id();
+    }
+
+    default String stringId() {
+      return string() == null ? null : string().id();
+    }
+
+    default String text() {
+      return string() == null ? null : string().text();
+    }
+
+    default String fileId() {
+      return string() == null || string().file() == null ? null : string().file().id();
+    }
+
+    default String directoryId() {
+      return string() == null || string().file() == null ? null : string().file().directoryId();
+    }
+
+    default String projectId() {
+      return string() == null || string().project() == null ? null : string().project().id();
+    }
+
+    default String projectIdentifier() {
+      return string() == null || string().project() == null ? null : string().project().identifier();
+    }
+
+    default String sourceLanguageId() {
+      return string() == null || string().project() == null ? null : string().project().sourceLanguageId();
+    }
+  }
+
+  public record Translation(String id, String provider, Language targetLanguage, User user, StringItem string)
+      implements StringActivity {
+  }
+
+  public record Comment(String id, Language targetLanguage, User user, StringItem string) implements StringActivity {
+  }
+
+  public record Language(String id) {
+  }
+
+  public record User(String id, String username, String fullName, String avatarUrl) {
+  }
+
+  public record StringItem(String id, String text, File file, Project project) {
+  }
+
+  public record File(String id, String directoryId) {
+  }
+
+  public record Project(String id, String sourceLanguageId, String identifier) {
+  }
+}
@@ -18,29 +18,64 @@
  */
 package io.meeds.crowdin.gamification.plugin;
 
+import io.meeds.crowdin.gamification.model.DirectoryTree;
+import io.meeds.crowdin.gamification.model.EventDetails;
+import io.meeds.crowdin.gamification.model.RuleMatcher;
+import io.meeds.crowdin.gamification.services.DirectoryTreeService;
+import io.meeds.crowdin.gamification.utils.Utils;
 import io.meeds.gamification.plugin.EventPlugin;
 import io.meeds.gamification.service.EventService;
-import org.apache.commons.collections.CollectionUtils;
+import org.exoplatform.services.listener.Listener;
+import org.exoplatform.services.listener.ListenerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 
 import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static io.meeds.gamification.utils.Utils.POST_CREATE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_DELETE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_UPDATE_RULE_EVENT;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class CrowdinEventPlugin extends EventPlugin {
 
   public static final String EVENT_TYPE = "crowdin";
 
+  private static final int   DECODED_DETAILS_CACHE_SIZE = 256;
+
+  private final Map<String, EventDetails> decodedEventDetails = new ConcurrentHashMap<>();
+
+  private final Map<String, RuleMatcher> ruleMatchers = new ConcurrentHashMap<>();
+
+  @Autowired
+  private EventService         eventService;
+
   @Autowired
-  private EventService       eventService;
+  private ListenerService      listenerService;
+
+  @Autowired
+  private DirectoryTreeService directoryTreeService;
 
   @PostConstruct
   public void init() {
     eventService.addPlugin(this);
+    Listener<Object, Object> rulesListener = new Listener<>() {
+      @Override
+      public void onEvent(org.exoplatform.services.listener.Event<Object, Object> event) {
+        clearRuleMatchers();
+      }
+    };
+    listenerService.addListener(POST_CREATE_RULE_EVENT, rulesListener);
+    listenerService.addListener(POST_UPDATE_RULE_EVENT, rulesListener);
+    listenerService.addListener(POST_DELETE_RULE_EVENT, rulesListener);
+  }
+
+  public void clearRuleMatchers() {
+    ruleMatchers.clear();
   }
 
   @Override
@@ -58,39 +93,46 @@ public class CrowdinEventPlugin extends EventPlugin {
 
   @Override
   public boolean isValidEvent(Map<String, String> eventProperties, String triggerDetails) {
+    EventDetails eventDetails = getEventDetails(triggerDetails);
+    RuleMatcher ruleMatcher = getRuleMatcher(eventProperties);
+    DirectoryTree directoryTree = null;
+    if (ruleMatcher.requiresDirectoryTree(eventDetails)) {
+      // The tree is loaded before events are broadcast, never while matching
+      directoryTree = directoryTreeService.getDirectoryTree(eventDetails.projectId());
+    }
+    return ruleMatcher.matches(eventDetails, directoryTree);
+  }
 
-    String desiredProjectId = eventProperties.get(PROJECT_ID);
-
-    String desiredMustBeHuman = eventProperties.get(MUST_BE_HUMAN);
-
-    List<String> desiredDirectoryIds =
-                                     eventProperties.get(DIRECTORY_IDS) != null ? Arrays.asList(eventProperties.get(DIRECTORY_IDS)
-                                                                                                               .split(","))
-                                                                                : Collections.emptyList();
-
-    List<String> desiredLanguageIds = eventProperties.get(LANGUAGE_IDS) != null
-                                                                                ? Arrays.asList(eventProperties.get(LANGUAGE_IDS)
-                                                                                                               .split(","))
-                                                                                : Collections.emptyList();
-
-    Map<String, String> triggerDetailsMop = stringToMap(triggerDetails);
-
-    return desiredProjectId.equals(triggerDetailsMop.get(PROJECT_ID))
-        && (desiredMustBeHuman.equals("false") || desiredMustBeHuman.equals(triggerDetailsMop.get(MUST_BE_HUMAN)))
-        && (CollectionUtils.isEmpty(desiredDirectoryIds) || desiredDirectoryIds.contains(triggerDetailsMop.get(DIRECTORY_ID)))
-        && (CollectionUtils.isEmpty(desiredLanguageIds) || desiredLanguageIds.contains(triggerDetailsMop.get(LANGUAGE_ID)));
+  /**
+   * Compiles the properties of a rule once, until rules change, keyed on the
+   * only properties that the matcher reads
+   */
+  private RuleMatcher getRuleMatcher(Map<String, String> eventProperties) {
+    String ruleKey = eventProperties.get(PROJECT_ID) + ":" + eventProperties.get(MUST_BE_HUMAN) + ":"
+        + eventProperties.get(DIRECTORY_IDS) + ":" + eventProperties.get(LANGUAGE_IDS);
+    RuleMatcher ruleMatcher = ruleMatchers.get(ruleKey);
+    if (ruleMatcher == null) {
+      ruleMatcher = RuleMatcher.compile(eventProperties);
+      ruleMatchers.put(ruleKey, ruleMatcher);
+    }
+    return ruleMatcher;
   }
 
-  private static Map<String, String> stringToMap(String mapAsString) {
-    Map<String, String> map = new HashMap<>();
-    mapAsString = mapAsString.substring(1, mapAsString.length() - 1);
-    String[] pairs = mapAsString.split(", ");
-    for (String pair : pairs) {
-      String[] keyValue = pair.split(": ");
-      String key = keyValue[0].trim();
-      String value = keyValue[1].trim();
-      map.put(key, value);
+  /**
+   * Decodes the details of an event once, whatever the number of rules it is
+   * matched against
+   */
+  private EventDetails getEventDetails(String triggerDetails) {
+    EventDetails eventDetails = decodedEventDetails.get(triggerDetails);
+    if (eventDetails == null) {
+      eventDetails = Utils.parseEventDetails(triggerDetails);
+      if (decodedEventDetails.size() >= DECODED_DETAILS_CACHE_SIZE) {
+        // An event is matched against all rules at once, older events aren't
+        // decoded again
+        decodedEventDetails.clear();
+      }
+      decodedEventDetails.put(triggerDetails, eventDetails);
     }
-    return map;
+    return eventDetails;
   }
 }
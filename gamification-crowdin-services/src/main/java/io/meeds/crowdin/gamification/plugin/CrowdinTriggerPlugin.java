@@ -21,9 +21,9 @@ package io.meeds.crowdin.gamification.plugin;
 import org.exoplatform.container.component.BaseComponentPlugin;
 
 import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
 
 import java.util.List;
-import java.util.Map;
 
 public abstract class CrowdinTriggerPlugin extends BaseComponentPlugin {
 
@@ -31,14 +31,19 @@ public abstract class CrowdinTriggerPlugin extends BaseComponentPlugin {
    * Gets List of triggered events
    *
    * @param trigger trigger event name
-   * @param payload payload The raw payload of the webhook request.
+   * @param payload payload The event of the webhook batch.
    * @return List of triggered events
    */
-  public abstract List<Event> getEvents(String trigger, Map<String, Object> payload);
+  public abstract List<Event> getEvents(String trigger, WebhookEvent payload);
 
   public abstract String getEventName();
 
   public abstract String getCancellingEventName();
 
-  public abstract String getProjectId(Map<String, Object> payload);
+  public abstract String getProjectId(WebhookEvent payload);
+
+  /**
+   * @return the names of the gamification events that the plugin may compute
+   */
+  public abstract List<String> getGamificationEventNames();
 }
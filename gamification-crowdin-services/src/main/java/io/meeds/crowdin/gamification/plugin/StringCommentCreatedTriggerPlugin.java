@@ -23,13 +23,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.StringActivityView;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
 import io.meeds.crowdin.gamification.services.CrowdinTriggerService;
 
 import static io.meeds.crowdin.gamification.utils.Utils.*;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 @Component
 public class StringCommentCreatedTriggerPlugin extends CrowdinTriggerPlugin {
@@ -43,18 +44,15 @@ public class StringCommentCreatedTriggerPlugin extends CrowdinTriggerPlugin {
   }
 
   @Override
-  public List<Event> getEvents(String trigger, Map<String, Object> payload) {
-    return Collections.singletonList(new Event(STRING_COMMENT_CREATED_EVENT_NAME,
-                                               extractSubItem(payload, COMMENT, USER, USERNAME),
-                                               extractSubItem(payload, COMMENT, USER, USERNAME),
-                                               constructObjectIdAsJsonString(payload, COMMENT),
-                                               COMMENT,
-                                               getProjectId(payload),
-                                               extractSubItem(payload, COMMENT, TARGET_LANGUAGE, ID),
-                                               true,
-                                               extractSubItem(payload, COMMENT, STRING, FILE, DIRECTORY_ID),
-                                               trigger.equals(COMMENT_DELETED_TRIGGER),
-                                               countWords(extractSubItem(payload, TRANSLATION, STRING, TEXT))));
+  public List<Event> getEvents(String trigger, WebhookEvent payload) {
+    WebhookEvent.Comment comment = payload.comment();
+    if (comment == null) {
+      return Collections.emptyList();
+    }
+    StringActivityView activity = StringActivityView.of(comment);
+    return Collections.singletonList(activity.toEvent(STRING_COMMENT_CREATED_EVENT_NAME,
+                                                      activity.username(),
+                                                      trigger.equals(COMMENT_DELETED_TRIGGER)));
   }
 
   @Override
@@ -68,7 +66,12 @@ public class StringCommentCreatedTriggerPlugin extends CrowdinTriggerPlugin {
   }
 
   @Override
-  public String getProjectId(Map<String, Object> payload) {
-    return extractSubItem(payload, COMMENT, STRING, PROJECT, ID);
+  public String getProjectId(WebhookEvent payload) {
+    return payload.comment() == null ? null : payload.comment().projectId();
+  }
+
+  @Override
+  public List<String> getGamificationEventNames() {
+    return List.of(STRING_COMMENT_CREATED_EVENT_NAME);
   }
 }
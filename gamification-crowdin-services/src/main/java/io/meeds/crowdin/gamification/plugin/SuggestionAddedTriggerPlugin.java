@@ -19,7 +19,10 @@
 package io.meeds.crowdin.gamification.plugin;
 
 import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.StringActivityView;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
 import io.meeds.crowdin.gamification.services.CrowdinTriggerService;
+import io.meeds.crowdin.gamification.services.TranslationAuthorService;
 import io.meeds.gamification.model.RealizationDTO;
 import io.meeds.gamification.service.RealizationService;
 import jakarta.annotation.PostConstruct;
@@ -31,16 +34,18 @@ import static io.meeds.crowdin.gamification.utils.Utils.*;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 @Component
 public class SuggestionAddedTriggerPlugin extends CrowdinTriggerPlugin {
 
   @Autowired
-  private CrowdinTriggerService crowdinTriggerService;
+  private CrowdinTriggerService    crowdinTriggerService;
 
   @Autowired
-  private RealizationService    realizationService;
+  private RealizationService       realizationService;
+
+  @Autowired
+  private TranslationAuthorService translationAuthorService;
 
   @PostConstruct
   public void init() {
@@ -48,38 +53,26 @@ public class SuggestionAddedTriggerPlugin extends CrowdinTriggerPlugin {
   }
 
   @Override
-  public List<Event> getEvents(String trigger, Map<String, Object> payload) {
-    String objectId = constructObjectIdAsJsonString(payload, TRANSLATION);
+  public List<Event> getEvents(String trigger, WebhookEvent payload) {
+    WebhookEvent.Translation translation = payload.translation();
+    if (translation == null) {
+      return Collections.emptyList();
+    }
+    StringActivityView activity = StringActivityView.of(translation);
 
     if (trigger.equals(SUGGESTION_ADDED_TRIGGER)) {
-      return Collections.singletonList(new Event(SUGGESTION_ADDED_EVENT_NAME,
-                                                 extractSubItem(payload, TRANSLATION, USER, USERNAME),
-                                                 extractSubItem(payload, TRANSLATION, USER, USERNAME),
-                                                 objectId,
-                                                 TRANSLATION,
-                                                 getProjectId(payload),
-                                                 extractSubItem(payload, TRANSLATION, TARGET_LANGUAGE, ID),
-                                                 extractSubItem(payload, TRANSLATION, PROVIDER) == null,
-                                                 extractSubItem(payload, TRANSLATION, STRING, FILE, DIRECTORY_ID),
-                                                 false,
-                                                 countWords(extractSubItem(payload, TRANSLATION, STRING, TEXT))));
+      return Collections.singletonList(activity.toEvent(SUGGESTION_ADDED_EVENT_NAME, activity.username(), false));
     } else if (trigger.equals(SUGGESTION_DELETED_TRIGGER)) {
-      List<RealizationDTO> realizations = realizationService.findRealizationsByObjectIdAndObjectType(objectId, TRANSLATION);
-      if (CollectionUtils.isEmpty(realizations)) {
-        return Collections.emptyList();
+      String earnerId = translationAuthorService.getAuthor(translation);
+      if (earnerId == null) {
+        // Translation suggested before its author was tracked
+        List<RealizationDTO> realizations = realizationService.findRealizationsByObjectIdAndObjectType(activity.objectId(), TRANSLATION);
+        if (CollectionUtils.isEmpty(realizations)) {
+          return Collections.emptyList();
+        }
+        earnerId = realizations.get(0).getEarnerId();
       }
-      String earnerId = realizations.get(0).getEarnerId();
-      return Collections.singletonList(new Event(SUGGESTION_ADDED_EVENT_NAME,
-                                                 earnerId,
-                                                 earnerId,
-                                                 objectId,
-                                                 TRANSLATION,
-                                                 getProjectId(payload),
-                                                 extractSubItem(payload, TRANSLATION, TARGET_LANGUAGE, ID),
-                                                 extractSubItem(payload, TRANSLATION, PROVIDER) == null,
-                                                 extractSubItem(payload, TRANSLATION, STRING, FILE, DIRECTORY_ID),
-                                                 true,
-                                                 countWords(extractSubItem(payload, TRANSLATION, STRING, TEXT))));
+      return Collections.singletonList(activity.toEvent(SUGGESTION_ADDED_EVENT_NAME, earnerId, true));
     } else {
       return Collections.emptyList();
     }
@@ -96,7 +89,12 @@ public class SuggestionAddedTriggerPlugin extends CrowdinTriggerPlugin {
   }
 
   @Override
-  public String getProjectId(Map<String, Object> payload) {
-    return extractSubItem(payload, TRANSLATION, STRING, PROJECT, ID);
+  public String getProjectId(WebhookEvent payload) {
+    return payload.translation() == null ? null : payload.translation().projectId();
+  }
+
+  @Override
+  public List<String> getGamificationEventNames() {
+    return List.of(SUGGESTION_ADDED_EVENT_NAME);
   }
 }
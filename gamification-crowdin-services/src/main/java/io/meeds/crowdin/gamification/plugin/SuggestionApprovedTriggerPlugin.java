@@ -19,7 +19,10 @@
 package io.meeds.crowdin.gamification.plugin;
 
 import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.StringActivityView;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
 import io.meeds.crowdin.gamification.services.CrowdinTriggerService;
+import io.meeds.crowdin.gamification.services.TranslationAuthorService;
 import io.meeds.gamification.model.RealizationDTO;
 import io.meeds.gamification.service.RealizationService;
 import jakarta.annotation.PostConstruct;
@@ -29,17 +32,20 @@ import org.springframework.stereotype.Component;
 import static io.meeds.crowdin.gamification.utils.Utils.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 @Component
 public class SuggestionApprovedTriggerPlugin extends CrowdinTriggerPlugin {
 
   @Autowired
-  private CrowdinTriggerService crowdinTriggerService;
+  private CrowdinTriggerService    crowdinTriggerService;
 
   @Autowired
-  private RealizationService    realizationService;
+  private RealizationService       realizationService;
+
+  @Autowired
+  private TranslationAuthorService translationAuthorService;
 
   @PostConstruct
   public void init() {
@@ -47,38 +53,26 @@ public class SuggestionApprovedTriggerPlugin extends CrowdinTriggerPlugin {
   }
 
   @Override
-  public List<Event> getEvents(String trigger, Map<String, Object> payload) {
-    String objectId = constructObjectIdAsJsonString(payload, TRANSLATION);
+  public List<Event> getEvents(String trigger, WebhookEvent payload) {
+    WebhookEvent.Translation translation = payload.translation();
+    if (translation == null) {
+      return Collections.emptyList();
+    }
+    StringActivityView activity = StringActivityView.of(translation);
+    boolean cancelling = trigger.equals(SUGGESTION_DISAPPROVED_TRIGGER);
 
     List<Event> eventList = new ArrayList<>();
-    eventList.add(new Event(APPROVE_SUGGESTION_EVENT_NAME,
-                            extractSubItem(payload, TRANSLATION, USER, USERNAME),
-                            extractSubItem(payload, TRANSLATION, USER, USERNAME),
-                            objectId,
-                            TRANSLATION,
-                            getProjectId(payload),
-                            extractSubItem(payload, TRANSLATION, TARGET_LANGUAGE, ID),
-                            extractSubItem(payload, TRANSLATION, PROVIDER) == null,
-                            extractSubItem(payload, TRANSLATION, STRING, FILE, DIRECTORY_ID),
-                            trigger.equals(SUGGESTION_DISAPPROVED_TRIGGER),
-                            countWords(extractSubItem(payload, TRANSLATION, STRING, TEXT))));
-
-    List<RealizationDTO> realizations = realizationService.findRealizationsByObjectIdAndObjectType(objectId, TRANSLATION);
-
-    if (!realizations.isEmpty()) {
-      String earnerId = realizations.get(0).getEarnerId();
-      eventList.add(new Event(SUGGESTION_APPROVED_EVENT_NAME,
-                              earnerId,
-                              earnerId,
-                              objectId,
-                              TRANSLATION,
-                              getProjectId(payload),
-                              extractSubItem(payload, TRANSLATION, TARGET_LANGUAGE, ID),
-                              extractSubItem(payload, TRANSLATION, PROVIDER) == null,
-                              extractSubItem(payload, TRANSLATION, STRING, FILE, DIRECTORY_ID),
-                              trigger.equals(SUGGESTION_DISAPPROVED_TRIGGER),
-                              countWords(extractSubItem(payload, TRANSLATION, STRING, TEXT))));
+    eventList.add(activity.toEvent(APPROVE_SUGGESTION_EVENT_NAME, activity.username(), cancelling));
+
+    String earnerId = translationAuthorService.getAuthor(translation);
+    if (earnerId == null) {
+      // Translation suggested before its author was tracked
+      List<RealizationDTO> realizations = realizationService.findRealizationsByObjectIdAndObjectType(activity.objectId(), TRANSLATION);
+      earnerId = realizations.isEmpty() ? null : realizations.get(0).getEarnerId();
+    }
 
+    if (earnerId != null) {
+      eventList.add(activity.toEvent(SUGGESTION_APPROVED_EVENT_NAME, earnerId, cancelling));
     }
 
     return eventList;
@@ -95,7 +89,12 @@ public class SuggestionApprovedTriggerPlugin extends CrowdinTriggerPlugin {
   }
 
   @Override
-  public String getProjectId(Map<String, Object> payload) {
-    return extractSubItem(payload, TRANSLATION, STRING, PROJECT, ID);
+  public String getProjectId(WebhookEvent payload) {
+    return payload.translation() == null ? null : payload.translation().projectId();
+  }
+
+  @Override
+  public List<String> getGamificationEventNames() {
+    return List.of(APPROVE_SUGGESTION_EVENT_NAME, SUGGESTION_APPROVED_EVENT_NAME);
   }
 }
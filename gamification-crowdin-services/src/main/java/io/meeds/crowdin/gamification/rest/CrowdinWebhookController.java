@@ -18,12 +18,14 @@
  */
 package io.meeds.crowdin.gamification.rest;
 
+import io.meeds.crowdin.gamification.exception.WebhookRejectedException;
 import io.meeds.crowdin.gamification.services.CrowdinTriggerService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -40,11 +42,19 @@ public class CrowdinWebhookController {
   @PostMapping
   @Operation(summary = "Project webhook for Remote Crowdin connector.", description = "Project webhook for Remote Crowdin connector.", method = "POST")
   @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "401", description = "Unauthorized, the webhook secret is not recognized")
+  @ApiResponse(responseCode = "503", description = "Service unavailable, retry after the delay sent in Retry-After header")
   @ApiResponse(responseCode = "509", description = "Internal Server Error")
   public ResponseEntity<Object> crowdinEvent(@RequestHeader("authorization") String bearerToken, @RequestBody String payload) {
     try {
       crowdinTriggerService.handleTriggerAsync(bearerToken, payload);
       return ResponseEntity.status(HttpStatus.OK).build();
+    } catch (IllegalAccessException e) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    } catch (WebhookRejectedException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                           .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter()))
+                           .build();
     } catch (Exception e) {
       throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
     }
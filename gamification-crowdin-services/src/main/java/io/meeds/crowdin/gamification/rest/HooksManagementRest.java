@@ -18,12 +18,18 @@
  */
 package io.meeds.crowdin.gamification.rest;
 
+import io.meeds.crowdin.gamification.exception.CrowdinRateLimitException;
+import io.meeds.crowdin.gamification.model.DeadLetterEvent;
 import io.meeds.crowdin.gamification.model.RemoteDirectory;
 import io.meeds.crowdin.gamification.model.RemoteProject;
+import io.meeds.crowdin.gamification.model.ReplayJob;
 import io.meeds.crowdin.gamification.model.WebHook;
 import io.meeds.crowdin.gamification.rest.builder.WebHookBuilder;
 import io.meeds.crowdin.gamification.rest.model.WebHookList;
 import io.meeds.crowdin.gamification.rest.model.WebHookRestEntity;
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.services.DeadLetterService;
+import io.meeds.crowdin.gamification.services.ReplayService;
 import io.meeds.crowdin.gamification.services.WebhookService;
 import io.meeds.crowdin.gamification.storage.CrowdinConsumerStorage;
 
@@ -37,6 +43,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.exoplatform.commons.ObjectAlreadyExistsException;
 import org.exoplatform.commons.exception.ObjectNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
@@ -45,7 +52,9 @@ import org.springframework.web.server.ResponseStatusException;
 
 import javax.ws.rs.core.Response;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("hooks")
@@ -60,6 +69,15 @@ public class HooksManagementRest {
   @Autowired
   private CrowdinConsumerStorage crowdinConsumerStorage;
 
+  @Autowired
+  private CrowdinMetricsService  crowdinMetricsService;
+
+  @Autowired
+  private DeadLetterService      deadLetterService;
+
+  @Autowired
+  private ReplayService          replayService;
+
   @GetMapping
   @Secured("users")
   @Operation(summary = "Retrieves the list Crowdin webHooks", method = "GET")
@@ -86,6 +104,7 @@ public class HooksManagementRest {
   @ApiResponse(responseCode = "404", description = "Not found")
   @ApiResponse(responseCode = "400", description = "Bad request")
   @ApiResponse(responseCode = "401", description = "Unauthorized")
+  @ApiResponse(responseCode = "429", description = "Too many requests to Crowdin, retry after the delay sent in Retry-After header")
   @ApiResponse(responseCode = "503", description = "Service unavailable")
   public WebHook getWebHookById(HttpServletRequest request,
                                 @Parameter(description = "WebHook technical identifier", required = true)
@@ -112,6 +131,7 @@ public class HooksManagementRest {
   @ApiResponse(responseCode = "404", description = "Not found")
   @ApiResponse(responseCode = "400", description = "Bad request")
   @ApiResponse(responseCode = "401", description = "Unauthorized")
+  @ApiResponse(responseCode = "429", description = "Too many requests to Crowdin, retry after the delay sent in Retry-After header")
   @ApiResponse(responseCode = "503", description = "Service unavailable")
   public List<RemoteDirectory> getProjectDirectories(HttpServletRequest request,
                                                      @Parameter(description = "Remote project identifier", required = true) @PathVariable("projectId") long projectId,
@@ -135,6 +155,7 @@ public class HooksManagementRest {
   @ApiResponse(responseCode = "404", description = "Not found")
   @ApiResponse(responseCode = "400", description = "Bad request")
   @ApiResponse(responseCode = "401", description = "Unauthorized")
+  @ApiResponse(responseCode = "429", description = "Too many requests to Crowdin, retry after the delay sent in Retry-After header")
   @ApiResponse(responseCode = "503", description = "Service unavailable")
   public List<RemoteProject> getProjects(@Parameter(description = "Crowdin access token") @RequestParam("accessToken") String accessToken,
                                          @Parameter(description = "WebHook technical identifier") @RequestParam("hookId") String webHookId) {
@@ -161,6 +182,7 @@ public class HooksManagementRest {
   @ApiResponse(responseCode = "400", description = "Bad request")
   @ApiResponse(responseCode = "401", description = "Unauthorized")
   @ApiResponse(responseCode = "409", description = "Conflict")
+  @ApiResponse(responseCode = "429", description = "Too many requests to Crowdin, retry after the delay sent in Retry-After header")
   @ApiResponse(responseCode = "503", description = "Service unavailable")
   public ResponseEntity<Object> createWebhookHook(HttpServletRequest request,
                                                   @Parameter(description = "Crowdin project id", required = true) @RequestParam("projectId") Long projectId,
@@ -184,6 +206,7 @@ public class HooksManagementRest {
   @ApiResponse(responseCode = "400", description = "Bad request")
   @ApiResponse(responseCode = "401", description = "Unauthorized")
   @ApiResponse(responseCode = "409", description = "Conflict")
+  @ApiResponse(responseCode = "429", description = "Too many requests to Crowdin, retry after the delay sent in Retry-After header")
   @ApiResponse(responseCode = "503", description = "Service unavailable")
   public Response updateWebHookAccessToken(HttpServletRequest request,
                                            @Parameter(description = "webHook id", required = true) @RequestParam("webHookId") long webHookId,
@@ -209,6 +232,7 @@ public class HooksManagementRest {
   @ApiResponse(responseCode = "404", description = "Not found")
   @ApiResponse(responseCode = "400", description = "Bad request")
   @ApiResponse(responseCode = "401", description = "Unauthorized")
+  @ApiResponse(responseCode = "429", description = "Too many requests to Crowdin, retry after the delay sent in Retry-After header")
   @ApiResponse(responseCode = "503", description = "Service unavailable")
   public void deleteWebhookHook(HttpServletRequest request,
                                 @Parameter(description = "Crowdin project id", required = true) @PathVariable("projectId") long projectId) {
@@ -224,9 +248,130 @@ public class HooksManagementRest {
     }
   }
 
+  @GetMapping("{projectId}/deadLetters")
+  @Secured("rewarding")
+  @Operation(summary = "Retrieves the Crowdin events of a project whose processing failed", method = "GET")
+  @ApiResponse(responseCode = "200", description = "Request fulfilled")
+  @ApiResponse(responseCode = "401", description = "Unauthorized")
+  public List<DeadLetterEvent> getDeadLetters(HttpServletRequest request,
+                                              @Parameter(description = "Crowdin project id", required = true) @PathVariable("projectId") long projectId,
+                                              @Parameter(description = "Query Offset") @RequestParam(value = "offset", required = false, defaultValue = "0") int offset,
+                                              @Parameter(description = "Query results limit") @RequestParam(value = "limit", required = false, defaultValue = "20") int limit) {
+    try {
+      return deadLetterService.getDeadLetters(projectId, request.getRemoteUser(), offset, limit);
+    } catch (IllegalAccessException e) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+    }
+  }
+
+  @PostMapping("{projectId}/deadLetters/retry")
+  @Secured("rewarding")
+  @Operation(summary = "Retries immediately the failed Crowdin events of a project, including parked ones", method = "POST")
+  @ApiResponse(responseCode = "200", description = "Request fulfilled")
+  @ApiResponse(responseCode = "401", description = "Unauthorized")
+  public int retryDeadLetters(HttpServletRequest request,
+                              @Parameter(description = "Crowdin project id", required = true) @PathVariable("projectId") long projectId) {
+    try {
+      return deadLetterService.retryDeadLetters(projectId, request.getRemoteUser());
+    } catch (IllegalAccessException e) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+    }
+  }
+
+  @DeleteMapping("{projectId}/deadLetters")
+  @Secured("rewarding")
+  @Operation(summary = "Purges the failed Crowdin events of a project", method = "DELETE")
+  @ApiResponse(responseCode = "200", description = "Request fulfilled")
+  @ApiResponse(responseCode = "401", description = "Unauthorized")
+  public void purgeDeadLetters(HttpServletRequest request,
+                               @Parameter(description = "Crowdin project id", required = true) @PathVariable("projectId") long projectId) {
+    try {
+      deadLetterService.purgeDeadLetters(projectId, request.getRemoteUser());
+    } catch (IllegalAccessException e) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+    }
+  }
+
+  @PostMapping("{projectId}/replay")
+  @Secured("rewarding")
+  @Operation(summary = "Replays the archived Crowdin events of a project received in a time range", method = "POST")
+  @ApiResponse(responseCode = "200", description = "Replay started")
+  @ApiResponse(responseCode = "400", description = "Bad request")
+  @ApiResponse(responseCode = "401", description = "Unauthorized")
+  @ApiResponse(responseCode = "404", description = "Not found")
+  @ApiResponse(responseCode = "409", description = "A replay is already running for the project")
+  public ReplayJob startReplay(HttpServletRequest request,
+                               @Parameter(description = "Crowdin project id", required = true) @PathVariable("projectId") long projectId,
+                               @Parameter(description = "Range start timestamp, in milliseconds", required = true) @RequestParam("from") long from,
+                               @Parameter(description = "Range end timestamp, in milliseconds", required = true) @RequestParam("to") long to,
+                               @Parameter(description = "Cursor of an interrupted replay to resume") @RequestParam(value = "cursor", required = false, defaultValue = "0") long cursor) {
+    try {
+      return replayService.startReplay(projectId, new Date(from), new Date(to), cursor, request.getRemoteUser());
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    } catch (IllegalAccessException e) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+    } catch (ObjectNotFoundException e) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+    } catch (IllegalStateException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+    }
+  }
+
+  @GetMapping("replay/{jobId}")
+  @Secured("rewarding")
+  @Operation(summary = "Retrieves the progress of a Crowdin events replay", method = "GET")
+  @ApiResponse(responseCode = "200", description = "Request fulfilled")
+  @ApiResponse(responseCode = "401", description = "Unauthorized")
+  @ApiResponse(responseCode = "404", description = "Not found")
+  public ReplayJob getReplayJob(HttpServletRequest request,
+                                @Parameter(description = "Replay job id", required = true) @PathVariable("jobId") long jobId) {
+    try {
+      return replayService.getReplayJob(jobId, request.getRemoteUser());
+    } catch (IllegalAccessException e) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+    } catch (ObjectNotFoundException e) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+  }
+
+  @DeleteMapping("replay/{jobId}")
+  @Secured("rewarding")
+  @Operation(summary = "Cancels a running Crowdin events replay", method = "DELETE")
+  @ApiResponse(responseCode = "200", description = "Request fulfilled")
+  @ApiResponse(responseCode = "401", description = "Unauthorized")
+  @ApiResponse(responseCode = "404", description = "Not found")
+  public ReplayJob cancelReplay(HttpServletRequest request,
+                                @Parameter(description = "Replay job id", required = true) @PathVariable("jobId") long jobId) {
+    try {
+      return replayService.cancelReplay(jobId, request.getRemoteUser());
+    } catch (IllegalAccessException e) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+    } catch (ObjectNotFoundException e) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+  }
+
+  @GetMapping("metrics")
+  @Secured("rewarding")
+  @Operation(summary = "Retrieves Crowdin connector processing metrics", method = "GET")
+  @ApiResponse(responseCode = "200", description = "Request fulfilled")
+  @ApiResponse(responseCode = "401", description = "Unauthorized")
+  public Map<String, Number> getMetrics() {
+    return crowdinMetricsService.getMetrics();
+  }
+
+  @ExceptionHandler(CrowdinRateLimitException.class)
+  public ResponseEntity<Object> handleCrowdinRateLimit(CrowdinRateLimitException e) {
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                         .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter()))
+                         .body(e.getMessage());
+  }
+
   private List<WebHookRestEntity> getWebHookRestEntities(boolean includeLanguages,
                                                          boolean forceUpdate) {
     Collection<WebHook> webHooks = webhookService.getWebhooks(0, 20, forceUpdate);
+    // The remote projects are retrieved concurrently, the servlet thread waits for all of them
     return WebHookBuilder.toRestEntities(crowdinConsumerStorage, webHooks, includeLanguages);
   }
 
@@ -21,6 +21,7 @@ package io.meeds.crowdin.gamification.rest.builder;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 
+import io.meeds.crowdin.gamification.exception.CrowdinRateLimitException;
 import io.meeds.crowdin.gamification.model.RemoteProject;
 import io.meeds.crowdin.gamification.model.WebHook;
 import io.meeds.crowdin.gamification.rest.model.WebHookRestEntity;
@@ -30,6 +31,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component
 public class WebHookBuilder {
@@ -43,16 +46,68 @@ public class WebHookBuilder {
   public static WebHookRestEntity toRestEntity(CrowdinConsumerStorage crowdinConsumerStorage,
                                                WebHook webHook,
                                                boolean includeLanguages) {
+    return toRestEntityAsync(crowdinConsumerStorage, webHook, includeLanguages).join();
+  }
+
+  public static CompletableFuture<WebHookRestEntity> toRestEntityAsync(CrowdinConsumerStorage crowdinConsumerStorage,
+                                                                       WebHook webHook,
+                                                                       boolean includeLanguages) {
     if (webHook == null) {
-      return null;
+      return CompletableFuture.completedFuture(null);
     }
-    RemoteProject remoteProject = null;
+    return crowdinConsumerStorage.retrieveRemoteProjectAsync(webHook.getProjectId(), includeLanguages, webHook.getToken())
+                                 .handle((remoteProject, error) -> {
+                                   if (error == null) {
+                                     return toRestEntity(webHook, remoteProject);
+                                   }
+                                   Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                                   if (cause instanceof IllegalAccessException) {
+                                     LOG.error(cause);
+                                   } else if (cause instanceof CrowdinRateLimitException) {
+                                     // Keep listing the hooks without their remote project details
+                                     LOG.warn("Crowdin rate limit exceeded while retrieving project {}", webHook.getProjectId());
+                                   } else {
+                                     throw new CompletionException(cause);
+                                   }
+                                   return toRestEntity(webHook, null);
+                                 });
+  }
+
+  /**
+   * Retrieves the remote projects of the webhooks concurrently, then waits for
+   * all of them on the calling thread
+   */
+  public static List<WebHookRestEntity> toRestEntities(CrowdinConsumerStorage crowdinConsumerStorage,
+                                                       Collection<WebHook> webHooks,
+                                                       boolean includeLanguages) {
     try {
-      remoteProject = crowdinConsumerStorage.retrieveRemoteProject(webHook.getProjectId(), includeLanguages, webHook.getToken());
-    } catch (IllegalAccessException e) {
-      LOG.error(e);
+      return toRestEntitiesAsync(crowdinConsumerStorage, webHooks, includeLanguages).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
     }
+  }
 
+  /**
+   * Retrieves the remote projects of the webhooks concurrently, without
+   * blocking the calling thread
+   */
+  public static CompletableFuture<List<WebHookRestEntity>> toRestEntitiesAsync(CrowdinConsumerStorage crowdinConsumerStorage,
+                                                                               Collection<WebHook> webHooks,
+                                                                               boolean includeLanguages) {
+    List<CompletableFuture<WebHookRestEntity>> restEntities =
+                                                            webHooks.stream()
+                                                                    .map(webHook -> toRestEntityAsync(crowdinConsumerStorage,
+                                                                                                      webHook,
+                                                                                                      includeLanguages))
+                                                                    .toList();
+    return CompletableFuture.allOf(restEntities.toArray(new CompletableFuture[0]))
+                            .thenApply(ignored -> restEntities.stream().map(CompletableFuture::join).toList());
+  }
+
+  private static WebHookRestEntity toRestEntity(WebHook webHook, RemoteProject remoteProject) {
     return new WebHookRestEntity(webHook.getId(),
                                  webHook.getWebhookId(),
                                  webHook.getProjectId(),
@@ -70,10 +125,4 @@ public class WebHookBuilder {
                                  false,
                                  remoteProject != null);
   }
-
-  public static List<WebHookRestEntity> toRestEntities(CrowdinConsumerStorage crowdinConsumerStorage,
-                                                       Collection<WebHook> webHooks,
-                                                       boolean includeLanguages) {
-    return webHooks.stream().map(webHook -> toRestEntity(crowdinConsumerStorage, webHook, includeLanguages)).toList();
-  }
 }
@@ -0,0 +1,66 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collects Crowdin connector counters and gauges, exposed to rewarding
+ * managers through the hooks management REST endpoint.
+ */
+@Service
+public class CrowdinMetricsService {
+
+  private final Map<String, LongAdder>        counters = new ConcurrentHashMap<>();
+
+  private final Map<String, Supplier<Number>> gauges   = new ConcurrentHashMap<>();
+
+  public void increment(String name) {
+    add(name, 1);
+  }
+
+  public void add(String name, long value) {
+    counters.computeIfAbsent(name, key -> new LongAdder()).add(value);
+  }
+
+  public long getCounter(String name) {
+    LongAdder counter = counters.get(name);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  public void registerGauge(String name, Supplier<Number> gauge) {
+    gauges.put(name, gauge);
+  }
+
+  /**
+   * @return a snapshot of all counters and gauges, sorted by name
+   */
+  public Map<String, Number> getMetrics() {
+    Map<String, Number> metrics = new TreeMap<>();
+    counters.forEach((name, counter) -> metrics.put(name, counter.sum()));
+    gauges.forEach((name, gauge) -> metrics.put(name, gauge.get()));
+    return metrics;
+  }
+}
@@ -19,148 +19,493 @@
 package io.meeds.crowdin.gamification.services;
 
 import io.meeds.common.ContainerTransactional;
+import io.meeds.crowdin.gamification.exception.WebhookRejectedException;
+import io.meeds.crowdin.gamification.model.CrowdinUserResolution;
 import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.EventDetails;
 import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.model.WebhookBatch;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
 import io.meeds.crowdin.gamification.plugin.CrowdinTriggerPlugin;
-import io.meeds.crowdin.gamification.storage.WebHookStorage;
-import io.meeds.gamification.service.ConnectorService;
-import io.meeds.gamification.service.TriggerService;
+import io.meeds.crowdin.gamification.storage.WebhookArchiveStorage;
+import io.meeds.crowdin.gamification.storage.WebhookInboxStorage;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
-import org.exoplatform.services.listener.ListenerService;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
-import org.exoplatform.social.core.identity.model.Identity;
-import org.exoplatform.social.core.manager.IdentityManager;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import static io.meeds.crowdin.gamification.services.WebhookEventDeduplicator.getEventKey;
 import static io.meeds.crowdin.gamification.utils.Utils.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class CrowdinTriggerService {
 
   private static final Log                        LOG            = ExoLogger.getLogger(CrowdinTriggerService.class);
 
+  private static final String                     PARTITION_BY_PROJECT = "project";
+
   private final Map<String, CrowdinTriggerPlugin> triggerPlugins = new HashMap<>();
 
+  private final AtomicBoolean                     draining       = new AtomicBoolean();
+
+  private final AtomicBoolean                     drainRequested = new AtomicBoolean();
+
+  private final AtomicLong                        inboxBacklog   = new AtomicLong();
+
+  private final String                            nodeId         = UUID.randomUUID().toString();
+
   @Autowired
-  private TriggerService                          triggerService;
+  private TriggerEnablementCache                  triggerEnablementCache;
 
   @Autowired
-  private ConnectorService                        connectorService;
+  private CrowdinUserResolver                     crowdinUserResolver;
 
   @Autowired
-  private IdentityManager                         identityManager;
+  private DeadLetterService                       deadLetterService;
 
   @Autowired
-  private ListenerService                         listenerService;
+  private WebhookSecretIndex                      webhookSecretIndex;
 
   @Autowired
-  private WebHookStorage                          webHookStorage;
+  private WebhookInboxStorage                     webhookInboxStorage;
 
   @Autowired
-  private ThreadPoolTaskExecutor                  threadPoolTaskExecutor;
+  private CrowdinWebhookExecutor                  crowdinWebhookExecutor;
+
+  @Autowired
+  private CrowdinMetricsService                   crowdinMetricsService;
+
+  @Autowired
+  private PartitionedEventDispatcher              partitionedEventDispatcher;
+
+  @Autowired
+  private WebhookEventDeduplicator                webhookEventDeduplicator;
+
+  @Autowired
+  private WebhookArchiveStorage                   webhookArchiveStorage;
+
+  @Autowired
+  private TranslationAuthorService                translationAuthorService;
+
+  @Autowired
+  private DirectoryTreeService                    directoryTreeService;
+
+  @Autowired
+  private EventRateLimiter                        eventRateLimiter;
+
+  @Value("${gamification.crowdin.webhook.inbox.leaseTimeout:300000}")
+  private long                                    inboxLeaseTimeout;
+
+  @Value("${gamification.crowdin.webhook.inbox.maxBacklog:10000}")
+  private long                                    inboxMaxBacklog;
+
+  @Value("${gamification.crowdin.webhook.retryAfter:60}")
+  private long                                    retryAfter;
+
+  @Value("${gamification.crowdin.webhook.dispatcher.partitionKey:string}")
+  private String                                  partitionKey;
+
+  @Value("${gamification.crowdin.webhook.archive.retention:604800000}")
+  private long                                    archiveRetention;
 
-  public void handleTriggerAsync(String bearerToken, String payload) {
-    threadPoolTaskExecutor.execute(() -> handleTrigger(bearerToken, payload));
+  @PostConstruct
+  public void init() {
+    crowdinMetricsService.registerGauge(INBOX_BACKLOG_METRIC, inboxBacklog::get);
   }
 
+  /**
+   * Persists the received webhook batch in the inbox, then asks a worker to
+   * drain the inbox. The batch is durable once this method returns.
+   *
+   * @param bearerToken authorization header sent by Crowdin
+   * @param payload raw webhook batch
+   * @throws IllegalAccessException when the bearer token doesn't match any
+   *           registered webhook secret
+   * @throws WebhookRejectedException when the Crowdin webhook executor is
+   *           saturated or the inbox backlog is full, so that Crowdin retries
+   *           the delivery later
+   */
+  public void handleTriggerAsync(String bearerToken, String payload) throws IllegalAccessException, WebhookRejectedException {
+    WebHook webHook = webhookSecretIndex.getWebhookBySecret(extractBearerSecret(bearerToken));
+    if (webHook == null) {
+      crowdinMetricsService.increment(WEBHOOK_UNAUTHORIZED_METRIC);
+      throw new IllegalAccessException("Crowdin webhook secret is not recognized");
+    }
+    if (crowdinWebhookExecutor.isSaturated() || inboxBacklog.get() >= inboxMaxBacklog) {
+      crowdinMetricsService.increment(WEBHOOK_REJECTED_METRIC);
+      throw new WebhookRejectedException("Crowdin webhook processing is saturated", retryAfter);
+    }
+    webhookInboxStorage.appendBatch(webHook.getProjectId(), bearerToken, payload);
+    inboxBacklog.incrementAndGet();
+    drainRequested.set(true);
+    try {
+      crowdinWebhookExecutor.execute(this::drainInbox);
+    } catch (TaskRejectedException e) {
+      // The batch is persisted, it will be processed by the next scheduled drain
+      LOG.debug("Crowdin webhook executor is saturated, inbox drain postponed", e);
+    }
+  }
+
+  /**
+   * Claims and processes pending inbox batches in reception order. Triggered
+   * after each received batch and periodically, so that idle nodes pick up the
+   * backlog of busy ones and batches leased by a crashed node are resumed once
+   * their lease expires.
+   */
   @ContainerTransactional
-  @SuppressWarnings("unchecked")
-  public void handleTrigger(String bearerToken, String payload) {
+  @Scheduled(initialDelayString = "${gamification.crowdin.webhook.inbox.initialDelay:60000}", fixedDelayString = "${gamification.crowdin.webhook.inbox.drainInterval:10000}")
+  public void drainInbox() {
+    drainRequested.set(true);
+    while (drainRequested.get() && draining.compareAndSet(false, true)) {
+      try {
+        while (drainRequested.getAndSet(false)) {
+          drainPendingBatches();
+        }
+      } finally {
+        draining.set(false);
+      }
+    }
+  }
 
-    Map<String, Object> payloadMap = fromJsonStringToMap(payload);
+  /**
+   * Claims and processes batches one at a time, so that a claimed batch lease
+   * only has to outlive the processing of that batch.
+   */
+  private void drainPendingBatches() {
+    WebhookBatch batch;
+    while ((batch = webhookInboxStorage.claimBatch(nodeId, inboxLeaseTimeout)) != null) {
+      try {
+        handleTrigger(batch.getBearerToken(), batch.getPayload(), batch.getCreatedDate());
+      } catch (Exception e) {
+        LOG.error("Error while processing Crowdin webhook batch with id {}", batch.getId(), e);
+      }
+      if (!webhookInboxStorage.deleteBatch(batch.getId(), nodeId)) {
+        LOG.warn("Lease of Crowdin webhook batch with id {} expired while processing it, it was claimed again", batch.getId());
+      }
+    }
+    inboxBacklog.set(webhookInboxStorage.countBatches());
+  }
 
-    Object eventsObj = payloadMap.get("events");
-    List<Map<String, Object>> eventsListMap = (List<Map<String, Object>>) eventsObj;
-    LOG.info("Total Events: " + eventsListMap.size());
+  /**
+   * Processes a received webhook batch, then archives it so that it can be
+   * replayed later.
+   *
+   * @param bearerToken authorization header sent by Crowdin, resolved once to
+   *          the webhook it authenticates
+   * @param payload raw webhook batch
+   * @param receivedDate batch reception date
+   */
+  @ContainerTransactional
+  public void handleTrigger(String bearerToken, String payload, Date receivedDate) {
+    WebHook webHook = webhookSecretIndex.getWebhookBySecret(extractBearerSecret(bearerToken));
+    if (webHook == null) {
+      LOG.error("Crowdin webhook secret is not recognized, ignoring the webhook batch");
+      return;
+    }
+    try {
+      processBatch(webHook, payload, null);
+    } finally {
+      archiveBatch(webHook, payload, receivedDate);
+    }
+  }
 
-    for (Map<String, Object> eventMap : eventsListMap) {
-      String trigger = extractSubItem(eventMap, "event");
-      CrowdinTriggerPlugin triggerPlugin = getCrowdinTriggerPlugin(trigger);
-      if (triggerPlugin == null) {
-        LOG.error("Trigger plugin for trigger : " + trigger + " wasn't found");
-      } else {
-        String projectId = triggerPlugin.getProjectId(eventMap);
-        if (projectId == null) {
-          LOG.error("Project id is not found in the payload");
-          continue;
-        }
-        WebHook webHook = webHookStorage.getWebhookByProjectId(Long.parseLong(projectId));
-        if (webHook == null) {
-          LOG.error("Crowdin hook for project id : " + projectId + " wasn't found");
-          continue;
-        }
-        if (!verifyWebhookSecret(bearerToken.substring(7), webHook.getSecret())) {
-          LOG.error("Verifying Crowdin webhook secret failed");
-          continue;
-        }
-        processEvents(triggerPlugin.getEvents(trigger, eventMap), projectId);
+  /**
+   * Processes again an archived webhook batch. A replay doesn't rely on the
+   * redelivery window: the events of a translation or comment are replayed
+   * only when none of its events was processed during the processed events
+   * retention, or when the same replay already started to replay it, then
+   * deduplicated as live events, so that a replay never awards twice nor
+   * cancels what live processing applied.
+   *
+   * @param webHook webhook of the archived batch
+   * @param payload raw webhook batch
+   * @param replayedObjects keys of the translations and comments already
+   *          replayed by the replay job, updated with the ones of this batch
+   * @return the number of events of the batch
+   */
+  @ContainerTransactional
+  public int replayBatch(WebHook webHook, String payload, Set<String> replayedObjects) {
+    return processBatch(webHook, payload, replayedObjects);
+  }
+
+  /**
+   * Dispatches the events of a webhook batch on the partitioned lanes, so that
+   * events of the same partition are processed in order while different
+   * partitions are processed in parallel, then waits for the whole batch to be
+   * processed. Each event runs in its own container request on the lane thread.
+   * The data needed by the batch events is resolved beforehand, once for the
+   * whole batch.
+   */
+  private int processBatch(WebHook webHook, String payload, Set<String> replayedObjects) {
+    List<WebhookEvent> webhookEvents = new ArrayList<>();
+    int eventsCount = parseWebhookEvents(payload, webhookEvents::add);
+    LOG.info("Total Events: {}", eventsCount);
+    prepareBatch(webhookEvents);
+    List<CompletableFuture<Void>> processing = new ArrayList<>();
+    webhookEvents.forEach(webhookEvent -> processing.add(partitionedEventDispatcher.dispatch(getPartitionKey(webhookEvent),
+                                                                                            () -> handleEventSafely(webHook,
+                                                                                                                    webhookEvent,
+                                                                                                                    replayedObjects))));
+    CompletableFuture.allOf(processing.toArray(new CompletableFuture[0])).join();
+    return eventsCount;
+  }
+
+  /**
+   * Resolves, once for a whole webhook batch, the triggers enablement of the
+   * distinct projects, then the translations authors, the distinct Crowdin
+   * users and the directories needed by the enabled events only, so that each
+   * event is then processed from in-memory caches whatever the batch size, and
+   * disabled events don't cost any lookup.
+   */
+  private void prepareBatch(List<WebhookEvent> webhookEvents) {
+    Map<String, Set<String>> projectTriggers = new HashMap<>();
+    for (WebhookEvent webhookEvent : webhookEvents) {
+      CrowdinTriggerPlugin triggerPlugin = getCrowdinTriggerPlugin(webhookEvent.event());
+      WebhookEvent.StringActivity activity = webhookEvent.activity();
+      if (triggerPlugin != null && activity != null && NumberUtils.isDigits(activity.projectId())) {
+        projectTriggers.computeIfAbsent(activity.projectId(), key -> new HashSet<>())
+                       .addAll(triggerPlugin.getGamificationEventNames());
       }
     }
+    Map<String, Set<String>> enabledTriggers = new HashMap<>();
+    projectTriggers.forEach((projectId, triggers) -> enabledTriggers.put(projectId,
+                                                                         triggers.stream()
+                                                                                 .filter(trigger -> isTriggerEnabled(trigger,
+                                                                                                                     projectId))
+                                                                                 .collect(Collectors.toSet())));
+    List<WebhookEvent> enabledEvents = webhookEvents.stream()
+                                                    .filter(webhookEvent -> isEventEnabled(webhookEvent, enabledTriggers))
+                                                    .toList();
+    if (enabledEvents.isEmpty()) {
+      return;
+    }
+    Set<String> usernames = new HashSet<>(translationAuthorService.preloadAuthors(enabledEvents));
+    Map<String, Set<String>> projectDirectories = new HashMap<>();
+    for (WebhookEvent webhookEvent : enabledEvents) {
+      WebhookEvent.StringActivity activity = webhookEvent.activity();
+      if (activity.username() != null && !NumberUtils.isDigits(activity.username())) {
+        usernames.add(activity.username());
+      }
+      if (activity.directoryId() != null) {
+        projectDirectories.computeIfAbsent(activity.projectId(), key -> new HashSet<>()).add(activity.directoryId());
+      }
+    }
+    projectDirectories.forEach((projectId, directoryIds) -> directoryTreeService.refreshDirectories(Long.parseLong(projectId),
+                                                                                                   directoryIds));
+    crowdinUserResolver.resolveAll(usernames);
+    LOG.debug("Resolved {} users for {} enabled events of a batch of {} events",
+              usernames.size(),
+              enabledEvents.size(),
+              webhookEvents.size());
   }
 
-  public void processEvents(List<Event> events, String projectId) {
-    events.stream().filter(event -> isTriggerEnabled(event.getName(), projectId)).forEach(this::processEvent);
+  private boolean isEventEnabled(WebhookEvent webhookEvent, Map<String, Set<String>> enabledTriggers) {
+    CrowdinTriggerPlugin triggerPlugin = getCrowdinTriggerPlugin(webhookEvent.event());
+    WebhookEvent.StringActivity activity = webhookEvent.activity();
+    if (triggerPlugin == null || activity == null) {
+      return false;
+    }
+    Set<String> projectEnabledTriggers = enabledTriggers.getOrDefault(activity.projectId(), Collections.emptySet());
+    return triggerPlugin.getGamificationEventNames().stream().anyMatch(projectEnabledTriggers::contains);
+  }
+
+  private void archiveBatch(WebHook webHook, String payload, Date receivedDate) {
+    if (archiveRetention <= 0) {
+      return;
+    }
+    try {
+      webhookArchiveStorage.archiveBatch(webHook.getProjectId(), receivedDate, payload);
+    } catch (Exception e) {
+      LOG.warn("Error while archiving Crowdin webhook batch of project {}", webHook.getProjectId(), e);
+    }
+  }
+
+  private String getPartitionKey(WebhookEvent webhookEvent) {
+    WebhookEvent.StringActivity activity = webhookEvent.activity();
+    if (activity == null) {
+      return webhookEvent.event();
+    } else if (PARTITION_BY_PROJECT.equals(partitionKey)) {
+      return activity.projectId();
+    } else {
+      return activity.projectId() + ":" + activity.stringId();
+    }
+  }
+
+  private void handleEventSafely(WebHook webHook, WebhookEvent webhookEvent, Set<String> replayedObjects) {
+    try {
+      handleEvent(webHook, webhookEvent, replayedObjects);
+    } catch (Exception e) {
+      LOG.error("Error while processing Crowdin event {}", webhookEvent.event(), e);
+    }
+  }
+
+  private void handleEvent(WebHook webHook, WebhookEvent webhookEvent, Set<String> replayedObjects) {
+    String trigger = webhookEvent.event();
+    CrowdinTriggerPlugin triggerPlugin = getCrowdinTriggerPlugin(trigger);
+    if (triggerPlugin == null) {
+      LOG.error("Trigger plugin for trigger : " + trigger + " wasn't found");
+      return;
+    }
+    String projectId = triggerPlugin.getProjectId(webhookEvent);
+    if (projectId == null) {
+      LOG.error("Project id is not found in the payload");
+      return;
+    }
+    if (!String.valueOf(webHook.getProjectId()).equals(projectId)) {
+      LOG.error("Crowdin event of project {} doesn't belong to the authenticated hook of project {}",
+                projectId,
+                webHook.getProjectId());
+      return;
+    }
+    if (triggerPlugin.getGamificationEventNames().stream().noneMatch(eventName -> isTriggerEnabled(eventName, projectId))) {
+      crowdinMetricsService.increment(WEBHOOK_DISABLED_METRIC);
+      LOG.debug("Crowdin event {} is disabled for project {}, ignoring it", trigger, projectId);
+      return;
+    }
+    String objectId = webhookEvent.activity().id();
+    String eventKey = getEventKey(trigger, projectId, objectId);
+    String counterpartTrigger = trigger.equals(triggerPlugin.getEventName()) ? triggerPlugin.getCancellingEventName()
+                                                                              : triggerPlugin.getEventName();
+    String counterpartEventKey = getEventKey(counterpartTrigger, projectId, objectId);
+    if (replayedObjects == null ? webhookEventDeduplicator.isDuplicate(eventKey, counterpartEventKey)
+                                : isAlreadyApplied(getEventKey(triggerPlugin.getEventName(), projectId, objectId),
+                                                   eventKey,
+                                                   counterpartEventKey,
+                                                   replayedObjects)) {
+      crowdinMetricsService.increment(WEBHOOK_DUPLICATE_METRIC);
+      LOG.debug("Crowdin event {} already processed, ignoring it", eventKey);
+      return;
+    }
+    List<Event> events = triggerPlugin.getEvents(trigger, webhookEvent);
+    recordTranslationAuthor(trigger, webhookEvent.translation());
+    if (processEvents(events, projectId) == 0) {
+      // Nothing was awarded, a redelivery or replay may still award it
+      return;
+    }
+    webhookEventDeduplicator.markProcessed(eventKey);
+  }
+
+  /**
+   * Tracks the authors of suggested translations once an event is known not
+   * to be a duplicate, after the events of a deletion are attributed to the
+   * author of the deleted translation
+   */
+  private void recordTranslationAuthor(String trigger, WebhookEvent.Translation translation) {
+    if (SUGGESTION_ADDED_TRIGGER.equals(trigger)) {
+      translationAuthorService.addAuthor(translation);
+    } else if (SUGGESTION_DELETED_TRIGGER.equals(trigger)) {
+      translationAuthorService.removeAuthor(translation);
+    }
+  }
+
+  private boolean isAlreadyApplied(String objectKey,
+                                   String eventKey,
+                                   String counterpartEventKey,
+                                   Set<String> replayedObjects) {
+    if (replayedObjects.contains(objectKey)) {
+      // Replayed by this job, only redeliveries archived twice are dropped
+      return webhookEventDeduplicator.isDuplicate(eventKey, counterpartEventKey);
+    } else if (webhookEventDeduplicator.isProcessed(eventKey, counterpartEventKey)) {
+      return true;
+    }
+    replayedObjects.add(objectKey);
+    return false;
+  }
+
+  /**
+   * @param events gamification events computed from a Crowdin event
+   * @param projectId Crowdin project id
+   * @return the number of broadcast gamification events
+   */
+  public long processEvents(List<Event> events, String projectId) {
+    return events.stream().filter(event -> isTriggerEnabled(event.getName(), projectId)).filter(this::processEvent).count();
   }
 
   private boolean isTriggerEnabled(String trigger, String projectId) {
-    return triggerService.isTriggerEnabledForAccount(trigger, Long.parseLong(projectId));
+    return triggerEnablementCache.isTriggerEnabled(trigger, Long.parseLong(projectId));
   }
 
-  private void processEvent(Event event) {
-    String receiverId = NumberUtils.isDigits(event.getReceiver()) ? event.getReceiver()
-                                                                  : connectorService.getAssociatedUsername(CONNECTOR_NAME,
-                                                                                                           event.getReceiver());
+  private boolean processEvent(Event event) {
+    CrowdinUserResolution receiver = NumberUtils.isDigits(event.getReceiver()) ? null
+                                                                               : crowdinUserResolver.resolve(event.getReceiver());
+    String receiverId = receiver == null ? event.getReceiver() : receiver.username();
     String senderId;
+    CrowdinUserResolution sender;
     if (!NumberUtils.isDigits(event.getSender()) && event.getSender() != null
         && !StringUtils.equals(event.getReceiver(), event.getSender())) {
-      senderId = connectorService.getAssociatedUsername(CONNECTOR_NAME, event.getSender());
+      sender = crowdinUserResolver.resolve(event.getSender());
+      senderId = sender.username();
     } else {
+      sender = receiver;
       senderId = receiverId;
     }
-    LOG.info("processEvent: senderId: " + senderId);
-    if (StringUtils.isNotBlank(senderId)) {
-      if (NumberUtils.isDigits(senderId)) {
-        broadcastCrowdinEvent(event, senderId, receiverId);
-      } else {
-        Identity socialIdentity = identityManager.getOrCreateUserIdentity(senderId);
-        LOG.info("processEvent: socialIdentity: " + socialIdentity);
-        if (socialIdentity != null) {
-          broadcastCrowdinEvent(event, senderId, receiverId);
-        }
-      }
+    if (StringUtils.isBlank(senderId) || (!NumberUtils.isDigits(senderId) && !sender.identityExists())) {
+      return false;
     }
+    Map<String, String> gam = toEventData(event, senderId, receiverId);
+    // Cancelling events only withdraw points, they are never throttled
+    long delay = event.isCancelling() ? 0 : eventRateLimiter.acquire(senderId, event.getName(), event.getProjectId());
+    if (delay == EventRateLimiter.REJECTED) {
+      crowdinMetricsService.increment(RATE_LIMIT_DROPPED_METRIC);
+      LOG.debug("Crowdin action {} of user {} dropped by the rate limit", event.getName(), senderId);
+      return false;
+    } else if (delay > 0) {
+      crowdinMetricsService.increment(RATE_LIMIT_DEFERRED_METRIC);
+      deadLetterService.deferEvent(Long.parseLong(event.getProjectId()), gam, event.isCancelling(), delay);
+      LOG.debug("Crowdin action {} of user {} deferred by {}ms by the rate limit", event.getName(), senderId, delay);
+    } else {
+      broadcastCrowdinEvent(event, gam, senderId);
+    }
+    return true;
+  }
+
+  private Map<String, String> toEventData(Event event, String senderId, String receiverId) {
+    Map<String, String> gam = new HashMap<>();
+    gam.put("senderId", senderId);
+    gam.put("receiverId", receiverId);
+    gam.put("objectId", event.getObjectId());
+    gam.put("objectType", event.getObjectType());
+    gam.put("eventDetails", toEventDetails(EventDetails.of(event)));
+    gam.put("ruleTitle", event.getName());
+    return gam;
   }
 
-  private void broadcastCrowdinEvent(Event event, String senderId, String receiverId) {
+  private void broadcastCrowdinEvent(Event event, Map<String, String> gam, String senderId) {
     try {
-      String eventDetails = "{" + PROJECT_ID + ": " + event.getProjectId() + ", " + LANGUAGE_ID + ": " + event.getLanguageId()
-          + ", " + MUST_BE_HUMAN + ": " + event.isMustBeHuman() + ", " + DIRECTORY_ID + ": " + event.getDirectoryId() + ", "
-          + TOTAL_TARGET_ITEM + ": " + event.getTotalWords() + "}";
-      Map<String, String> gam = new HashMap<>();
-      gam.put("senderId", senderId);
-      gam.put("receiverId", receiverId);
-      gam.put("objectId", event.getObjectId());
-      gam.put("objectType", event.getObjectType());
-      gam.put("eventDetails", eventDetails);
-      gam.put("ruleTitle", event.getName());
+      deadLetterService.broadcast(gam, event.isCancelling());
       if (!event.isCancelling()) {
-        listenerService.broadcast(GAMIFICATION_GENERIC_EVENT, gam, "");
         LOG.info("Crowdin action {} broadcast for user {}", event.getName(), senderId);
       } else {
-        listenerService.broadcast(GAMIFICATION_CANCEL_EVENT, gam, "");
         LOG.info("Crowdin cancelling action {} broadcast for user {}", event.getName(), senderId);
       }
-
     } catch (Exception e) {
-      LOG.error("Cannot broadcast crowdin event", e);
+      LOG.warn("Cannot broadcast crowdin event, it will be retried later", e);
+      try {
+        deadLetterService.addDeadLetter(Long.parseLong(event.getProjectId()), gam, event.isCancelling(), e);
+      } catch (Exception deadLetterError) {
+        LOG.error("Cannot store crowdin event for a later retry", deadLetterError);
+      }
     }
   }
 
@@ -0,0 +1,137 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.crowdin.gamification.model.CrowdinUserResolution;
+import io.meeds.gamification.service.ConnectorService;
+import org.apache.commons.lang3.StringUtils;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.listener.Event;
+import org.exoplatform.services.listener.Listener;
+import org.exoplatform.services.listener.ListenerService;
+import org.exoplatform.social.core.manager.IdentityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Resolves Crowdin usernames to the Meeds users who connected them, through a
+ * bounded, TTL-based and cluster-invalidated cache. Crowdin users who didn't
+ * connect their account are cached too, with a shorter retention, so that
+ * their contributions don't cost a lookup each time.
+ */
+@Component
+public class CrowdinUserResolver extends Listener<Object, Object> {
+
+  @Autowired
+  private CacheService                            cacheService;
+
+  @Autowired
+  private ConnectorService                        connectorService;
+
+  @Autowired
+  private IdentityManager                         identityManager;
+
+  @Autowired
+  private CrowdinMetricsService                   crowdinMetricsService;
+
+  @Autowired
+  private ListenerService                         listenerService;
+
+  @Value("${gamification.crowdin.userCache.negativeTtl:60000}")
+  private long                                    negativeTtl;
+
+  private ExoCache<String, CrowdinUserResolution> userCache;
+
+  @PostConstruct
+  public void init() {
+    listenerService.addListener(CONNECTOR_CONNECTED_EVENT, this);
+    listenerService.addListener(CONNECTOR_DISCONNECTED_EVENT, this);
+  }
+
+  /**
+   * @param crowdinUsername Crowdin username
+   * @return the resolution of the Crowdin user, never null
+   */
+  public CrowdinUserResolution resolve(String crowdinUsername) {
+    if (StringUtils.isBlank(crowdinUsername)) {
+      return new CrowdinUserResolution(null, false, System.currentTimeMillis());
+    }
+    CrowdinUserResolution resolution = getUserCache().get(crowdinUsername);
+    if (resolution != null
+        && (resolution.isConnected() || System.currentTimeMillis() - resolution.resolvedTime() < negativeTtl)) {
+      crowdinMetricsService.increment(USER_CACHE_HIT_METRIC);
+      return resolution;
+    }
+    crowdinMetricsService.increment(USER_CACHE_MISS_METRIC);
+    String username = connectorService.getAssociatedUsername(CONNECTOR_NAME, crowdinUsername);
+    boolean identityExists = StringUtils.isNotBlank(username) && identityManager.getOrCreateUserIdentity(username) != null;
+    resolution = new CrowdinUserResolution(StringUtils.isBlank(username) ? null : username,
+                                           identityExists,
+                                           System.currentTimeMillis());
+    getUserCache().put(crowdinUsername, resolution);
+    return resolution;
+  }
+
+  /**
+   * Resolves the distinct Crowdin users of a webhook batch at once, so that
+   * its events are then processed from the cache
+   *
+   * @param crowdinUsernames Crowdin usernames
+   * @return the resolution of each Crowdin user, by username
+   */
+  public Map<String, CrowdinUserResolution> resolveAll(Collection<String> crowdinUsernames) {
+    Map<String, CrowdinUserResolution> resolutions = new HashMap<>();
+    crowdinUsernames.stream()
+                    .filter(StringUtils::isNotBlank)
+                    .distinct()
+                    .forEach(crowdinUsername -> resolutions.put(crowdinUsername, resolve(crowdinUsername)));
+    return resolutions;
+  }
+
+  public void clear() {
+    getUserCache().clearCache();
+  }
+
+  /**
+   * Clears the resolutions once a connector account is connected or
+   * disconnected, after the association is persisted, whatever the connector:
+   * such changes are rare and the cache is cheaply refilled.
+   */
+  @Override
+  public void onEvent(Event<Object, Object> event) {
+    clear();
+  }
+
+  private ExoCache<String, CrowdinUserResolution> getUserCache() {
+    if (userCache == null) {
+      userCache = cacheService.getCacheInstance(USER_CACHE_NAME);
+    }
+    return userCache;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import io.meeds.crowdin.gamification.utils.Utils;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+/**
+ * Bounded executor dedicated to Crowdin webhook processing, so that bursts of
+ * Crowdin batches don't compete with the other asynchronous tasks of the
+ * portal. Tasks run inside a request of the container of the submitting thread.
+ */
+@Component
+public class CrowdinWebhookExecutor {
+
+  @Autowired
+  private CrowdinMetricsService  crowdinMetricsService;
+
+  @Value("${gamification.crowdin.webhook.executor.coreSize:2}")
+  private int                    coreSize;
+
+  @Value("${gamification.crowdin.webhook.executor.maxSize:4}")
+  private int                    maxSize;
+
+  @Value("${gamification.crowdin.webhook.executor.queueCapacity:100}")
+  private int                    queueCapacity;
+
+  private ThreadPoolTaskExecutor executor;
+
+  @PostConstruct
+  public void init() {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(coreSize);
+    executor.setMaxPoolSize(Math.max(coreSize, maxSize));
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("crowdin-webhook-");
+    executor.setTaskDecorator(Utils::withContainerRequest);
+    executor.initialize();
+    crowdinMetricsService.registerGauge(EXECUTOR_QUEUE_DEPTH_METRIC, this::getQueueDepth);
+    crowdinMetricsService.registerGauge(EXECUTOR_ACTIVE_METRIC, executor::getActiveCount);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  /**
+   * @param task task to execute
+   * @throws org.springframework.core.task.TaskRejectedException when the
+   *           executor is saturated
+   */
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  /**
+   * @return true when all threads are busy and the queue is full
+   */
+  public boolean isSaturated() {
+    return executor.getActiveCount() >= executor.getMaxPoolSize()
+        && executor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0;
+  }
+
+  public int getQueueDepth() {
+    return executor.getThreadPoolExecutor().getQueue().size();
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.common.ContainerTransactional;
+import io.meeds.crowdin.gamification.model.DeadLetterEvent;
+import io.meeds.crowdin.gamification.model.DeadLetterStatus;
+import io.meeds.crowdin.gamification.storage.DeadLetterStorage;
+import io.meeds.gamification.utils.Utils;
+import org.apache.commons.lang3.StringUtils;
+import org.exoplatform.services.listener.ListenerService;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stores the Crowdin events whose gamification broadcast failed and retries
+ * them with an exponential backoff and jitter, until they succeed or are
+ * parked after the maximum number of attempts. The events deferred by the rate
+ * limit are stored with a distinct status, so that they're broadcast by the
+ * same scheduler without being listed or purged as failures.
+ */
+@Service
+public class DeadLetterService {
+
+  private static final Log      LOG                     = ExoLogger.getLogger(DeadLetterService.class);
+
+  private static final int      MAX_FAILURE_REASON_SIZE = 2000;
+
+  private static final String   RATE_LIMITED_REASON     = "Deferred by the user events rate limit";
+
+  @Autowired
+  private DeadLetterStorage     deadLetterStorage;
+
+  @Autowired
+  private ListenerService       listenerService;
+
+  @Autowired
+  private CrowdinMetricsService crowdinMetricsService;
+
+  @Autowired
+  private DirectoryTreeService  directoryTreeService;
+
+  @Value("${gamification.crowdin.deadLetter.maxAttempts:8}")
+  private int                   maxAttempts;
+
+  @Value("${gamification.crowdin.deadLetter.baseDelay:60000}")
+  private long                  baseDelay;
+
+  @Value("${gamification.crowdin.deadLetter.maxDelay:21600000}")
+  private long                  maxDelay;
+
+  @Value("${gamification.crowdin.deadLetter.batchSize:50}")
+  private int                   batchSize;
+
+  @Value("${gamification.crowdin.deadLetter.leaseTimeout:300000}")
+  private long                  leaseTimeout;
+
+  /**
+   * Broadcasts a Crowdin gamification event
+   *
+   * @param eventData gamification event data
+   * @param cancelling whether the event cancels a previous action
+   * @throws Exception when a gamification listener fails
+   */
+  public void broadcast(Map<String, String> eventData, boolean cancelling) throws Exception { // NOSONAR
+    listenerService.broadcast(cancelling ? GAMIFICATION_CANCEL_EVENT : GAMIFICATION_GENERIC_EVENT, eventData, "");
+  }
+
+  /**
+   * Stores a Crowdin gamification event whose broadcast failed, so that it's
+   * retried later
+   *
+   * @param projectId Crowdin project id
+   * @param eventData gamification event data
+   * @param cancelling whether the event cancels a previous action
+   * @param error broadcast failure
+   */
+  public void addDeadLetter(long projectId, Map<String, String> eventData, boolean cancelling, Exception error) {
+    Date now = new Date();
+    DeadLetterEvent deadLetterEvent = new DeadLetterEvent(0,
+                                                          projectId,
+                                                          eventData,
+                                                          cancelling,
+                                                          getFailureReason(error),
+                                                          1,
+                                                          new Date(now.getTime() + getRetryDelay(1)),
+                                                          DeadLetterStatus.PENDING,
+                                                          now);
+    deadLetterStorage.saveDeadLetter(deadLetterEvent);
+    crowdinMetricsService.increment(DEAD_LETTER_ADDED_METRIC);
+  }
+
+  /**
+   * Stores a Crowdin gamification event throttled by the rate limiter, so that
+   * it's broadcast once its user is allowed to earn it
+   *
+   * @param projectId Crowdin project id
+   * @param eventData gamification event data
+   * @param cancelling whether the event cancels a previous action
+   * @param delay delay in milliseconds before broadcasting the event
+   */
+  public void deferEvent(long projectId, Map<String, String> eventData, boolean cancelling, long delay) {
+    Date now = new Date();
+    DeadLetterEvent deadLetterEvent = new DeadLetterEvent(0,
+                                                          projectId,
+                                                          eventData,
+                                                          cancelling,
+                                                          RATE_LIMITED_REASON,
+                                                          0,
+                                                          new Date(now.getTime() + delay),
+                                                          DeadLetterStatus.DEFERRED,
+                                                          now);
+    deadLetterStorage.saveDeadLetter(deadLetterEvent);
+  }
+
+  /**
+   * Claims the due dead letters and broadcasts them again, inside a container
+   * request so that gamification listeners and dead letters updates run in a
+   * transaction.
+   */
+  @ContainerTransactional
+  @Scheduled(initialDelayString = "${gamification.crowdin.deadLetter.retryInterval:60000}", fixedDelayString = "${gamification.crowdin.deadLetter.retryInterval:60000}")
+  public void retryDeadLetters() {
+    List<DeadLetterEvent> deadLetters;
+    do {
+      deadLetters = deadLetterStorage.claimDueDeadLetters(batchSize, leaseTimeout);
+      prepareDirectories(deadLetters);
+      deadLetters.forEach(this::retryDeadLetter);
+    } while (deadLetters.size() >= batchSize);
+  }
+
+  public List<DeadLetterEvent> getDeadLetters(long projectId,
+                                              String username,
+                                              int offset,
+                                              int limit) throws IllegalAccessException {
+    checkAccess(username);
+    return deadLetterStorage.getDeadLetters(projectId, offset, limit);
+  }
+
+  /**
+   * Schedules an immediate retry of all dead letters of a project, including
+   * parked ones, with a reset attempts count
+   *
+   * @param projectId Crowdin project id
+   * @param username user requesting the retry
+   * @return number of dead letters scheduled for retry
+   * @throws IllegalAccessException when the user isn't a rewarding manager
+   */
+  public int retryDeadLetters(long projectId, String username) throws IllegalAccessException {
+    checkAccess(username);
+    List<DeadLetterEvent> deadLetters = deadLetterStorage.getDeadLetters(projectId);
+    Date now = new Date();
+    deadLetters.forEach(deadLetter -> {
+      deadLetter.setAttempts(0);
+      deadLetter.setStatus(DeadLetterStatus.PENDING);
+      deadLetter.setNextRetryDate(now);
+      deadLetterStorage.saveDeadLetter(deadLetter);
+    });
+    return deadLetters.size();
+  }
+
+  public long purgeDeadLetters(long projectId, String username) throws IllegalAccessException {
+    checkAccess(username);
+    return deadLetterStorage.deleteDeadLetters(projectId);
+  }
+
+  /**
+   * Loads the directories of the claimed events, which may have been received
+   * by another node or before a restart, so that their rules are then matched
+   * against the whole directory tree from memory.
+   */
+  private void prepareDirectories(List<DeadLetterEvent> deadLetters) {
+    Map<Long, Set<String>> projectDirectories = new HashMap<>();
+    for (DeadLetterEvent deadLetter : deadLetters) {
+      String eventDetails = deadLetter.getEventData() == null ? null : deadLetter.getEventData().get("eventDetails");
+      if (StringUtils.isBlank(eventDetails)) {
+        continue;
+      }
+      try {
+        String directoryId = parseEventDetails(eventDetails).directoryId();
+        if (directoryId != null) {
+          projectDirectories.computeIfAbsent(deadLetter.getProjectId(), key -> new HashSet<>()).add(directoryId);
+        }
+      } catch (RuntimeException e) {
+        LOG.debug("Cannot decode the details of Crowdin dead letter {}", deadLetter.getId(), e);
+      }
+    }
+    projectDirectories.forEach(directoryTreeService::refreshDirectories);
+  }
+
+  private void retryDeadLetter(DeadLetterEvent deadLetter) {
+    try {
+      broadcast(deadLetter.getEventData(), deadLetter.isCancelling());
+      deadLetterStorage.deleteDeadLetter(deadLetter.getId());
+      if (deadLetter.getStatus() != DeadLetterStatus.DEFERRED) {
+        crowdinMetricsService.increment(DEAD_LETTER_RETRIED_METRIC);
+      }
+    } catch (Exception e) {
+      if (deadLetter.getStatus() == DeadLetterStatus.DEFERRED) {
+        // The deferred broadcast failed, it becomes a dead letter
+        deadLetter.setStatus(DeadLetterStatus.PENDING);
+        crowdinMetricsService.increment(DEAD_LETTER_ADDED_METRIC);
+      }
+      int attempts = deadLetter.getAttempts() + 1;
+      deadLetter.setAttempts(attempts);
+      deadLetter.setFailureReason(getFailureReason(e));
+      if (attempts >= maxAttempts) {
+        deadLetter.setStatus(DeadLetterStatus.PARKED);
+        crowdinMetricsService.increment(DEAD_LETTER_PARKED_METRIC);
+        LOG.warn("Crowdin event of project {} parked after {} failed attempts", deadLetter.getProjectId(), attempts, e);
+      } else {
+        deadLetter.setNextRetryDate(new Date(System.currentTimeMillis() + getRetryDelay(attempts)));
+        LOG.debug("Crowdin event retry {} of project {} failed", attempts, deadLetter.getProjectId(), e);
+      }
+      deadLetterStorage.saveDeadLetter(deadLetter);
+    }
+  }
+
+  /**
+   * @param attempts number of failed attempts
+   * @return exponential retry delay, capped by the maximum delay, with a random
+   *         jitter of up to half of the delay so that events failed together
+   *         aren't retried together
+   */
+  private long getRetryDelay(int attempts) {
+    long delay = Math.min(maxDelay, baseDelay << Math.min(attempts - 1, 30));
+    long halfDelay = Math.max(1, delay / 2);
+    return halfDelay + ThreadLocalRandom.current().nextLong(halfDelay);
+  }
+
+  private String getFailureReason(Exception error) {
+    return StringUtils.abbreviate(error.getClass().getName() + ": " + error.getMessage(), MAX_FAILURE_REASON_SIZE);
+  }
+
+  private void checkAccess(String username) throws IllegalAccessException {
+    if (!Utils.isRewardingManager(username)) {
+      throw new IllegalAccessException("The user is not authorized to manage Crowdin dead letters");
+    }
+  }
+}
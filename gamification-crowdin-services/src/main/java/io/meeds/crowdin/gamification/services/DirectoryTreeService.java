@@ -0,0 +1,175 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.crowdin.gamification.model.DirectoryTree;
+import io.meeds.crowdin.gamification.model.RemoteDirectory;
+import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.storage.CrowdinConsumerStorage;
+import io.meeds.crowdin.gamification.storage.WebHookStorage;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the directory tree of each Crowdin project receiving events, so that
+ * rules on a directory also match the strings of its subdirectories. A tree is
+ * loaded before its project events are processed, completed with the
+ * directories that events reference and that aren't known yet, and fully
+ * reloaded periodically to take moved and deleted directories into account.
+ * Directories that can't be retrieved aren't requested again for a short
+ * while, so that events of a deleted directory don't cost remote calls each.
+ */
+@Service
+public class DirectoryTreeService {
+
+  private static final Log                 LOG               = ExoLogger.getLogger(DirectoryTreeService.class);
+
+  private final Map<String, DirectoryTree> trees             = new ConcurrentHashMap<>();
+
+  private final Map<String, Long>          missedDirectories = new ConcurrentHashMap<>();
+
+  @Autowired
+  private WebHookStorage                   webHookStorage;
+
+  @Autowired
+  private CrowdinConsumerStorage           crowdinConsumerStorage;
+
+  @Value("${gamification.crowdin.directoryTree.pageSize:500}")
+  private int                              pageSize;
+
+  @Value("${gamification.crowdin.directoryTree.missTtl:300000}")
+  private long                             missTtl;
+
+  /**
+   * @param projectId Crowdin project id
+   * @return the directory tree of the project, or null if not loaded
+   */
+  public DirectoryTree getDirectoryTree(String projectId) {
+    return projectId == null ? null : trees.get(projectId);
+  }
+
+  /**
+   * Makes sure that the tree of a project knows the given directories and all
+   * their ancestors, by loading the whole tree the first time, then by
+   * retrieving only the unknown directories. Directories missed recently are
+   * skipped.
+   *
+   * @param projectId Crowdin project id
+   * @param directoryIds ids of the directories referenced by received events
+   */
+  public void refreshDirectories(long projectId, Collection<String> directoryIds) {
+    DirectoryTree directoryTree = trees.get(String.valueOf(projectId));
+    List<String> unknownIds = directoryIds.stream()
+                                          .filter(NumberUtils::isDigits)
+                                          .filter(directoryId -> directoryTree == null || !directoryTree.contains(directoryId))
+                                          .filter(directoryId -> !isMissed(projectId, directoryId))
+                                          .distinct()
+                                          .toList();
+    if (unknownIds.isEmpty()) {
+      return;
+    }
+    WebHook webHook = webHookStorage.getWebhookByProjectId(projectId);
+    if (webHook != null) {
+      try {
+        if (directoryTree == null) {
+          loadDirectoryTree(projectId, webHook.getToken());
+        } else {
+          directoryTree.addDirectories(retrieveDirectories(projectId, unknownIds, directoryTree, webHook.getToken()));
+        }
+      } catch (Exception e) {
+        LOG.warn("Error while retrieving the directories of Crowdin project {}", projectId, e);
+      }
+    }
+    DirectoryTree refreshedTree = trees.get(String.valueOf(projectId));
+    long expiry = System.currentTimeMillis() + missTtl;
+    unknownIds.stream()
+              .filter(directoryId -> refreshedTree == null || !refreshedTree.contains(directoryId))
+              .forEach(directoryId -> missedDirectories.put(getMissKey(projectId, directoryId), expiry));
+  }
+
+  @Scheduled(initialDelayString = "${gamification.crowdin.directoryTree.refreshInterval:3600000}", fixedDelayString = "${gamification.crowdin.directoryTree.refreshInterval:3600000}")
+  public void reloadDirectoryTrees() {
+    long now = System.currentTimeMillis();
+    missedDirectories.values().removeIf(expiry -> expiry <= now);
+    trees.keySet().forEach(projectId -> {
+      WebHook webHook = webHookStorage.getWebhookByProjectId(Long.parseLong(projectId));
+      if (webHook == null) {
+        trees.remove(projectId);
+        return;
+      }
+      try {
+        loadDirectoryTree(webHook.getProjectId(), webHook.getToken());
+      } catch (Exception e) {
+        LOG.warn("Error while reloading the directories of Crowdin project {}", projectId, e);
+      }
+    });
+  }
+
+  private boolean isMissed(long projectId, String directoryId) {
+    Long expiry = missedDirectories.get(getMissKey(projectId, directoryId));
+    return expiry != null && expiry > System.currentTimeMillis();
+  }
+
+  private String getMissKey(long projectId, String directoryId) {
+    return projectId + ":" + directoryId;
+  }
+
+  private void loadDirectoryTree(long projectId, String accessToken) throws IllegalAccessException {
+    List<RemoteDirectory> directories = new ArrayList<>();
+    List<RemoteDirectory> page;
+    do {
+      page = crowdinConsumerStorage.getProjectDirectories(projectId, directories.size(), pageSize, accessToken);
+      directories.addAll(page);
+    } while (page.size() == pageSize);
+    trees.put(String.valueOf(projectId), new DirectoryTree(directories));
+    LOG.debug("Loaded {} directories of Crowdin project {}", directories.size(), projectId);
+  }
+
+  private Collection<RemoteDirectory> retrieveDirectories(long projectId,
+                                                          List<String> directoryIds,
+                                                          DirectoryTree directoryTree,
+                                                          String accessToken) throws IllegalAccessException {
+    Map<Long, RemoteDirectory> retrievedDirectories = new HashMap<>();
+    for (String directoryId : directoryIds) {
+      Long currentId = Long.valueOf(directoryId);
+      while (currentId != null && !retrievedDirectories.containsKey(currentId)
+          && !directoryTree.contains(String.valueOf(currentId))) {
+        RemoteDirectory directory = crowdinConsumerStorage.getProjectDirectory(projectId, currentId, accessToken);
+        if (directory == null) {
+          break;
+        }
+        retrievedDirectories.put(currentId, directory);
+        currentId = directory.getParentId();
+      }
+    }
+    return retrievedDirectories.values();
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.crowdin.gamification.storage.RateLimitStorage;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.APPROVE_SUGGESTION_EVENT_NAME;
+import static io.meeds.crowdin.gamification.utils.Utils.SUGGESTION_APPROVED_EVENT_NAME;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the rate of the gamification events earned by a user for a trigger
+ * in a Crowdin project, with a token bucket holding up to {@code capacity}
+ * events and refilled with {@code ratePerMinute} events per minute. The bucket
+ * is computed as a generic cell rate algorithm: its whole state is the
+ * theoretical arrival time of the next event, updated by compare-and-set, so
+ * that it's lock free in memory ({@code local} mode) and consistent across
+ * the cluster nodes when stored in database ({@code cluster} mode). The limit
+ * is disabled by default and, once enabled, defers the events exceeding it
+ * unless the {@code drop} overflow mode is configured. Approval events are
+ * never limited, since they're granted by a proofreader decision rather than
+ * repeated by the earner.
+ */
+@Service
+public class EventRateLimiter {
+
+  public static final long              REJECTED             = -1;
+
+  private static final Log              LOG                  = ExoLogger.getLogger(EventRateLimiter.class);
+
+  private static final String           DISABLED_MODE        = "disabled";
+
+  private static final String           CLUSTER_MODE         = "cluster";
+
+  private static final String           DEFER_OVERFLOW       = "defer";
+
+  private static final int              MAX_CLUSTER_ATTEMPTS = 5;
+
+  private static final Set<String>      UNLIMITED_EVENTS     = Set.of(APPROVE_SUGGESTION_EVENT_NAME,
+                                                                      SUGGESTION_APPROVED_EVENT_NAME);
+
+  private final Map<String, AtomicLong> buckets              = new ConcurrentHashMap<>();
+
+  @Autowired
+  private RateLimitStorage              rateLimitStorage;
+
+  @Value("${gamification.crowdin.rateLimit.mode:disabled}")
+  private String                        mode;
+
+  @Value("${gamification.crowdin.rateLimit.capacity:100}")
+  private int                           capacity;
+
+  @Value("${gamification.crowdin.rateLimit.ratePerMinute:60}")
+  private int                           ratePerMinute;
+
+  @Value("${gamification.crowdin.rateLimit.overflow:defer}")
+  private String                        overflow;
+
+  @Value("${gamification.crowdin.rateLimit.maxDeferral:3600000}")
+  private long                          maxDeferral;
+
+  /**
+   * Consumes a token from the bucket of a user, unless the event is an
+   * approval one. When the bucket is empty, the event is either allowed later,
+   * in {@code defer} overflow mode, by reserving the next token as long as it's
+   * available before the maximum deferral delay, or dropped.
+   *
+   * @param username Meeds username or identity id of the user earning the event
+   * @param trigger gamification event name
+   * @param projectId Crowdin project id
+   * @return 0 when the event is allowed now, the delay in milliseconds after
+   *         which the deferred event is allowed, or {@link #REJECTED} when the
+   *         event is dropped
+   */
+  public long acquire(String username, String trigger, String projectId) {
+    if (DISABLED_MODE.equals(mode) || capacity <= 0 || ratePerMinute <= 0 || UNLIMITED_EVENTS.contains(trigger)) {
+      return 0;
+    }
+    String bucketKey = trigger + ":" + projectId + ":" + username;
+    long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    return CLUSTER_MODE.equals(mode) ? acquireSharedToken(bucketKey, now) : acquireLocalToken(bucketKey, now);
+  }
+
+  /**
+   * Removes the buckets that are full again, which behave as missing ones
+   */
+  @Scheduled(initialDelayString = "${gamification.crowdin.rateLimit.cleanupInterval:600000}", fixedDelayString = "${gamification.crowdin.rateLimit.cleanupInterval:600000}")
+  public void cleanupBuckets() {
+    long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    // A token consumed concurrently on a removed bucket is lost, which only
+    // allows one more event
+    buckets.values().removeIf(bucket -> bucket.get() <= now);
+    if (CLUSTER_MODE.equals(mode)) {
+      long deletedBuckets = rateLimitStorage.deleteBucketsBefore(now);
+      LOG.debug("{} full rate limit buckets deleted", deletedBuckets);
+    }
+  }
+
+  private long acquireLocalToken(String bucketKey, long now) {
+    AtomicLong bucket = buckets.computeIfAbsent(bucketKey, key -> new AtomicLong(now));
+    while (true) {
+      long theoreticalArrival = bucket.get();
+      long delay = getDelay(theoreticalArrival, now);
+      if (isRejected(delay)) {
+        return REJECTED;
+      } else if (bucket.compareAndSet(theoreticalArrival, getNextArrival(theoreticalArrival, now))) {
+        return toMillis(delay);
+      }
+    }
+  }
+
+  private long acquireSharedToken(String bucketKey, long now) {
+    for (int i = 0; i < MAX_CLUSTER_ATTEMPTS; i++) {
+      long theoreticalArrival = rateLimitStorage.getTheoreticalArrival(bucketKey);
+      long delay = getDelay(theoreticalArrival, now);
+      if (isRejected(delay)) {
+        return REJECTED;
+      } else if (rateLimitStorage.compareAndSet(bucketKey, theoreticalArrival, getNextArrival(theoreticalArrival, now))) {
+        return toMillis(delay);
+      }
+    }
+    LOG.debug("Rate limit bucket {} is updated concurrently, allowing the event", bucketKey);
+    return 0;
+  }
+
+  /**
+   * @return the delay, in microseconds, before the next token of the bucket is
+   *         available. The bucket tolerates {@code capacity - 1} events ahead
+   *         of the refill rate
+   */
+  private long getDelay(long theoreticalArrival, long now) {
+    long tolerance = (capacity - 1) * getEmissionInterval();
+    return Math.max(0, Math.max(theoreticalArrival, now) - tolerance - now);
+  }
+
+  private long getNextArrival(long theoreticalArrival, long now) {
+    return Math.max(theoreticalArrival, now) + getEmissionInterval();
+  }
+
+  private long getEmissionInterval() {
+    return TimeUnit.MINUTES.toMicros(1) / ratePerMinute;
+  }
+
+  private boolean isRejected(long delay) {
+    return delay > 0 && (!DEFER_OVERFLOW.equals(overflow) || delay > TimeUnit.MILLISECONDS.toMicros(maxDeferral));
+  }
+
+  private long toMillis(long delay) {
+    return (delay + 999) / 1000;
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import static io.meeds.crowdin.gamification.utils.Utils.DISPATCHER_QUEUE_DEPTH_METRIC;
+import static io.meeds.crowdin.gamification.utils.Utils.withContainerRequest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches Crowdin events so that events sharing the same partition key are
+ * processed in dispatch order, while events with different keys are processed
+ * in parallel. Two execution modes are available:
+ * <ul>
+ * <li><b>platform</b> (default): events run on a fixed number of single
+ * threaded lanes, a partition always going to the same lane.</li>
+ * <li><b>virtual</b>: each event runs on its own virtual thread, chained after
+ * the previous event of its partition, with a maximum number of events
+ * processed concurrently to protect the database and identity stores.</li>
+ * </ul>
+ * In both modes, each event runs inside its own request of the container of
+ * the dispatching thread, so that it has its own JPA transaction.
+ */
+@Component
+public class PartitionedEventDispatcher {
+
+  public static final String                         VIRTUAL_EXECUTION_MODE = "virtual";
+
+  private final Map<String, CompletableFuture<Void>> partitionTails         = new ConcurrentHashMap<>();
+
+  private final AtomicInteger                        pendingEvents          = new AtomicInteger();
+
+  @Autowired
+  private CrowdinMetricsService                      crowdinMetricsService;
+
+  @Value("${gamification.crowdin.webhook.dispatcher.lanes:4}")
+  private int                                        lanesCount;
+
+  @Value("${gamification.crowdin.webhook.executionMode:platform}")
+  private String                                     executionMode;
+
+  @Value("${gamification.crowdin.webhook.virtual.maxConcurrency:50}")
+  private int                                        maxConcurrency;
+
+  private ThreadPoolExecutor[]                       lanes;
+
+  private ExecutorService                            virtualExecutor;
+
+  private Semaphore                                  concurrencyLimit;
+
+  @PostConstruct
+  public void init() {
+    if (isVirtualMode()) {
+      virtualExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("crowdin-virtual-", 0).factory());
+      concurrencyLimit = new Semaphore(Math.max(1, maxConcurrency));
+    } else {
+      lanes = new ThreadPoolExecutor[Math.max(1, lanesCount)];
+      for (int i = 0; i < lanes.length; i++) {
+        lanes[i] = new ThreadPoolExecutor(1,
+                                          1,
+                                          0L,
+                                          TimeUnit.MILLISECONDS,
+                                          new LinkedBlockingQueue<>(),
+                                          new CustomizableThreadFactory("crowdin-lane-" + i + "-"));
+      }
+    }
+    crowdinMetricsService.registerGauge(DISPATCHER_QUEUE_DEPTH_METRIC, this::getQueueDepth);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (virtualExecutor != null) {
+      virtualExecutor.shutdown();
+    }
+    if (lanes != null) {
+      Arrays.stream(lanes).forEach(ThreadPoolExecutor::shutdown);
+    }
+  }
+
+  /**
+   * @param partitionKey key of the partition, events with the same key are
+   *          processed sequentially in dispatch order
+   * @param task event processing task
+   * @return a future completed when the task has been executed
+   */
+  public CompletableFuture<Void> dispatch(String partitionKey, Runnable task) {
+    Runnable containerTask = withContainerRequest(task);
+    if (isVirtualMode()) {
+      return dispatchOnVirtualThread(partitionKey, containerTask);
+    } else {
+      return CompletableFuture.runAsync(containerTask, lanes[getLane(partitionKey)]);
+    }
+  }
+
+  /**
+   * @param partitionKey key of the partition
+   * @return the index of the lane processing the partition
+   * @throws IllegalStateException in virtual mode, which doesn't use lanes
+   */
+  public int getLane(String partitionKey) {
+    if (isVirtualMode()) {
+      throw new IllegalStateException("Crowdin events aren't dispatched on lanes in virtual execution mode");
+    }
+    return Math.floorMod(Objects.hashCode(partitionKey), lanes.length);
+  }
+
+  public boolean isVirtualMode() {
+    return VIRTUAL_EXECUTION_MODE.equals(executionMode);
+  }
+
+  public int getQueueDepth() {
+    if (isVirtualMode()) {
+      return pendingEvents.get();
+    } else {
+      return Arrays.stream(lanes).mapToInt(lane -> lane.getQueue().size()).sum();
+    }
+  }
+
+  private CompletableFuture<Void> dispatchOnVirtualThread(String partitionKey, Runnable task) {
+    pendingEvents.incrementAndGet();
+    CompletableFuture<Void> future = partitionTails.compute(partitionKey, (key, tail) -> {
+      CompletableFuture<Void> previous = tail == null ? CompletableFuture.completedFuture(null) : tail.exceptionally(e -> null);
+      return previous.thenRunAsync(() -> runWithConcurrencyLimit(task), virtualExecutor);
+    });
+    future.whenComplete((result, error) -> {
+      pendingEvents.decrementAndGet();
+      partitionTails.remove(partitionKey, future);
+    });
+    return future;
+  }
+
+  private void runWithConcurrencyLimit(Runnable task) {
+    try {
+      concurrencyLimit.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting to process Crowdin event", e);
+    }
+    try {
+      task.run();
+    } finally {
+      concurrencyLimit.release();
+    }
+  }
+}
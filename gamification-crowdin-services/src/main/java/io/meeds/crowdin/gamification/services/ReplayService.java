@@ -0,0 +1,242 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.crowdin.gamification.model.ReplayJob;
+import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.model.WebhookArchive;
+import io.meeds.crowdin.gamification.storage.WebHookStorage;
+import io.meeds.crowdin.gamification.storage.WebhookArchiveStorage;
+import io.meeds.gamification.utils.Utils;
+import org.exoplatform.commons.exception.ObjectNotFoundException;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Replays archived Crowdin webhook batches of a project through the trigger
+ * pipeline, for example after a rule fix or an outage. Replays run one at a
+ * time in background, throttled to a maximum number of events per second, and
+ * report their progress through a cursor that allows to resume an interrupted
+ * replay.
+ */
+@Service
+public class ReplayService {
+
+  private static final Log             LOG            = ExoLogger.getLogger(ReplayService.class);
+
+  private static final long            FINISHED_JOBS_RETENTION = 86400000L;
+
+  private final Map<Long, ReplayJob>   replayJobs     = new ConcurrentHashMap<>();
+
+  private final AtomicLong             replayJobIds   = new AtomicLong();
+
+  private final ExecutorService        replayExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("crowdin-replay-"));
+
+  @Autowired
+  private CrowdinTriggerService        crowdinTriggerService;
+
+  @Autowired
+  private WebHookStorage               webHookStorage;
+
+  @Autowired
+  private WebhookArchiveStorage        webhookArchiveStorage;
+
+  @Value("${gamification.crowdin.webhook.archive.retention:604800000}")
+  private long                         archiveRetention;
+
+  @Value("${gamification.crowdin.webhook.dedup.ttl:604800000}")
+  private long                         dedupTtl;
+
+  @Value("${gamification.crowdin.replay.maxEventsPerSecond:20}")
+  private int                          maxEventsPerSecond;
+
+  @Value("${gamification.crowdin.replay.batchSize:10}")
+  private int                          batchSize;
+
+  @PreDestroy
+  public void destroy() {
+    replayExecutor.shutdownNow();
+  }
+
+  /**
+   * Starts replaying the archived webhook batches of a project received in a
+   * time range
+   *
+   * @param projectId Crowdin project id
+   * @param from range start date
+   * @param to range end date
+   * @param cursor cursor of an interrupted replay to resume, 0 to start from
+   *          the range start
+   * @param username user starting the replay
+   * @return the started {@link ReplayJob}
+   * @throws IllegalAccessException when the user isn't a rewarding manager
+   * @throws ObjectNotFoundException when the project has no webhook
+   */
+  public ReplayJob startReplay(long projectId,
+                               Date from,
+                               Date to,
+                               long cursor,
+                               String username) throws IllegalAccessException, ObjectNotFoundException {
+    checkAccess(username);
+    if (from == null || to == null || from.after(to)) {
+      throw new IllegalArgumentException("Replay range is not valid");
+    }
+    if (from.getTime() < System.currentTimeMillis() - dedupTtl) {
+      throw new IllegalArgumentException("Replay range starts before the events idempotency retention");
+    }
+    WebHook webHook = webHookStorage.getWebhookByProjectId(projectId);
+    if (webHook == null) {
+      throw new ObjectNotFoundException("Crowdin hook for project id : " + projectId + " wasn't found");
+    }
+    synchronized (replayJobs) {
+      if (replayJobs.values()
+                    .stream()
+                    .anyMatch(job -> job.getProjectId() == projectId && job.getStatus() == ReplayJob.Status.RUNNING)) {
+        throw new IllegalStateException("A replay is already running for project " + projectId);
+      }
+      ReplayJob replayJob = new ReplayJob(replayJobIds.incrementAndGet(),
+                                          projectId,
+                                          from,
+                                          to,
+                                          username,
+                                          ReplayJob.Status.RUNNING,
+                                          Math.max(0, cursor),
+                                          0,
+                                          0,
+                                          new Date(),
+                                          null,
+                                          null);
+      replayJobs.put(replayJob.getId(), replayJob);
+      replayExecutor.execute(() -> replay(replayJob, webHook));
+      return replayJob.clone();
+    }
+  }
+
+  public ReplayJob getReplayJob(long jobId, String username) throws IllegalAccessException, ObjectNotFoundException {
+    checkAccess(username);
+    ReplayJob replayJob = replayJobs.get(jobId);
+    if (replayJob == null) {
+      throw new ObjectNotFoundException("Replay job with id : " + jobId + " wasn't found");
+    }
+    synchronized (replayJob) {
+      return replayJob.clone();
+    }
+  }
+
+  public ReplayJob cancelReplay(long jobId, String username) throws IllegalAccessException, ObjectNotFoundException {
+    checkAccess(username);
+    ReplayJob replayJob = replayJobs.get(jobId);
+    if (replayJob == null) {
+      throw new ObjectNotFoundException("Replay job with id : " + jobId + " wasn't found");
+    }
+    synchronized (replayJob) {
+      if (replayJob.getStatus() == ReplayJob.Status.RUNNING) {
+        replayJob.setStatus(ReplayJob.Status.CANCELLED);
+        replayJob.setEndDate(new Date());
+      }
+      return replayJob.clone();
+    }
+  }
+
+  @Scheduled(initialDelayString = "${gamification.crowdin.webhook.archive.purgeInterval:3600000}", fixedDelayString = "${gamification.crowdin.webhook.archive.purgeInterval:3600000}")
+  public void purgeArchives() {
+    if (archiveRetention > 0) {
+      long deleted = webhookArchiveStorage.deleteArchivesBefore(new Date(System.currentTimeMillis() - archiveRetention));
+      LOG.debug("{} expired Crowdin webhook archives purged", deleted);
+    }
+    long finishedJobsExpiry = System.currentTimeMillis() - FINISHED_JOBS_RETENTION;
+    replayJobs.values().removeIf(job -> job.getEndDate() != null && job.getEndDate().getTime() < finishedJobsExpiry);
+  }
+
+  private void replay(ReplayJob replayJob, WebHook webHook) {
+    Set<String> replayedObjects = ConcurrentHashMap.newKeySet();
+    try {
+      List<WebhookArchive> archives;
+      do {
+        archives = webhookArchiveStorage.getArchivedBatches(replayJob.getProjectId(),
+                                                            replayJob.getFrom(),
+                                                            replayJob.getTo(),
+                                                            replayJob.getCursor(),
+                                                            batchSize);
+        for (WebhookArchive archive : archives) {
+          if (replayJob.getStatus() != ReplayJob.Status.RUNNING) {
+            return;
+          }
+          long start = System.currentTimeMillis();
+          int eventsCount = crowdinTriggerService.replayBatch(webHook, archive.getPayload(), replayedObjects);
+          synchronized (replayJob) {
+            replayJob.setCursor(archive.getId());
+            replayJob.setReplayedBatches(replayJob.getReplayedBatches() + 1);
+            replayJob.setReplayedEvents(replayJob.getReplayedEvents() + eventsCount);
+          }
+          throttle(start, eventsCount);
+        }
+      } while (archives.size() >= batchSize);
+      complete(replayJob, ReplayJob.Status.COMPLETED, null);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      complete(replayJob, ReplayJob.Status.CANCELLED, null);
+    } catch (Exception e) {
+      LOG.error("Error while replaying Crowdin events of project {}", replayJob.getProjectId(), e);
+      complete(replayJob, ReplayJob.Status.FAILED, e.getMessage());
+    }
+  }
+
+  private void throttle(long start, int eventsCount) throws InterruptedException {
+    if (maxEventsPerSecond > 0) {
+      long minDuration = eventsCount * 1000L / maxEventsPerSecond;
+      long remaining = minDuration - (System.currentTimeMillis() - start);
+      if (remaining > 0) {
+        Thread.sleep(remaining);
+      }
+    }
+  }
+
+  private void complete(ReplayJob replayJob, ReplayJob.Status status, String error) {
+    synchronized (replayJob) {
+      if (replayJob.getStatus() == ReplayJob.Status.RUNNING) {
+        replayJob.setStatus(status);
+        replayJob.setError(error);
+        replayJob.setEndDate(new Date());
+      }
+    }
+  }
+
+  private void checkAccess(String username) throws IllegalAccessException {
+    if (!Utils.isRewardingManager(username)) {
+      throw new IllegalAccessException("The user is not authorized to replay Crowdin events");
+    }
+  }
+}
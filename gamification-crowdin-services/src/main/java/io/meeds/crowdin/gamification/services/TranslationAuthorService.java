@@ -0,0 +1,163 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.crowdin.gamification.model.WebhookEvent;
+import io.meeds.crowdin.gamification.storage.TranslationAuthorStorage;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps track of the authors of the translations suggested in Crowdin, so that
+ * approvals and deletions of a suggestion are credited to its author without
+ * querying the gamification realizations. The authors needed by a webhook
+ * batch are loaded in a single query before its events are processed, and
+ * kept in a bounded in-memory LRU since the author of a translation never
+ * changes. Unknown authors aren't cached, so that a translation stored later,
+ * possibly by another node, is found by the next lookup.
+ */
+@Service
+public class TranslationAuthorService {
+
+  private static final Set<String> AUTHOR_TRIGGERS = Set.of(SUGGESTION_APPROVED_TRIGGER,
+                                                            SUGGESTION_DISAPPROVED_TRIGGER,
+                                                            SUGGESTION_DELETED_TRIGGER);
+
+  @Autowired
+  private TranslationAuthorStorage translationAuthorStorage;
+
+  @Value("${gamification.crowdin.translationAuthors.cacheSize:10000}")
+  private int                      cacheSize;
+
+  private Map<Long, String>        authors;
+
+  @PostConstruct
+  public void init() {
+    authors = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 3179624409471937512L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+        return size() > cacheSize;
+      }
+    });
+  }
+
+  /**
+   * Loads, in a single query, the authors of the translations approved,
+   * disapproved or deleted by the events of a webhook batch
+   *
+   * @param webhookEvents events of a webhook batch
+   * @return the Crowdin usernames of the known authors of these translations
+   */
+  public Set<String> preloadAuthors(Collection<WebhookEvent> webhookEvents) {
+    List<Long> translationIds = webhookEvents.stream()
+                                             .filter(webhookEvent -> AUTHOR_TRIGGERS.contains(webhookEvent.event()))
+                                             .map(WebhookEvent::translation)
+                                             .map(this::getTranslationId)
+                                             .filter(Objects::nonNull)
+                                             .distinct()
+                                             .toList();
+    Set<String> translationAuthors = new HashSet<>();
+    List<Long> missingIds = new ArrayList<>();
+    translationIds.forEach(translationId -> {
+      String author = authors.get(translationId);
+      if (author == null) {
+        missingIds.add(translationId);
+      } else {
+        translationAuthors.add(author);
+      }
+    });
+    if (!missingIds.isEmpty()) {
+      Map<Long, String> storedAuthors = translationAuthorStorage.getAuthors(missingIds);
+      authors.putAll(storedAuthors);
+      translationAuthors.addAll(storedAuthors.values());
+    }
+    return translationAuthors;
+  }
+
+  /**
+   * @param translation suggested translation
+   * @return the Crowdin username of the translation author, or null when the
+   *         translation was suggested before authors were tracked
+   */
+  public String getAuthor(WebhookEvent.Translation translation) {
+    Long translationId = getTranslationId(translation);
+    if (translationId == null) {
+      return null;
+    }
+    String author = authors.get(translationId);
+    if (author == null) {
+      author = translationAuthorStorage.getAuthors(List.of(translationId)).get(translationId);
+      if (author != null) {
+        authors.put(translationId, author);
+      }
+    }
+    return author;
+  }
+
+  /**
+   * Records the author of a suggested translation
+   *
+   * @param translation suggested translation
+   */
+  public void addAuthor(WebhookEvent.Translation translation) {
+    Long translationId = getTranslationId(translation);
+    if (translationId == null || StringUtils.isBlank(translation.username())
+        || !NumberUtils.isDigits(translation.projectId())) {
+      return;
+    }
+    authors.put(translationId, translation.username());
+    translationAuthorStorage.saveAuthor(translationId, Long.parseLong(translation.projectId()), translation.username());
+  }
+
+  /**
+   * Forgets the author of a deleted translation
+   *
+   * @param translation deleted translation
+   */
+  public void removeAuthor(WebhookEvent.Translation translation) {
+    Long translationId = getTranslationId(translation);
+    if (translationId != null) {
+      authors.remove(translationId);
+      translationAuthorStorage.deleteAuthor(translationId);
+    }
+  }
+
+  private Long getTranslationId(WebhookEvent.Translation translation) {
+    return translation == null || !NumberUtils.isDigits(translation.id()) ? null : Long.valueOf(translation.id());
+  }
+}
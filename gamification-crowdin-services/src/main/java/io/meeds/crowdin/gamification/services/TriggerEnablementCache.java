@@ -0,0 +1,97 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.gamification.service.TriggerService;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.listener.Event;
+import org.exoplatform.services.listener.Listener;
+import org.exoplatform.services.listener.ListenerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static io.meeds.crowdin.gamification.utils.Utils.TRIGGER_CACHE_NAME;
+import static io.meeds.gamification.utils.Utils.POST_CREATE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_DELETE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_UPDATE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_UPDATE_TRIGGER_EVENT;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps a snapshot of the enablement of gamification triggers per Crowdin
+ * project. The snapshot is cleared, on all cluster nodes, each time a
+ * gamification rule is created, updated or deleted and each time a trigger is
+ * enabled or disabled for an account, while the cache entries expiration
+ * bounds the staleness of any other enablement change.
+ */
+@Component
+public class TriggerEnablementCache extends Listener<Object, Object> {
+
+  @Autowired
+  private CacheService              cacheService;
+
+  @Autowired
+  private TriggerService            triggerService;
+
+  @Autowired
+  private ListenerService           listenerService;
+
+  private ExoCache<String, Boolean> triggerCache;
+
+  @PostConstruct
+  public void init() {
+    listenerService.addListener(POST_CREATE_RULE_EVENT, this);
+    listenerService.addListener(POST_UPDATE_RULE_EVENT, this);
+    listenerService.addListener(POST_DELETE_RULE_EVENT, this);
+    listenerService.addListener(POST_UPDATE_TRIGGER_EVENT, this);
+  }
+
+  /**
+   * @param trigger gamification event name
+   * @param projectId Crowdin project id
+   * @return true if the trigger is enabled for the project
+   */
+  public boolean isTriggerEnabled(String trigger, long projectId) {
+    String key = trigger + ":" + projectId;
+    Boolean enabled = getTriggerCache().get(key);
+    if (enabled == null) {
+      enabled = triggerService.isTriggerEnabledForAccount(trigger, projectId);
+      getTriggerCache().put(key, enabled);
+    }
+    return enabled;
+  }
+
+  public void clear() {
+    getTriggerCache().clearCache();
+  }
+
+  @Override
+  public void onEvent(Event<Object, Object> event) {
+    clear();
+  }
+
+  private ExoCache<String, Boolean> getTriggerCache() {
+    if (triggerCache == null) {
+      triggerCache = cacheService.getCacheInstance(TRIGGER_CACHE_NAME);
+    }
+    return triggerCache;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.crowdin.gamification.storage.ProcessedEventStorage;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Keeps track of the Crowdin events already processed, so that events
+ * redelivered by Crowdin are dropped before any gamification work. Crowdin
+ * payloads don't identify a delivery, so an event is considered as redelivered
+ * only when it was processed within a short redelivery window and its
+ * counterpart wasn't processed since: an approval following a disapproval of
+ * the same translation, for instance, is a new state change and is processed.
+ * Processed events are stored in a persistent store shared by cluster nodes,
+ * whose entries expire after a configurable retention.
+ */
+@Component
+public class WebhookEventDeduplicator {
+
+  private static final Log      LOG = ExoLogger.getLogger(WebhookEventDeduplicator.class);
+
+  @Autowired
+  private ProcessedEventStorage processedEventStorage;
+
+  @Value("${gamification.crowdin.webhook.dedup.window:3600000}")
+  private long                  window;
+
+  @Value("${gamification.crowdin.webhook.dedup.ttl:604800000}")
+  private long                  ttl;
+
+  /**
+   * @param trigger Crowdin webhook event name
+   * @param projectId Crowdin project id
+   * @param objectId translation or comment id
+   * @return the idempotency key of the event
+   */
+  public static String getEventKey(String trigger, String projectId, String objectId) {
+    return trigger + ":" + projectId + ":" + objectId;
+  }
+
+  /**
+   * @param eventKey event idempotency key
+   * @param counterpartEventKey idempotency key of the counterpart event, can
+   *          be null
+   * @return true if the event is a redelivery of an event processed within the
+   *         redelivery window, with no counterpart event processed since
+   */
+  public boolean isDuplicate(String eventKey, String counterpartEventKey) {
+    Map<String, Date> processedDates = processedEventStorage.getProcessedDates(Stream.of(eventKey, counterpartEventKey)
+                                                                                     .filter(Objects::nonNull)
+                                                                                     .toList());
+    Date processedDate = processedDates.get(eventKey);
+    if (processedDate == null || System.currentTimeMillis() - processedDate.getTime() > window) {
+      return false;
+    }
+    Date counterpartDate = counterpartEventKey == null ? null : processedDates.get(counterpartEventKey);
+    return counterpartDate == null || counterpartDate.before(processedDate);
+  }
+
+  /**
+   * @param eventKey event idempotency key
+   * @param counterpartEventKey idempotency key of the counterpart event
+   * @return true if the event or its counterpart was processed during the
+   *         processed events retention, whatever the redelivery window
+   */
+  public boolean isProcessed(String eventKey, String counterpartEventKey) {
+    return !processedEventStorage.getProcessedDates(List.of(eventKey, counterpartEventKey)).isEmpty();
+  }
+
+  /**
+   * Marks an event as processed now
+   *
+   * @param eventKey event idempotency key
+   */
+  public void markProcessed(String eventKey) {
+    processedEventStorage.markProcessed(eventKey, new Date());
+  }
+
+  @Scheduled(initialDelayString = "${gamification.crowdin.webhook.dedup.purgeInterval:3600000}", fixedDelayString = "${gamification.crowdin.webhook.dedup.purgeInterval:3600000}")
+  public void purgeExpiredEvents() {
+    long deleted = processedEventStorage.deleteProcessedBefore(new Date(System.currentTimeMillis() - ttl));
+    LOG.debug("{} expired Crowdin processed events purged", deleted);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.services;
+
+import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.storage.WebHookStorage;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of the registered webhooks by their secret, used to
+ * authenticate received webhook batches without querying the database. The
+ * index is reloaded on local webhook changes, periodically to catch changes
+ * made by other cluster nodes and on an unknown secret, at most once per
+ * minimum reload interval so that forged requests can't flood the database.
+ */
+@Component
+public class WebhookSecretIndex {
+
+  @Autowired
+  private WebHookStorage                webHookStorage;
+
+  @Value("${gamification.crowdin.webhook.secretIndex.refreshInterval:300000}")
+  private long                          refreshInterval;
+
+  @Value("${gamification.crowdin.webhook.secretIndex.minReloadInterval:5000}")
+  private long                          minReloadInterval;
+
+  private volatile Map<String, WebHook> webhooksBySecret;
+
+  private volatile long                 loadedTime;
+
+  /**
+   * @param secret webhook secret sent by Crowdin
+   * @return the registered {@link WebHook} using the secret, else null
+   */
+  public WebHook getWebhookBySecret(String secret) {
+    if (StringUtils.isBlank(secret)) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    Map<String, WebHook> index = webhooksBySecret;
+    if (index == null || now - loadedTime > refreshInterval) {
+      index = reload(now);
+    }
+    WebHook webHook = index.get(secret);
+    if (webHook == null && now - loadedTime > minReloadInterval) {
+      webHook = reload(now).get(secret);
+    }
+    return webHook;
+  }
+
+  /**
+   * Invalidates the index so that it's reloaded on next lookup
+   */
+  public void invalidate() {
+    webhooksBySecret = null;
+  }
+
+  private synchronized Map<String, WebHook> reload(long now) {
+    Map<String, WebHook> index = webhooksBySecret;
+    if (index != null && loadedTime >= now) {
+      // Already reloaded by a concurrent lookup
+      return index;
+    }
+    index = Collections.unmodifiableMap(webHookStorage.getWebhooks(0, -1)
+                                                      .stream()
+                                                      .filter(webHook -> StringUtils.isNotBlank(webHook.getSecret()))
+                                                      .collect(Collectors.toMap(WebHook::getSecret,
+                                                                                Function.identity(),
+                                                                                (first, second) -> first)));
+    loadedTime = System.currentTimeMillis();
+    webhooksBySecret = index;
+    return index;
+  }
+}
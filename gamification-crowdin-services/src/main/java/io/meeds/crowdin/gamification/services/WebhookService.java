@@ -44,6 +44,9 @@ public class WebhookService {
   @Autowired
   private WebHookStorage         webHookStorage;
 
+  @Autowired
+  private WebhookSecretIndex     webhookSecretIndex;
+
   public List<RemoteProject> getProjectsFromWebhookId(long webHookId) throws IllegalAccessException, ObjectNotFoundException {
     WebHook webHook = webHookStorage.getWebHookById(webHookId);
     if (webHook == null) {
@@ -74,7 +77,9 @@ public class WebhookService {
     if (webHook != null) {
       webHook.setProjectName(projectName);
       webHook.setWatchedBy(currentUser);
-      return webHookStorage.saveWebHook(webHook);
+      WebHook savedWebHook = webHookStorage.saveWebHook(webHook);
+      webhookSecretIndex.invalidate();
+      return savedWebHook;
     }
     return null;
   }
@@ -92,6 +97,7 @@ public class WebhookService {
       throw new ObjectNotFoundException("webhook with id : " + webHookId + NOT_FOUND);
     }
     webHookStorage.updateWebHookAccessToken(webHookId, encode(accessToken));
+    webhookSecretIndex.invalidate();
   }
 
   public List<WebHook> getWebhooks(String currentUser, int offset, int limit, boolean forceUpdate) throws IllegalAccessException {
@@ -117,7 +123,9 @@ public class WebhookService {
   }
 
   public WebHook deleteWebhook(long projectId) {
-    return webHookStorage.deleteWebHook(projectId);
+    WebHook webHook = webHookStorage.deleteWebHook(projectId);
+    webhookSecretIndex.invalidate();
+    return webHook;
   }
 
   public List<WebHook> getWebhooks(int offset, int limit, boolean forceUpdate) {
@@ -0,0 +1,206 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import io.meeds.crowdin.gamification.exception.CrowdinRateLimitException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles the requests sent to Crowdin API with a token bucket per access
+ * token. The buckets are refilled at a configured rate, and adjusted with the
+ * rate limit headers and the Retry-After delays sent by Crowdin. Each caller
+ * reserves the next available permit, so that callers of the same access
+ * token are served in their arrival order without holding a thread while
+ * waiting, and give up with a {@link CrowdinRateLimitException} when they
+ * would wait more than the allowed delay. When Crowdin suspends the requests
+ * of an access token, the reservations made before the suspension are
+ * invalidated, so that callers already waiting reserve a new permit instead
+ * of sending their request within the suspension.
+ */
+public class CrowdinApiRateLimiter {
+
+  private final int                      capacity;
+
+  private final double                   permitsPerMillisecond;
+
+  private final long                     maxWait;
+
+  private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+  /**
+   * @param capacity maximum number of requests sent in a burst with an access
+   *          token
+   * @param ratePerSecond number of requests per second allowed with an access
+   *          token
+   * @param maxWait maximum delay, in milliseconds, a caller waits for a permit
+   */
+  public CrowdinApiRateLimiter(int capacity, double ratePerSecond, long maxWait) {
+    this.capacity = capacity;
+    this.permitsPerMillisecond = ratePerSecond / 1000d;
+    this.maxWait = maxWait;
+  }
+
+  /**
+   * Reserves a permit to send a request with the access token
+   *
+   * @param tokenKey hash of the access token
+   * @return the reservation, with the delay to wait before sending the request
+   * @throws CrowdinRateLimitException when no permit is available within the
+   *           allowed delay
+   */
+  public Reservation reserve(String tokenKey) {
+    return getBucket(tokenKey).reserve(System.currentTimeMillis());
+  }
+
+  /**
+   * @param tokenKey hash of the access token
+   * @param reservation a reservation of the access token, once its delay
+   *          elapsed
+   * @return true when the request can be sent, false when the requests of the
+   *         access token were suspended since the reservation, in which case
+   *         a new permit has to be reserved
+   */
+  public boolean isValid(String tokenKey, Reservation reservation) {
+    return getBucket(tokenKey).getGeneration() == reservation.generation();
+  }
+
+  /**
+   * Adjusts the permits of the access token with the rate limit headers sent
+   * by Crowdin
+   *
+   * @param tokenKey hash of the access token
+   * @param remaining remaining requests in the current window, null if unknown
+   * @param resetTime time, in milliseconds, when the window is reset, null if
+   *          unknown
+   */
+  public void update(String tokenKey, Integer remaining, Long resetTime) {
+    if (remaining == null) {
+      return;
+    }
+    TokenBucket bucket = getBucket(tokenKey);
+    if (remaining <= 0 && resetTime != null) {
+      bucket.suspend(resetTime);
+    } else {
+      bucket.limit(remaining);
+    }
+  }
+
+  /**
+   * Suspends the requests of the access token after Crowdin rejected one
+   *
+   * @param tokenKey hash of the access token
+   * @param delay delay, in milliseconds, before sending a new request
+   */
+  public void block(String tokenKey, long delay) {
+    getBucket(tokenKey).suspend(System.currentTimeMillis() + delay);
+  }
+
+  private TokenBucket getBucket(String tokenKey) {
+    return buckets.computeIfAbsent(tokenKey, key -> new TokenBucket(capacity, System.currentTimeMillis()));
+  }
+
+  private static long toSeconds(long delay) {
+    return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(delay + 999));
+  }
+
+  /**
+   * @param delay delay, in milliseconds, to wait before sending the request
+   * @param generation suspensions count of the access token when the permit
+   *          was reserved
+   */
+  public record Reservation(long delay, long generation) {
+  }
+
+  private class TokenBucket {
+
+    /**
+     * Available permits, negative when permits are already reserved by
+     * waiting callers
+     */
+    private double tokens;
+
+    private long   lastRefill;
+
+    private long   blockedUntil;
+
+    /**
+     * Incremented on each suspension, invalidating the pending reservations
+     */
+    private long   generation;
+
+    private TokenBucket(double tokens, long lastRefill) {
+      this.tokens = tokens;
+      this.lastRefill = lastRefill;
+    }
+
+    /**
+     * Reserves the next available permit
+     *
+     * @throws CrowdinRateLimitException when the delay before the next
+     *           available permit exceeds the allowed delay, in which case no
+     *           permit is reserved
+     */
+    private synchronized Reservation reserve(long now) {
+      refill(now);
+      long delay = Math.max(0, blockedUntil - now);
+      if (tokens < 1) {
+        delay += (long) Math.ceil((1 - tokens) / permitsPerMillisecond);
+      }
+      if (delay > maxWait) {
+        throw new CrowdinRateLimitException("Crowdin API rate limit exceeded", toSeconds(delay));
+      }
+      tokens--;
+      return new Reservation(delay, generation);
+    }
+
+    private synchronized long getGeneration() {
+      return generation;
+    }
+
+    private synchronized void limit(int remaining) {
+      refill(System.currentTimeMillis());
+      tokens = Math.min(tokens, remaining);
+    }
+
+    /**
+     * Suspends the requests until the given time, when a single request can be
+     * sent again. The pending reservations are dropped, their callers reserve
+     * new permits after the suspension.
+     */
+    private synchronized void suspend(long until) {
+      if (until <= blockedUntil) {
+        return;
+      }
+      refill(System.currentTimeMillis());
+      tokens = Math.min(Math.max(tokens, 0), 1);
+      blockedUntil = until;
+      generation++;
+    }
+
+    private void refill(long now) {
+      // No permit is earned while Crowdin suspends the requests
+      long refillStart = Math.max(lastRefill, Math.min(blockedUntil, now));
+      tokens = Math.min(capacity, tokens + (now - refillStart) * permitsPerMillisecond);
+      lastRefill = now;
+    }
+  }
+}
@@ -19,26 +19,13 @@
 package io.meeds.crowdin.gamification.storage;
 
 import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpDelete;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.conn.HttpClientConnectionManager;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.DefaultConnectionReuseStrategy;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.protocol.HTTP;
 import org.exoplatform.commons.utils.CommonsUtils;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 
 import io.meeds.crowdin.gamification.exception.CrowdinConnectionException;
+import io.meeds.crowdin.gamification.exception.CrowdinRateLimitException;
 import io.meeds.crowdin.gamification.model.RemoteDirectory;
 import io.meeds.crowdin.gamification.model.RemoteLanguage;
 import io.meeds.crowdin.gamification.model.RemoteProject;
@@ -46,6 +33,8 @@ import io.meeds.crowdin.gamification.model.WebHook;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.core.MediaType;
@@ -53,128 +42,207 @@ import javax.ws.rs.core.MediaType;
 import static io.meeds.crowdin.gamification.utils.Utils.*;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Consumes Crowdin API with a non-blocking HTTP client, negotiating HTTP/2 so
+ * that concurrent requests are multiplexed on a single connection. Each
+ * operation has an asynchronous variant returning a {@link CompletableFuture},
+ * the synchronous methods waiting for its result.
+ */
 @Component
 public class CrowdinConsumerStorage {
 
-  public static final String TOKEN_EXPIRED_OR_INVALID = "crowdin.tokenExpiredOrInvalid";
+  public static final String                           TOKEN_EXPIRED_OR_INVALID = "crowdin.tokenExpiredOrInvalid";
 
-  private HttpClient         client;
+  private static final int                             SC_TOO_MANY_REQUESTS     = 429;
 
-  private static final Log   LOG                      = ExoLogger.getLogger(CrowdinConsumerStorage.class);
+  private static final Log                             LOG                      = ExoLogger.getLogger(CrowdinConsumerStorage.class);
 
-  public List<RemoteProject> getProjects(String accessToken) throws IllegalAccessException {
-    try {
+  private HttpClient                                   client;
+
+  @Value("${gamification.crowdin.api.url:" + CROWDIN_API_URL + "}")
+  private String                                       apiUrl;
+
+  @Value("${gamification.crowdin.api.connectTimeout:10000}")
+  private long                                         connectTimeout;
+
+  @Value("${gamification.crowdin.api.requestTimeout:30000}")
+  private long                                         requestTimeout;
+
+  @Value("${gamification.crowdin.api.awaitTimeout:120000}")
+  private long                                         awaitTimeout;
+
+  @Value("${gamification.crowdin.api.validatorsCacheSize:1000}")
+  private int                                          validatorsCacheSize;
+
+  /**
+   * Last parsed response of each revalidated GET request, with its validators
+   */
+  private Map<String, ValidatedResponse<?>>            validatedResponses;
+
+  private final Map<String, CompletableFuture<Object>> inFlightRequests         = new ConcurrentHashMap<>();
+
+  @Value("${gamification.crowdin.api.rateLimit.capacity:20}")
+  private int                                          rateLimitCapacity;
+
+  @Value("${gamification.crowdin.api.rateLimit.ratePerSecond:10}")
+  private double                                       rateLimitPerSecond;
+
+  @Value("${gamification.crowdin.api.rateLimit.maxWait:30000}")
+  private long                                         rateLimitMaxWait;
+
+  @Value("${gamification.crowdin.api.rateLimit.maxRetries:3}")
+  private int                                          rateLimitMaxRetries;
 
-      URI uri = URI.create(CROWDIN_API_URL + PROJECTS + "?hasManagerAccess=1");
-      String response = processGet(uri, accessToken);
-      JSONArray jsonArray = new JSONObject(response).getJSONArray("data");
+  @Value("${gamification.crowdin.api.rateLimit.retryDelay:1000}")
+  private long                                         rateLimitRetryDelay;
 
-      List<RemoteProject> projects = new ArrayList<>();
+  private CrowdinApiRateLimiter                        rateLimiter;
 
-      // loop through the array and parse the projects
-      for (int i = 0; i < jsonArray.length(); i++) {
-        JSONObject jsonObjectData = jsonArray.getJSONObject(i);
-        JSONObject jsonObject = jsonObjectData.getJSONObject("data");
-        // parse the project
-        RemoteProject project = new RemoteProject();
-        project.setId(jsonObject.getInt("id"));
-        project.setName(jsonObject.getString("name"));
-        project.setIdentifier(jsonObject.getString("identifier"));
+  @PostConstruct
+  public void initClient() {
+    rateLimiter = new CrowdinApiRateLimiter(rateLimitCapacity, rateLimitPerSecond, rateLimitMaxWait);
+    validatedResponses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = -4526360146238937705L;
 
-        projects.add(project);
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ValidatedResponse<?>> eldest) {
+        return size() > validatorsCacheSize;
       }
-      return projects;
-    } catch (IllegalArgumentException e) {
-      throw new IllegalArgumentException(e);
-    } catch (CrowdinConnectionException e) {
-      throw new IllegalAccessException(TOKEN_EXPIRED_OR_INVALID);
+    });
+  }
+
+  public List<RemoteProject> getProjects(String accessToken) throws IllegalAccessException {
+    return await(getProjectsAsync(accessToken));
+  }
+
+  public CompletableFuture<List<RemoteProject>> getProjectsAsync(String accessToken) {
+    URI uri = URI.create(apiUrl + PROJECTS + "?hasManagerAccess=1");
+    return withAccessErrors(processGetAsync(uri, accessToken).thenApply(CrowdinConsumerStorage::getRemoteProjects));
+  }
+
+  private static List<RemoteProject> getRemoteProjects(String response) {
+    JSONArray jsonArray = new JSONObject(response).getJSONArray("data");
+
+    List<RemoteProject> projects = new ArrayList<>();
+
+    // loop through the array and parse the projects
+    for (int i = 0; i < jsonArray.length(); i++) {
+      JSONObject jsonObjectData = jsonArray.getJSONObject(i);
+      JSONObject jsonObject = jsonObjectData.getJSONObject("data");
+      // parse the project
+      RemoteProject project = new RemoteProject();
+      project.setId(jsonObject.getInt("id"));
+      project.setName(jsonObject.getString("name"));
+      project.setIdentifier(jsonObject.getString("identifier"));
+
+      projects.add(project);
     }
+    return projects;
   }
 
   public WebHook createWebhook(long projectId, String[] triggers, String accessToken) throws IllegalAccessException {
-    try {
-      URI uri = URI.create(CROWDIN_API_URL + PROJECTS + projectId + "/webhooks");
-      String secret = generateRandomSecret(8);
-      JSONArray events = new JSONArray();
-      Arrays.stream(triggers).forEach(events::put);
-
-      JSONObject requestJson = new JSONObject();
-      requestJson.put("name", "Meeds");
-      requestJson.put("url", CommonsUtils.getCurrentDomain() + "/gamification-crowdin/rest/crowdin/webhooks");
-      requestJson.put("events", events);
-      requestJson.put("requestType", "POST");
-      requestJson.put("isActive", true);
-      requestJson.put("batchingEnabled", true);
-      requestJson.put("contentType", "application/json");
-
-      JSONObject headers = new JSONObject();
-      headers.put("Authorization", "Bearer " + secret);
-      requestJson.put("headers", headers);
-
-      Map<String, Object> fileMap = new HashMap<>();
-      fileMap.put("id", "{{fileId}}");
-      fileMap.put("directoryId", "{{directoryId}}");
-
-      Map<String, Object> projectMap = new HashMap<>();
-      projectMap.put("id", "{{projectId}}");
-      projectMap.put("sourceLanguageId", "{{projectSourceLanguageId}}");
-      projectMap.put("identifier", "{{projectIdentifier}}");
-
-      Map<String, Object> stringMap = new HashMap<>();
-      stringMap.put("id", "{{stringId}}");
-      stringMap.put("text", "{{stringText}}");
-      stringMap.put("file", fileMap);
-      stringMap.put("project", projectMap);
-
-      Map<String, Object> userMap = new HashMap<>();
-      userMap.put("id", "{{userId}}");
-      userMap.put("username", "{{userUsername}}");
-      userMap.put("fullName", "{{userFullName}}");
-      userMap.put("avatarUrl", "{{userAvatarUrl}}");
-
-      Map<String, Object> languageMap = new HashMap<>();
-      languageMap.put("id", "{{targetLanguageId}}");
-
-      Map<String, Object> translationMap = new HashMap<>();
-      translationMap.put("id", "{{translationId}}");
-      translationMap.put("provider", "{{translationProvider}}");
-      translationMap.put("targetLanguage", languageMap);
-      translationMap.put("user", userMap);
-      translationMap.put("string", stringMap);
-
-      Map<String, Object> commentMap = new HashMap<>();
-      commentMap.put("id", "{{commentId}}");
-      commentMap.put("targetLanguage", languageMap);
-      commentMap.put("user", userMap);
-      commentMap.put("string", stringMap);
-
-      Map<String, Object> translationEventMap = new HashMap<>();
-      translationEventMap.put("event", "{{event}}");
-      translationEventMap.put("translation", translationMap);
-
-      Map<String, Object> commentEventMap = new HashMap<>();
-      commentEventMap.put("event", "{{event}}");
-      commentEventMap.put("comment", commentMap);
-
-      Map<String, Object> payload = new HashMap<>();
-
-      Arrays.stream(CROWDIN_EVENTS).forEach(event -> {
-        if (List.of(COMMENT_CREATED_TRIGGER, COMMENT_DELETED_TRIGGER).contains(event)) {
-          payload.put(event, commentEventMap);
-        } else {
-          payload.put(event, translationEventMap);
-        }
-      });
+    return await(createWebhookAsync(projectId, triggers, accessToken));
+  }
 
-      requestJson.put("payload", payload);
+  public CompletableFuture<WebHook> createWebhookAsync(long projectId, String[] triggers, String accessToken) {
+    URI uri = URI.create(apiUrl + PROJECTS + projectId + "/webhooks");
+    String secret = generateRandomSecret(8);
+    JSONArray events = new JSONArray();
+    Arrays.stream(triggers).forEach(events::put);
+
+    JSONObject requestJson = new JSONObject();
+    requestJson.put("name", "Meeds");
+    requestJson.put("url", CommonsUtils.getCurrentDomain() + "/gamification-crowdin/rest/crowdin/webhooks");
+    requestJson.put("events", events);
+    requestJson.put("requestType", "POST");
+    requestJson.put("isActive", true);
+    requestJson.put("batchingEnabled", true);
+    requestJson.put("contentType", "application/json");
+
+    JSONObject headers = new JSONObject();
+    headers.put("Authorization", "Bearer " + secret);
+    requestJson.put("headers", headers);
+
+    Map<String, Object> fileMap = new HashMap<>();
+    fileMap.put("id", "{{fileId}}");
+    fileMap.put("directoryId", "{{directoryId}}");
+
+    Map<String, Object> projectMap = new HashMap<>();
+    projectMap.put("id", "{{projectId}}");
+    projectMap.put("sourceLanguageId", "{{projectSourceLanguageId}}");
+    projectMap.put("identifier", "{{projectIdentifier}}");
+
+    Map<String, Object> stringMap = new HashMap<>();
+    stringMap.put("id", "{{stringId}}");
+    stringMap.put("text", "{{stringText}}");
+    stringMap.put("file", fileMap);
+    stringMap.put("project", projectMap);
+
+    Map<String, Object> userMap = new HashMap<>();
+    userMap.put("id", "{{userId}}");
+    userMap.put("username", "{{userUsername}}");
+    userMap.put("fullName", "{{userFullName}}");
+    userMap.put("avatarUrl", "{{userAvatarUrl}}");
+
+    Map<String, Object> languageMap = new HashMap<>();
+    languageMap.put("id", "{{targetLanguageId}}");
+
+    Map<String, Object> translationMap = new HashMap<>();
+    translationMap.put("id", "{{translationId}}");
+    translationMap.put("provider", "{{translationProvider}}");
+    translationMap.put("targetLanguage", languageMap);
+    translationMap.put("user", userMap);
+    translationMap.put("string", stringMap);
+
+    Map<String, Object> commentMap = new HashMap<>();
+    commentMap.put("id", "{{commentId}}");
+    commentMap.put("targetLanguage", languageMap);
+    commentMap.put("user", userMap);
+    commentMap.put("string", stringMap);
+
+    Map<String, Object> translationEventMap = new HashMap<>();
+    translationEventMap.put("event", "{{event}}");
+    translationEventMap.put("translation", translationMap);
+
+    Map<String, Object> commentEventMap = new HashMap<>();
+    commentEventMap.put("event", "{{event}}");
+    commentEventMap.put("comment", commentMap);
+
+    Map<String, Object> payload = new HashMap<>();
+
+    Arrays.stream(CROWDIN_EVENTS).forEach(event -> {
+      if (List.of(COMMENT_CREATED_TRIGGER, COMMENT_DELETED_TRIGGER).contains(event)) {
+        payload.put(event, commentEventMap);
+      } else {
+        payload.put(event, translationEventMap);
+      }
+    });
 
-      String response = processPost(uri, requestJson.toString(), accessToken);
+    requestJson.put("payload", payload);
 
+    return withAccessErrors(processPostAsync(uri, requestJson.toString(), accessToken).thenApply(response -> {
       JSONObject responseJson = new JSONObject(response);
 
       JSONObject dataJson = responseJson.getJSONObject("data");
@@ -186,130 +254,326 @@ public class CrowdinConsumerStorage {
       localWebHook.setToken(accessToken);
       localWebHook.setSecret(secret);
       return localWebHook;
+    })).whenComplete((webHook, error) -> {
+      if (error != null) {
+        LOG.error("Error while creating the webhook of Crowdin project {}", projectId, error);
+      }
+    });
+  }
 
-    } catch (IllegalArgumentException e) {
-      LOG.error(e);
-      throw new IllegalArgumentException(e);
-    } catch (CrowdinConnectionException e) {
-      LOG.error(e);
-      throw new IllegalAccessException(TOKEN_EXPIRED_OR_INVALID);
+  private CompletableFuture<String> processGetAsync(URI uri, String accessToken) {
+    HttpRequest request = newRequest(uri, accessToken).GET().build();
+    return processRequestAsync(request, accessToken);
+  }
+
+  /**
+   * Sends a GET request revalidating the last response retrieved for the same
+   * URI, variant and access token. Concurrent calls for the same request are
+   * coalesced: only the first one is sent to Crowdin, the others wait for its
+   * result, or its error, instead of sending the same request again.
+   *
+   * @param uri requested URI
+   * @param accessToken Crowdin access token
+   * @param variant discriminates the parsed objects built from the same
+   *          response
+   * @param parser parses the response body
+   * @param copier copies the shared parsed object, so that callers never
+   *          modify it
+   * @return the parsed response, or null when the resource doesn't exist
+   */
+  @SuppressWarnings("unchecked")
+  private <T> CompletableFuture<T> processValidatedGetAsync(URI uri,
+                                                            String accessToken,
+                                                            String variant,
+                                                            Function<String, T> parser,
+                                                            UnaryOperator<T> copier) {
+    String key = uri + "#" + variant + "#" + hashToken(accessToken);
+    CompletableFuture<Object> request = new CompletableFuture<>();
+    CompletableFuture<Object> inFlightRequest = inFlightRequests.putIfAbsent(key, request);
+    if (inFlightRequest == null) {
+      sendValidatedGetAsync(key, uri, accessToken, parser).whenComplete((value, error) -> {
+        inFlightRequests.remove(key, request);
+        if (error == null) {
+          request.complete(value);
+        } else {
+          request.completeExceptionally(unwrap(error));
+        }
+      });
+      inFlightRequest = request;
     }
+    return inFlightRequest.thenApply(value -> value == null ? null : copier.apply((T) value));
   }
 
-  private String processGet(URI uri, String accessToken) throws CrowdinConnectionException {
-    HttpClient httpClient = getHttpClient();
-    HttpGet request = new HttpGet(uri);
-    try {
-      request.setHeader(AUTHORIZATION, TOKEN + accessToken);
-      return processRequest(httpClient, request);
-    } catch (IOException e) {
-      throw new CrowdinConnectionException(CROWDIN_CONNECTION_ERROR, e);
+  /**
+   * Sends a GET request with the ETag and Last-Modified validators of the last
+   * response retrieved for the same key. When Crowdin answers that the
+   * resource wasn't modified, the previously parsed response is returned
+   * without parsing the body again.
+   */
+  private <T> CompletableFuture<T> sendValidatedGetAsync(String key,
+                                                         URI uri,
+                                                         String accessToken,
+                                                         Function<String, T> parser) {
+    @SuppressWarnings("unchecked")
+    ValidatedResponse<T> validatedResponse = (ValidatedResponse<T>) validatedResponses.get(key);
+    HttpRequest.Builder request = newRequest(uri, accessToken).GET();
+    if (validatedResponse != null) {
+      if (validatedResponse.etag() != null) {
+        request.header(HttpHeaders.IF_NONE_MATCH, validatedResponse.etag());
+      }
+      if (validatedResponse.lastModified() != null) {
+        request.header(HttpHeaders.IF_MODIFIED_SINCE, validatedResponse.lastModified());
+      }
     }
+    return sendAsync(request.build(), accessToken).thenApply(response -> {
+      int statusCode = response.statusCode();
+      if (statusCode == HttpStatus.SC_NOT_MODIFIED && validatedResponse != null) {
+        return validatedResponse.value();
+      } else if (statusCode >= 200 && statusCode < 300) {
+        String body = getSuccessBody(response);
+        if (body == null) {
+          return null;
+        }
+        T value = parser.apply(body);
+        String etag = getHeader(response, HttpHeaders.ETAG);
+        String lastModified = getHeader(response, HttpHeaders.LAST_MODIFIED);
+        if (etag != null || lastModified != null) {
+          validatedResponses.put(key, new ValidatedResponse<>(value, etag, lastModified));
+        }
+        return value;
+      } else if (statusCode == HttpStatus.SC_NOT_FOUND) {
+        validatedResponses.remove(key);
+        return null;
+      } else {
+        throw new CompletionException(toConnectionException(response));
+      }
+    });
+  }
+
+  private static String getHeader(HttpResponse<?> response, String name) {
+    return response.headers().firstValue(name).orElse(null);
+  }
+
+  private CompletableFuture<String> processPostAsync(URI uri, String jsonString, String accessToken) {
+    HttpRequest request = newRequest(uri, accessToken).header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                                                      .POST(HttpRequest.BodyPublishers.ofString(jsonString,
+                                                                                                StandardCharsets.UTF_8))
+                                                      .build();
+    return processRequestAsync(request, accessToken);
+  }
+
+  private CompletableFuture<String> processDeleteAsync(URI uri, String accessToken) {
+    HttpRequest request = newRequest(uri, accessToken).DELETE().build();
+    return processRequestAsync(request, accessToken);
+  }
+
+  private HttpRequest.Builder newRequest(URI uri, String accessToken) {
+    return HttpRequest.newBuilder(uri).timeout(Duration.ofMillis(requestTimeout)).header(AUTHORIZATION, TOKEN + accessToken);
+  }
+
+  private CompletableFuture<String> processRequestAsync(HttpRequest request, String accessToken) {
+    return sendAsync(request, accessToken).thenApply(response -> {
+      if (response.statusCode() >= 200 && response.statusCode() < 300) {
+        return getSuccessBody(response);
+      } else if (response.statusCode() == HttpStatus.SC_NOT_FOUND) {
+        return null;
+      } else {
+        throw new CompletionException(toConnectionException(response));
+      }
+    });
   }
 
-  private String processPost(URI uri, String jsonString, String accessToken) throws CrowdinConnectionException {
-    HttpClient httpClient = getHttpClient();
-    HttpPost request = new HttpPost(uri);
-    StringEntity entity = new StringEntity(jsonString, org.apache.http.entity.ContentType.APPLICATION_JSON);
+  private CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest request, String accessToken) {
+    return sendAsync(request, hashToken(accessToken), 0);
+  }
+
+  /**
+   * Sends a request once the rate limiter of its access token allows it. When
+   * Crowdin rejects the request because the rate limit is exceeded, the
+   * requests of the access token are suspended for the Retry-After delay, or a
+   * jittered exponential backoff when Crowdin doesn't send it. Idempotent GET
+   * requests are then retried, while other requests fail immediately with a
+   * {@link CrowdinRateLimitException}.
+   */
+  private CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest request, String tokenKey, int attempt) {
+    return acquirePermit(tokenKey).thenCompose(ignored -> getHttpClient().sendAsync(request,
+                                                                                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
+                                  .thenCompose(response -> {
+                                    rateLimiter.update(tokenKey,
+                                                       parseInteger(getHeader(response, RATE_LIMIT_REMAINING_HEADER)),
+                                                       parseResetTime(getHeader(response, RATE_LIMIT_RESET_HEADER)));
+                                    if (response.statusCode() != SC_TOO_MANY_REQUESTS) {
+                                      return CompletableFuture.completedFuture(response);
+                                    }
+                                    long delay = getRetryDelay(getHeader(response, HttpHeaders.RETRY_AFTER), attempt);
+                                    rateLimiter.block(tokenKey, delay);
+                                    if (!"GET".equals(request.method()) || attempt >= rateLimitMaxRetries) {
+                                      return CompletableFuture.failedFuture(new CrowdinRateLimitException("Crowdin API rate limit exceeded",
+                                                                                                          Math.max(1, (delay + 999) / 1000)));
+                                    }
+                                    LOG.debug("Crowdin API rate limit exceeded, retry {} of {} in {}ms",
+                                              attempt + 1,
+                                              rateLimitMaxRetries,
+                                              delay);
+                                    return sendAsync(request, tokenKey, attempt + 1);
+                                  });
+  }
+
+  /**
+   * Reserves a permit of the access token and waits for it. When the requests
+   * of the access token are suspended while waiting, because Crowdin rejected
+   * another request, the reservation is replaced by a new one, so that queued
+   * requests aren't sent within the suspension.
+   *
+   * @return a future completed when the request can be sent
+   */
+  private CompletableFuture<Void> acquirePermit(String tokenKey) {
+    CrowdinApiRateLimiter.Reservation reservation;
     try {
-      request.setHeader(HTTP.CONTENT_TYPE, MediaType.APPLICATION_JSON);
-      request.setHeader(AUTHORIZATION, TOKEN + accessToken);
-      request.setEntity(entity);
-      return processRequest(httpClient, request);
-    } catch (IOException e) {
-      throw new CrowdinConnectionException(CROWDIN_CONNECTION_ERROR, e);
+      reservation = rateLimiter.reserve(tokenKey);
+    } catch (CrowdinRateLimitException e) {
+      return CompletableFuture.failedFuture(e);
     }
+    return waitFor(reservation.delay()).thenCompose(ignored -> rateLimiter.isValid(tokenKey, reservation) ? CompletableFuture.completedFuture(null)
+                                                                                                           : acquirePermit(tokenKey));
   }
 
-  private String processDelete(URI uri, String accessToken) throws CrowdinConnectionException {
-    HttpClient httpClient = getHttpClient();
-    HttpDelete request = new HttpDelete(uri);
-    try {
-      request.setHeader(AUTHORIZATION, TOKEN + accessToken);
-      return processRequest(httpClient, request);
-    } catch (IOException e) {
-      throw new CrowdinConnectionException(CROWDIN_CONNECTION_ERROR, e);
+  /**
+   * @return a future completed after the delay, without holding a thread while
+   *         waiting
+   */
+  private static CompletableFuture<Void> waitFor(long delay) {
+    if (delay <= 0) {
+      return CompletableFuture.completedFuture(null);
     }
+    return CompletableFuture.runAsync(() -> {
+      // Nothing to run, the delayed executor only postpones the completion
+    }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
   }
 
-  private String processRequest(HttpClient httpClient, HttpRequestBase request) throws IOException, CrowdinConnectionException {
-    HttpResponse response = httpClient.execute(request);
-    boolean isSuccess = response != null
-        && (response.getStatusLine().getStatusCode() >= 200 && response.getStatusLine().getStatusCode() < 300);
-    if (isSuccess) {
-      return processSuccessResponse(response);
-    } else if (response != null && response.getStatusLine().getStatusCode() == 404) {
-      return null;
-    } else {
-      processErrorResponse(response);
-      return null;
+  /**
+   * @return the delay, in milliseconds, before retrying a rejected request:
+   *         the Retry-After delay sent by Crowdin, and at least a jittered
+   *         exponential backoff, so that the callers rejected together don't
+   *         retry all at once
+   */
+  private long getRetryDelay(String retryAfter, int attempt) {
+    long backoff = rateLimitRetryDelay << Math.min(attempt, 10);
+    long jitteredBackoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    long retryAfterDelay = 0;
+    if (StringUtils.isNumeric(retryAfter)) {
+      retryAfterDelay = Long.parseLong(retryAfter) * 1000;
+    } else if (StringUtils.isNotBlank(retryAfter)) {
+      try {
+        ZonedDateTime retryDate = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+        retryAfterDelay = retryDate.toInstant().toEpochMilli() - System.currentTimeMillis();
+      } catch (DateTimeParseException e) {
+        LOG.debug("Unrecognized Retry-After header {}", retryAfter);
+      }
     }
+    return Math.max(retryAfterDelay, jitteredBackoff);
+  }
+
+  private static Integer parseInteger(String value) {
+    return StringUtils.isNumeric(value) ? Integer.valueOf(value) : null;
   }
 
-  private String processSuccessResponse(HttpResponse response) throws IOException {
-    if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NO_CONTENT) {
+  private static Long parseResetTime(String value) {
+    // Reset time is sent as an epoch timestamp in seconds
+    return StringUtils.isNumeric(value) ? Long.parseLong(value) * 1000 : null;
+  }
+
+  private static String getSuccessBody(HttpResponse<String> response) {
+    if (response.statusCode() == HttpStatus.SC_NO_CONTENT) {
       return String.valueOf(HttpStatus.SC_NO_CONTENT);
-    } else if ((response.getStatusLine().getStatusCode() == HttpStatus.SC_CREATED
-        || response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) && response.getEntity() != null
-        && response.getEntity().getContentLength() != 0) {
-      try (InputStream is = response.getEntity().getContent()) {
-        return IOUtils.toString(is, StandardCharsets.UTF_8);
-      }
+    } else if ((response.statusCode() == HttpStatus.SC_CREATED || response.statusCode() == HttpStatus.SC_OK)
+        && StringUtils.isNotEmpty(response.body())) {
+      return response.body();
     } else {
       return null;
     }
   }
 
-  private void processErrorResponse(HttpResponse response) throws CrowdinConnectionException, IOException {
-    if (response == null) {
-      throw new CrowdinConnectionException("Error when connecting crowdin");
-    } else if (response.getEntity() != null) {
-      try (InputStream is = response.getEntity().getContent()) {
-        String errorMessage = IOUtils.toString(is, StandardCharsets.UTF_8);
-        if (StringUtils.contains(errorMessage, "")) {
-          throw new CrowdinConnectionException(errorMessage);
-        } else {
-          throw new CrowdinConnectionException(CROWDIN_CONNECTION_ERROR + errorMessage);
-        }
-      }
+  private static CrowdinConnectionException toConnectionException(HttpResponse<String> response) {
+    if (StringUtils.isNotEmpty(response.body())) {
+      return new CrowdinConnectionException(response.body());
     } else {
-      throw new CrowdinConnectionException(CROWDIN_CONNECTION_ERROR + response.getStatusLine().getStatusCode());
+      return new CrowdinConnectionException(CROWDIN_CONNECTION_ERROR + response.statusCode());
+    }
+  }
+
+  /**
+   * Reports the connection errors of an asynchronous call as an expired or
+   * invalid access token, as the synchronous methods always did
+   */
+  private static <T> CompletableFuture<T> withAccessErrors(CompletableFuture<T> future) {
+    return future.handle((value, error) -> {
+      if (error == null) {
+        return value;
+      }
+      Throwable cause = unwrap(error);
+      if (cause instanceof CrowdinConnectionException || cause instanceof IOException) {
+        IllegalAccessException illegalAccessException = new IllegalAccessException(TOKEN_EXPIRED_OR_INVALID);
+        illegalAccessException.initCause(cause);
+        throw new CompletionException(illegalAccessException);
+      }
+      throw new CompletionException(cause);
+    });
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+  }
+
+  /**
+   * Waits for an asynchronous operation, for longer than a request as it may
+   * wait for the rate limiter and retry rate limited requests
+   */
+  private <T> T await(CompletableFuture<T> future) throws IllegalAccessException {
+    try {
+      return future.get(awaitTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for Crowdin API", e);
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("Timed out while waiting for Crowdin API", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IllegalAccessException illegalAccessException) {
+        throw illegalAccessException;
+      } else if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      } else {
+        throw new IllegalStateException(e.getCause());
+      }
     }
   }
 
   private HttpClient getHttpClient() {
     if (client == null) {
-      HttpClientConnectionManager clientConnectionManager = getClientConnectionManager();
-      HttpClientBuilder httpClientBuilder = HttpClients.custom()
-                                                       .setConnectionManager(clientConnectionManager)
-                                                       .setConnectionReuseStrategy(new DefaultConnectionReuseStrategy());
-      client = httpClientBuilder.build();
+      client = HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_2)
+                         .followRedirects(HttpClient.Redirect.NORMAL)
+                         .connectTimeout(Duration.ofMillis(connectTimeout))
+                         .build();
     }
     return client;
   }
 
-  private HttpClientConnectionManager getClientConnectionManager() {
-    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-    connectionManager.setDefaultMaxPerRoute(10);
-    return connectionManager;
-  }
-
   public RemoteProject retrieveRemoteProject(long projectRemoteId,
                                              boolean includeLanguages,
                                              String accessToken) throws IllegalAccessException {
-    try {
+    return await(retrieveRemoteProjectAsync(projectRemoteId, includeLanguages, accessToken));
+  }
 
-      URI uri = URI.create(CROWDIN_API_URL + PROJECTS + projectRemoteId);
-      String response = processGet(uri, accessToken);
-      if (response == null) {
-        return null;
-      }
-      return getRemoteProject(response, includeLanguages);
-    } catch (IllegalArgumentException e) {
-      throw new IllegalArgumentException(e);
-    } catch (CrowdinConnectionException e) {
-      throw new IllegalAccessException(TOKEN_EXPIRED_OR_INVALID);
-    }
+  public CompletableFuture<RemoteProject> retrieveRemoteProjectAsync(long projectRemoteId,
+                                                                     boolean includeLanguages,
+                                                                     String accessToken) {
+    URI uri = URI.create(apiUrl + PROJECTS + projectRemoteId);
+    return withAccessErrors(processValidatedGetAsync(uri,
+                                                     accessToken,
+                                                     String.valueOf(includeLanguages),
+                                                     response -> getRemoteProject(response, includeLanguages),
+                                                     RemoteProject::clone));
   }
 
   private static RemoteProject getRemoteProject(String response, boolean includeLanguages) {
@@ -341,46 +605,82 @@ public class CrowdinConsumerStorage {
   }
 
   public String deleteWebhook(WebHook webHook) {
-    URI uri = URI.create(CROWDIN_API_URL + PROJECTS + webHook.getProjectId() + WEBHOOKS + webHook.getWebhookId());
     try {
-      return processDelete(uri, webHook.getToken());
-    } catch (CrowdinConnectionException e) {
+      return await(deleteWebhookAsync(webHook));
+    } catch (IllegalAccessException e) {
       throw new IllegalStateException("Unable to delete Crowdin hook");
     }
   }
 
+  public CompletableFuture<String> deleteWebhookAsync(WebHook webHook) {
+    URI uri = URI.create(apiUrl + PROJECTS + webHook.getProjectId() + WEBHOOKS + webHook.getWebhookId());
+    return withAccessErrors(processDeleteAsync(uri, webHook.getToken()));
+  }
+
   public List<RemoteDirectory> getProjectDirectories(long remoteProjectId,
                                                      int offset,
                                                      int limit,
                                                      String accessToken) throws IllegalAccessException {
-    try {
-      URI uri = URI.create(CROWDIN_API_URL + PROJECTS + remoteProjectId + "/directories?offset=" + offset + "&limit=" + limit);
-      String response = processGet(uri, accessToken);
-      JSONArray jsonArray = new JSONObject(response).getJSONArray("data");
-
-      List<RemoteDirectory> directories = new ArrayList<>();
-
-      // loop through the array and parse the projects
-      for (int i = 0; i < jsonArray.length(); i++) {
-        JSONObject jsonObjectData = jsonArray.getJSONObject(i);
-        JSONObject jsonObject = jsonObjectData.getJSONObject("data");
-        // parse the project
-        RemoteDirectory directory = new RemoteDirectory();
-        directory.setId(jsonObject.getInt("id"));
-        directory.setProjectId(jsonObject.getLong("projectId"));
-        directory.setPath(jsonObject.getString("path"));
-
-        directories.add(directory);
+    return await(getProjectDirectoriesAsync(remoteProjectId, offset, limit, accessToken));
+  }
+
+  public CompletableFuture<List<RemoteDirectory>> getProjectDirectoriesAsync(long remoteProjectId,
+                                                                             int offset,
+                                                                             int limit,
+                                                                             String accessToken) {
+    URI uri = URI.create(apiUrl + PROJECTS + remoteProjectId + "/directories?offset=" + offset + "&limit=" + limit);
+    return withAccessErrors(processValidatedGetAsync(uri,
+                                                     accessToken,
+                                                     null,
+                                                     CrowdinConsumerStorage::getRemoteDirectories,
+                                                     ArrayList::new).thenApply(directories -> directories == null ? new ArrayList<>()
+                                                                                                                  : directories));
+  }
+
+  public RemoteDirectory getProjectDirectory(long remoteProjectId,
+                                             long directoryId,
+                                             String accessToken) throws IllegalAccessException {
+    return await(getProjectDirectoryAsync(remoteProjectId, directoryId, accessToken));
+  }
+
+  public CompletableFuture<RemoteDirectory> getProjectDirectoryAsync(long remoteProjectId,
+                                                                     long directoryId,
+                                                                     String accessToken) {
+    URI uri = URI.create(apiUrl + PROJECTS + remoteProjectId + "/directories/" + directoryId);
+    return withAccessErrors(processGetAsync(uri, accessToken).thenApply(response -> {
+      if (response == null) {
+        return null;
       }
-      return directories;
-    } catch (IllegalArgumentException e) {
-      throw new IllegalArgumentException(e);
-    } catch (CrowdinConnectionException e) {
-      throw new IllegalAccessException(TOKEN_EXPIRED_OR_INVALID);
+      return toRemoteDirectory(new JSONObject(response).getJSONObject("data"));
+    }));
+  }
+
+  private static List<RemoteDirectory> getRemoteDirectories(String response) {
+    JSONArray jsonArray = new JSONObject(response).getJSONArray("data");
+
+    List<RemoteDirectory> directories = new ArrayList<>();
+
+    // loop through the array and parse the directories
+    for (int i = 0; i < jsonArray.length(); i++) {
+      JSONObject jsonObjectData = jsonArray.getJSONObject(i);
+      directories.add(toRemoteDirectory(jsonObjectData.getJSONObject("data")));
     }
+    return directories;
+  }
+
+  private static RemoteDirectory toRemoteDirectory(JSONObject jsonObject) {
+    RemoteDirectory directory = new RemoteDirectory();
+    directory.setId(jsonObject.getInt("id"));
+    directory.setProjectId(jsonObject.getLong("projectId"));
+    directory.setPath(jsonObject.getString("path"));
+    directory.setParentId(jsonObject.isNull("directoryId") ? null : jsonObject.getLong("directoryId"));
+    return directory;
   }
 
   public void clearCache() {
     // implemented in cached storage
   }
+
+  private record ValidatedResponse<T>(T value, String etag, String lastModified) {
+  }
 }
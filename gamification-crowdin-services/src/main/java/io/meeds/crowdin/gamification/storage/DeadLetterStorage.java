@@ -0,0 +1,107 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import io.meeds.crowdin.gamification.dao.DeadLetterEventDAO;
+import io.meeds.crowdin.gamification.entity.DeadLetterEventEntity;
+import io.meeds.crowdin.gamification.model.DeadLetterEvent;
+import io.meeds.crowdin.gamification.model.DeadLetterStatus;
+import io.meeds.crowdin.gamification.storage.mapper.DeadLetterEventMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+
+import static io.meeds.crowdin.gamification.storage.mapper.DeadLetterEventMapper.fromEntity;
+import static io.meeds.crowdin.gamification.storage.mapper.DeadLetterEventMapper.toEntity;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public class DeadLetterStorage {
+
+  /**
+   * Statuses of the events whose broadcast failed. Events deferred by the rate
+   * limit are pending awards, not failures, so they're never listed, retried
+   * manually nor purged.
+   */
+  private static final List<DeadLetterStatus> FAILED_STATUSES    = List.of(DeadLetterStatus.PENDING,
+                                                                           DeadLetterStatus.PARKED);
+
+  private static final List<DeadLetterStatus> SCHEDULED_STATUSES = List.of(DeadLetterStatus.PENDING,
+                                                                           DeadLetterStatus.DEFERRED);
+
+  @Autowired
+  private DeadLetterEventDAO                  deadLetterEventDAO;
+
+  public DeadLetterEvent saveDeadLetter(DeadLetterEvent deadLetterEvent) {
+    return fromEntity(deadLetterEventDAO.save(toEntity(deadLetterEvent)));
+  }
+
+  public List<DeadLetterEvent> getDeadLetters(long projectId, int offset, int limit) {
+    return deadLetterEventDAO.findDeadLetters(projectId,
+                                              FAILED_STATUSES,
+                                              Math.max(offset, 0),
+                                              limit > 0 ? limit : Integer.MAX_VALUE)
+                             .stream()
+                             .map(DeadLetterEventMapper::fromEntity)
+                             .toList();
+  }
+
+  public List<DeadLetterEvent> getDeadLetters(long projectId) {
+    return deadLetterEventDAO.findByProjectIdAndStatusIn(projectId, FAILED_STATUSES)
+                             .stream()
+                             .map(DeadLetterEventMapper::fromEntity)
+                             .toList();
+  }
+
+  /**
+   * Leases the pending dead letters and the deferred events due for a retry. A
+   * dead letter is leased by moving its next retry date with a conditional
+   * update, so concurrent nodes never retry the same event and an event
+   * leased by a crashed node is retried once its lease expires.
+   *
+   * @param limit maximum number of dead letters to claim
+   * @param leaseDuration lease duration in milliseconds
+   * @return the claimed dead letters
+   */
+  public List<DeadLetterEvent> claimDueDeadLetters(int limit, long leaseDuration) {
+    Date now = new Date();
+    Date leaseExpiry = new Date(now.getTime() + leaseDuration);
+    return deadLetterEventDAO.findByStatusInAndNextRetryDateBeforeOrderByIdAsc(SCHEDULED_STATUSES,
+                                                                               now,
+                                                                               PageRequest.of(0, limit))
+                             .stream()
+                             .filter(entity -> deadLetterEventDAO.claimDeadLetter(entity.getId(),
+                                                                                  entity.getStatus(),
+                                                                                  entity.getNextRetryDate(),
+                                                                                  leaseExpiry) > 0)
+                             .map(DeadLetterEventMapper::fromEntity)
+                             .toList();
+  }
+
+  public void deleteDeadLetter(long id) {
+    deadLetterEventDAO.deleteById(id);
+  }
+
+  public long deleteDeadLetters(long projectId) {
+    return deadLetterEventDAO.deleteByProjectIdAndStatusIn(projectId, FAILED_STATUSES);
+  }
+}
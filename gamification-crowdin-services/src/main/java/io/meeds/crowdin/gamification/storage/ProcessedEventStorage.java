@@ -0,0 +1,68 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import io.meeds.crowdin.gamification.dao.ProcessedEventDAO;
+import io.meeds.crowdin.gamification.entity.ProcessedEventEntity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+public class ProcessedEventStorage {
+
+  @Autowired
+  private ProcessedEventDAO processedEventDAO;
+
+  /**
+   * @param eventKeys events idempotency keys
+   * @return the last processing date of the processed events, by event key,
+   *         retrieved in a single query
+   */
+  public Map<String, Date> getProcessedDates(Collection<String> eventKeys) {
+    return processedEventDAO.findByEventKeyIn(eventKeys)
+                            .stream()
+                            .collect(Collectors.toMap(ProcessedEventEntity::getEventKey,
+                                                      ProcessedEventEntity::getProcessedDate));
+  }
+
+  /**
+   * Marks an event as processed at a given date. The event key is unique, so
+   * when two nodes mark the same event concurrently, the insert of the second
+   * one is skipped by the database on conflict instead of failing, which
+   * would mark the caller transaction as rollback-only.
+   *
+   * @param eventKey event idempotency key
+   * @param processedDate processing date
+   */
+  public void markProcessed(String eventKey, Date processedDate) {
+    if (processedEventDAO.updateProcessedDate(eventKey, processedDate) == 0) {
+      processedEventDAO.insertProcessedEvent(eventKey, processedDate);
+    }
+  }
+
+  public long deleteProcessedBefore(Date date) {
+    return processedEventDAO.deleteByProcessedDateBefore(date);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import io.meeds.crowdin.gamification.dao.RateLimitDAO;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class RateLimitStorage {
+
+  @Autowired
+  private RateLimitDAO rateLimitDAO;
+
+  /**
+   * @param bucketKey rate limit bucket key
+   * @return the theoretical arrival time of the next event of the bucket, or
+   *         -1 when the bucket isn't stored
+   */
+  public long getTheoreticalArrival(String bucketKey) {
+    Long theoreticalArrival = rateLimitDAO.findTheoreticalArrival(bucketKey);
+    return theoreticalArrival == null ? -1 : theoreticalArrival;
+  }
+
+  /**
+   * Updates the theoretical arrival time of a bucket only when it still has
+   * the expected value, so that concurrent nodes never consume the same
+   * tokens.
+   *
+   * @param bucketKey rate limit bucket key
+   * @param expected theoretical arrival time read before the update, -1 when
+   *          the bucket wasn't stored
+   * @param theoreticalArrival new theoretical arrival time
+   * @return true if the bucket was updated, else false when it was modified
+   *         concurrently
+   */
+  public boolean compareAndSet(String bucketKey, long expected, long theoreticalArrival) {
+    if (expected >= 0) {
+      return rateLimitDAO.updateBucket(bucketKey, expected, theoreticalArrival) > 0;
+    }
+    // The insert is skipped by the database when another node inserted the
+    // bucket concurrently, instead of failing the caller transaction
+    return rateLimitDAO.insertBucket(bucketKey, theoreticalArrival) > 0;
+  }
+
+  public long deleteBucketsBefore(long time) {
+    return rateLimitDAO.deleteByTheoreticalArrivalLessThan(time);
+  }
+}
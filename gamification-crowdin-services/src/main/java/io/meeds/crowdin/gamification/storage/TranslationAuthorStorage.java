@@ -0,0 +1,67 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import io.meeds.crowdin.gamification.dao.TranslationAuthorDAO;
+import io.meeds.crowdin.gamification.entity.TranslationAuthorEntity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+public class TranslationAuthorStorage {
+
+  @Autowired
+  private TranslationAuthorDAO translationAuthorDAO;
+
+  /**
+   * Stores the author of a translation. A translation author never changes, so
+   * when two nodes store the same translation concurrently, only the first one
+   * is kept: the insert is skipped by the database on conflict instead of
+   * failing, which would mark the caller transaction as rollback-only.
+   *
+   * @param translationId Crowdin translation id
+   * @param projectId Crowdin project id
+   * @param author Crowdin username of the translation author
+   */
+  public void saveAuthor(long translationId, long projectId, String author) {
+    translationAuthorDAO.insertAuthor(translationId, projectId, author, new Date());
+  }
+
+  /**
+   * @param translationIds Crowdin translation ids
+   * @return the Crowdin username of the known translations authors, by
+   *         translation id, retrieved in a single query
+   */
+  public Map<Long, String> getAuthors(Collection<Long> translationIds) {
+    return translationAuthorDAO.findAllById(translationIds)
+                               .stream()
+                               .collect(Collectors.toMap(TranslationAuthorEntity::getTranslationId,
+                                                         TranslationAuthorEntity::getAuthor));
+  }
+
+  public void deleteAuthor(long translationId) {
+    translationAuthorDAO.deleteById(translationId);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import io.meeds.crowdin.gamification.dao.WebhookArchiveDAO;
+import io.meeds.crowdin.gamification.entity.WebhookArchiveEntity;
+import io.meeds.crowdin.gamification.model.WebhookArchive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+
+import static io.meeds.crowdin.gamification.utils.Utils.compress;
+import static io.meeds.crowdin.gamification.utils.Utils.decompress;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public class WebhookArchiveStorage {
+
+  @Autowired
+  private WebhookArchiveDAO webhookArchiveDAO;
+
+  /**
+   * Archives a processed webhook batch, gzip compressed, so that it can be
+   * replayed later
+   *
+   * @param projectId Crowdin project id of the batch
+   * @param receivedDate batch reception date
+   * @param payload raw webhook batch
+   */
+  public void archiveBatch(long projectId, Date receivedDate, String payload) {
+    WebhookArchiveEntity webhookArchiveEntity = new WebhookArchiveEntity();
+    webhookArchiveEntity.setProjectId(projectId);
+    webhookArchiveEntity.setReceivedDate(receivedDate);
+    webhookArchiveEntity.setPayload(compress(payload));
+    webhookArchiveDAO.save(webhookArchiveEntity);
+  }
+
+  /**
+   * @param projectId Crowdin project id
+   * @param from range start date
+   * @param to range end date
+   * @param afterId cursor, only archives with a greater id are returned
+   * @param limit maximum number of archives to return
+   * @return archived batches of the project in the range, in reception order
+   */
+  public List<WebhookArchive> getArchivedBatches(long projectId, Date from, Date to, long afterId, int limit) {
+    return webhookArchiveDAO.findByProjectIdAndReceivedDateBetweenAndIdGreaterThanOrderByIdAsc(projectId,
+                                                                                              from,
+                                                                                              to,
+                                                                                              afterId,
+                                                                                              PageRequest.of(0, limit))
+                            .stream()
+                            .map(entity -> new WebhookArchive(entity.getId(),
+                                                              entity.getProjectId(),
+                                                              entity.getReceivedDate(),
+                                                              decompress(entity.getPayload())))
+                            .toList();
+  }
+
+  public long deleteArchivesBefore(Date date) {
+    return webhookArchiveDAO.deleteByReceivedDateBefore(date);
+  }
+}
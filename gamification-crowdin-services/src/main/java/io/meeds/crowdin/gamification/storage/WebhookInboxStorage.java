@@ -0,0 +1,91 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import io.meeds.crowdin.gamification.dao.WebhookBatchDAO;
+import io.meeds.crowdin.gamification.entity.WebhookBatchEntity;
+import io.meeds.crowdin.gamification.model.WebhookBatch;
+import io.meeds.crowdin.gamification.storage.mapper.WebhookBatchMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+
+import static io.meeds.crowdin.gamification.storage.mapper.WebhookBatchMapper.toEntity;
+
+import java.util.Date;
+
+@Repository
+public class WebhookInboxStorage {
+
+  private static final int CLAIM_CANDIDATES = 10;
+
+  @Autowired
+  private WebhookBatchDAO  webhookBatchDAO;
+
+  /**
+   * Appends a received webhook batch to the inbox using a single insert
+   *
+   * @param projectId Crowdin project id of the webhook that sent the batch
+   * @param bearerToken the authorization header sent by Crowdin
+   * @param payload the raw webhook batch body
+   * @return the technical identifier of the stored batch
+   */
+  public long appendBatch(long projectId, String bearerToken, String payload) {
+    WebhookBatchEntity webhookBatchEntity = webhookBatchDAO.save(toEntity(projectId, bearerToken, payload));
+    return webhookBatchEntity.getId();
+  }
+
+  /**
+   * Leases the oldest batch that is not leased yet, or whose lease has expired
+   * because the node that claimed it crashed. Only the oldest batch of each
+   * project can be claimed, so that the batches of a project are processed one
+   * at a time, in reception order, whatever the node. A batch is leased by a
+   * conditional update, so concurrent nodes never claim the same batch.
+   *
+   * @param owner identifier of the claiming node
+   * @param leaseDuration lease duration in milliseconds
+   * @return the claimed batch, else null when no batch can be claimed
+   */
+  public WebhookBatch claimBatch(String owner, long leaseDuration) {
+    Date now = new Date();
+    Date expiry = new Date(now.getTime() + leaseDuration);
+    return webhookBatchDAO.findClaimableBatchIds(now, PageRequest.of(0, CLAIM_CANDIDATES))
+                          .stream()
+                          .filter(id -> webhookBatchDAO.claimBatch(id, owner, expiry, now) > 0)
+                          .findFirst()
+                          .flatMap(webhookBatchDAO::findById)
+                          .map(WebhookBatchMapper::fromEntity)
+                          .orElse(null);
+  }
+
+  public long countBatches() {
+    return webhookBatchDAO.count();
+  }
+
+  /**
+   * @param batchId technical identifier of the batch
+   * @param owner identifier of the node that claimed the batch
+   * @return true when deleted, false when the batch lease expired and was
+   *         claimed by another node meanwhile
+   */
+  public boolean deleteBatch(long batchId, String owner) {
+    return webhookBatchDAO.deleteLeasedBatch(batchId, owner) > 0;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage.cached;
+
+import io.meeds.crowdin.gamification.model.RemoteDirectory;
+import io.meeds.crowdin.gamification.model.RemoteProject;
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.storage.CrowdinConsumerStorage;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Caches the Crowdin projects, project languages and directories retrieved
+ * from Crowdin API, so that the administration pages and the webhooks REST
+ * entities don't call Crowdin each time. Each kind of data has its own cache,
+ * with its own size and time to live. The cache keys include a hash of the
+ * access token used to retrieve the data, so that a user never gets data
+ * retrieved with another token, while the tokens themselves are never stored
+ * in the caches. The cache instances are resolved on the calling thread, which
+ * runs in the portal container, while the remote results are then stored from
+ * the HTTP client thread, which only needs the resolved instances.
+ */
+@Primary
+@Component
+public class CachedCrowdinConsumerStorage extends CrowdinConsumerStorage {
+
+  @Autowired
+  private CacheService                                 cacheService;
+
+  @Autowired
+  private CrowdinMetricsService                        crowdinMetricsService;
+
+  private ExoCache<String, ArrayList<RemoteProject>>   projectsCache;
+
+  private ExoCache<String, RemoteProject>              projectCache;
+
+  private ExoCache<String, ArrayList<RemoteDirectory>> directoriesCache;
+
+  @PostConstruct
+  public void init() {
+    crowdinMetricsService.registerGauge(REMOTE_CACHE_HIT_RATIO_METRIC, () -> {
+      long hits = crowdinMetricsService.getCounter(REMOTE_CACHE_HIT_METRIC);
+      long total = hits + crowdinMetricsService.getCounter(REMOTE_CACHE_MISS_METRIC);
+      return total == 0 ? 0d : (double) hits / total;
+    });
+    crowdinMetricsService.registerGauge(REMOTE_CALL_LATENCY_METRIC, () -> {
+      long calls = crowdinMetricsService.getCounter(REMOTE_CALL_COUNT_METRIC);
+      return calls == 0 ? 0 : crowdinMetricsService.getCounter(REMOTE_CALL_TIME_METRIC) / calls;
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<RemoteProject>> getProjectsAsync(String accessToken) {
+    String key = hashToken(accessToken);
+    ExoCache<String, ArrayList<RemoteProject>> cache = getProjectsCache();
+    ArrayList<RemoteProject> projects = cache.get(key);
+    if (projects != null) {
+      crowdinMetricsService.increment(REMOTE_CACHE_HIT_METRIC);
+      return CompletableFuture.completedFuture(copyProjects(projects));
+    }
+    return callRemote(() -> super.getProjectsAsync(accessToken)).thenApply(remoteProjects -> {
+      ArrayList<RemoteProject> cachedProjects = new ArrayList<>(remoteProjects);
+      cache.put(key, cachedProjects);
+      return copyProjects(cachedProjects);
+    });
+  }
+
+  @Override
+  public CompletableFuture<RemoteProject> retrieveRemoteProjectAsync(long projectRemoteId,
+                                                                     boolean includeLanguages,
+                                                                     String accessToken) {
+    String key = projectRemoteId + ":" + includeLanguages + ":" + hashToken(accessToken);
+    ExoCache<String, RemoteProject> cache = getProjectCache();
+    RemoteProject project = cache.get(key);
+    if (project != null) {
+      crowdinMetricsService.increment(REMOTE_CACHE_HIT_METRIC);
+      return CompletableFuture.completedFuture(project.clone());
+    }
+    CompletableFuture<RemoteProject> remoteProject =
+                                                   callRemote(() -> super.retrieveRemoteProjectAsync(projectRemoteId,
+                                                                                                     includeLanguages,
+                                                                                                     accessToken));
+    return remoteProject.thenApply(result -> {
+      if (result == null) {
+        return null;
+      }
+      cache.put(key, result);
+      return result.clone();
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<RemoteDirectory>> getProjectDirectoriesAsync(long remoteProjectId,
+                                                                             int offset,
+                                                                             int limit,
+                                                                             String accessToken) {
+    String key = remoteProjectId + ":" + offset + ":" + limit + ":" + hashToken(accessToken);
+    ExoCache<String, ArrayList<RemoteDirectory>> cache = getDirectoriesCache();
+    ArrayList<RemoteDirectory> directories = cache.get(key);
+    if (directories != null) {
+      crowdinMetricsService.increment(REMOTE_CACHE_HIT_METRIC);
+      return CompletableFuture.completedFuture(new ArrayList<>(directories));
+    }
+    CompletableFuture<List<RemoteDirectory>> remoteDirectories =
+                                                              callRemote(() -> super.getProjectDirectoriesAsync(remoteProjectId,
+                                                                                                                offset,
+                                                                                                                limit,
+                                                                                                                accessToken));
+    return remoteDirectories.thenApply(result -> {
+      ArrayList<RemoteDirectory> cachedDirectories = new ArrayList<>(result);
+      cache.put(key, cachedDirectories);
+      return new ArrayList<>(cachedDirectories);
+    });
+  }
+
+  @Override
+  public void clearCache() {
+    getProjectsCache().clearCache();
+    getProjectCache().clearCache();
+    getDirectoriesCache().clearCache();
+  }
+
+  /**
+   * Calls Crowdin API on a cache miss and records the call duration
+   */
+  private <T> CompletableFuture<T> callRemote(Supplier<CompletableFuture<T>> remoteCall) {
+    crowdinMetricsService.increment(REMOTE_CACHE_MISS_METRIC);
+    long start = System.currentTimeMillis();
+    return remoteCall.get().whenComplete((value, error) -> {
+      crowdinMetricsService.increment(REMOTE_CALL_COUNT_METRIC);
+      crowdinMetricsService.add(REMOTE_CALL_TIME_METRIC, System.currentTimeMillis() - start);
+    });
+  }
+
+  private List<RemoteProject> copyProjects(List<RemoteProject> projects) {
+    return projects.stream().map(RemoteProject::clone).toList();
+  }
+
+  private ExoCache<String, ArrayList<RemoteProject>> getProjectsCache() {
+    if (projectsCache == null) {
+      projectsCache = cacheService.getCacheInstance(PROJECTS_CACHE_NAME);
+    }
+    return projectsCache;
+  }
+
+  private ExoCache<String, RemoteProject> getProjectCache() {
+    if (projectCache == null) {
+      projectCache = cacheService.getCacheInstance(PROJECT_CACHE_NAME);
+    }
+    return projectCache;
+  }
+
+  private ExoCache<String, ArrayList<RemoteDirectory>> getDirectoriesCache() {
+    if (directoriesCache == null) {
+      directoriesCache = cacheService.getCacheInstance(DIRECTORIES_CACHE_NAME);
+    }
+    return directoriesCache;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import io.meeds.crowdin.gamification.entity.DeadLetterEventEntity;
+import io.meeds.crowdin.gamification.model.DeadLetterEvent;
+
+import static io.meeds.crowdin.gamification.utils.Utils.OBJECT_MAPPER;
+
+import java.util.Map;
+
+public class DeadLetterEventMapper {
+
+  private static final TypeReference<Map<String, String>> EVENT_DATA_TYPE = new TypeReference<>() {
+  };
+
+  private DeadLetterEventMapper() {
+    // Class with static methods
+  }
+
+  public static DeadLetterEventEntity toEntity(DeadLetterEvent deadLetterEvent) {
+    if (deadLetterEvent == null) {
+      return null;
+    }
+    DeadLetterEventEntity deadLetterEventEntity = new DeadLetterEventEntity();
+    if (deadLetterEvent.getId() > 0) {
+      deadLetterEventEntity.setId(deadLetterEvent.getId());
+    }
+    deadLetterEventEntity.setProjectId(deadLetterEvent.getProjectId());
+    try {
+      deadLetterEventEntity.setEventData(OBJECT_MAPPER.writeValueAsString(deadLetterEvent.getEventData()));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Error while serializing dead letter event data", e);
+    }
+    deadLetterEventEntity.setCancelling(deadLetterEvent.isCancelling());
+    deadLetterEventEntity.setFailureReason(deadLetterEvent.getFailureReason());
+    deadLetterEventEntity.setAttempts(deadLetterEvent.getAttempts());
+    deadLetterEventEntity.setNextRetryDate(deadLetterEvent.getNextRetryDate());
+    deadLetterEventEntity.setStatus(deadLetterEvent.getStatus());
+    deadLetterEventEntity.setCreatedDate(deadLetterEvent.getCreatedDate());
+    return deadLetterEventEntity;
+  }
+
+  public static DeadLetterEvent fromEntity(DeadLetterEventEntity deadLetterEventEntity) {
+    if (deadLetterEventEntity == null) {
+      return null;
+    }
+    Map<String, String> eventData;
+    try {
+      eventData = OBJECT_MAPPER.readValue(deadLetterEventEntity.getEventData(), EVENT_DATA_TYPE);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Error while parsing dead letter event data", e);
+    }
+    return new DeadLetterEvent(deadLetterEventEntity.getId(),
+                               deadLetterEventEntity.getProjectId(),
+                               eventData,
+                               Boolean.TRUE.equals(deadLetterEventEntity.getCancelling()),
+                               deadLetterEventEntity.getFailureReason(),
+                               deadLetterEventEntity.getAttempts() == null ? 0 : deadLetterEventEntity.getAttempts(),
+                               deadLetterEventEntity.getNextRetryDate(),
+                               deadLetterEventEntity.getStatus(),
+                               deadLetterEventEntity.getCreatedDate());
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.storage.mapper;
+
+import io.meeds.crowdin.gamification.entity.WebhookBatchEntity;
+import io.meeds.crowdin.gamification.model.WebhookBatch;
+
+import static io.meeds.crowdin.gamification.utils.Utils.decode;
+import static io.meeds.crowdin.gamification.utils.Utils.encode;
+
+import java.util.Date;
+
+public class WebhookBatchMapper {
+
+  private WebhookBatchMapper() {
+    // Class with static methods
+  }
+
+  public static WebhookBatchEntity toEntity(long projectId, String bearerToken, String payload) {
+    WebhookBatchEntity webhookBatchEntity = new WebhookBatchEntity();
+    webhookBatchEntity.setProjectId(projectId);
+    webhookBatchEntity.setBearerToken(encode(bearerToken));
+    webhookBatchEntity.setPayload(payload);
+    webhookBatchEntity.setCreatedDate(new Date());
+    return webhookBatchEntity;
+  }
+
+  public static WebhookBatch fromEntity(WebhookBatchEntity webhookBatchEntity) {
+    if (webhookBatchEntity == null) {
+      return null;
+    }
+    return new WebhookBatch(webhookBatchEntity.getId(),
+                            webhookBatchEntity.getBearerToken() != null ? decode(webhookBatchEntity.getBearerToken()) : null,
+                            webhookBatchEntity.getPayload(),
+                            webhookBatchEntity.getCreatedDate());
+  }
+}
@@ -1,15 +1,43 @@
 package io.meeds.crowdin.gamification.utils;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.meeds.crowdin.gamification.model.EventDetails;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
 import org.exoplatform.commons.utils.CommonsUtils;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.container.component.RequestLifeCycle;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 import org.exoplatform.web.security.codec.CodecInitializer;
 import org.exoplatform.web.security.security.TokenServiceInitializationException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class Utils {
 
@@ -40,6 +68,10 @@ public class Utils {
 
   public static final String   GAMIFICATION_CANCEL_EVENT          = "gamification.cancel.event.action";
 
+  public static final String   CONNECTOR_CONNECTED_EVENT          = "gamification.connector.account.connected";
+
+  public static final String   CONNECTOR_DISCONNECTED_EVENT       = "gamification.connector.account.disconnected";
+
   public static final String   STRING_COMMENT_CREATED_EVENT_NAME  = "stringCommentCreated";
 
   public static final String   SUGGESTION_ADDED_EVENT_NAME        = "suggestionAdded";
@@ -98,6 +130,72 @@ public class Utils {
 
   public static final String   SUGGESTION_DISAPPROVED_TRIGGER     = "suggestion.disapproved";
 
+  public static final String   WEBHOOK_REJECTED_METRIC            = "crowdin.webhook.rejected";
+
+  public static final String   EXECUTOR_QUEUE_DEPTH_METRIC        = "crowdin.webhook.executor.queueDepth";
+
+  public static final String   EXECUTOR_ACTIVE_METRIC             = "crowdin.webhook.executor.activeThreads";
+
+  public static final String   INBOX_BACKLOG_METRIC               = "crowdin.webhook.inbox.backlog";
+
+  public static final String   EVENTS                             = "events";
+
+  public static final String   DISPATCHER_QUEUE_DEPTH_METRIC      = "crowdin.webhook.dispatcher.queueDepth";
+
+  public static final String   WEBHOOK_UNAUTHORIZED_METRIC        = "crowdin.webhook.unauthorized";
+
+  public static final String   WEBHOOK_DUPLICATE_METRIC           = "crowdin.webhook.duplicateDropped";
+
+  public static final String   DEAD_LETTER_ADDED_METRIC           = "crowdin.deadLetter.added";
+
+  public static final String   DEAD_LETTER_RETRIED_METRIC         = "crowdin.deadLetter.retried";
+
+  public static final String   DEAD_LETTER_PARKED_METRIC          = "crowdin.deadLetter.parked";
+
+  public static final String   USER_CACHE_HIT_METRIC              = "crowdin.userCache.hit";
+
+  public static final String   USER_CACHE_MISS_METRIC             = "crowdin.userCache.miss";
+
+  public static final String   USER_CACHE_NAME                    = "gamification.crowdin.users";
+
+  public static final String   TRIGGER_CACHE_NAME                 = "gamification.crowdin.triggers";
+
+  public static final String   WEBHOOK_DISABLED_METRIC            = "crowdin.webhook.disabledDropped";
+
+  public static final String   RATE_LIMIT_DROPPED_METRIC          = "crowdin.rateLimit.dropped";
+
+  public static final String   RATE_LIMIT_DEFERRED_METRIC         = "crowdin.rateLimit.deferred";
+
+  public static final String   PROJECTS_CACHE_NAME                = "gamification.crowdin.projects";
+
+  public static final String   PROJECT_CACHE_NAME                 = "gamification.crowdin.project";
+
+  public static final String   DIRECTORIES_CACHE_NAME             = "gamification.crowdin.directories";
+
+  public static final String   REMOTE_CACHE_HIT_METRIC            = "crowdin.remoteCache.hit";
+
+  public static final String   REMOTE_CACHE_MISS_METRIC           = "crowdin.remoteCache.miss";
+
+  public static final String   REMOTE_CACHE_HIT_RATIO_METRIC      = "crowdin.remoteCache.hitRatio";
+
+  public static final String   REMOTE_CALL_COUNT_METRIC           = "crowdin.remote.calls";
+
+  public static final String   REMOTE_CALL_TIME_METRIC            = "crowdin.remote.callTime";
+
+  public static final String   REMOTE_CALL_LATENCY_METRIC         = "crowdin.remote.averageLatency";
+
+  public static final String   RATE_LIMIT_REMAINING_HEADER        = "X-RateLimit-Remaining";
+
+  public static final String   RATE_LIMIT_RESET_HEADER            = "X-RateLimit-Reset";
+
+  public static final ObjectMapper  OBJECT_MAPPER        = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  private static final ObjectReader WEBHOOK_EVENT_READER = OBJECT_MAPPER.readerFor(WebhookEvent.class);
+
+  private static final ObjectReader EVENT_DETAILS_READER = OBJECT_MAPPER.readerFor(EventDetails.class);
+
+  private static final ObjectWriter EVENT_DETAILS_WRITER = OBJECT_MAPPER.writerFor(EventDetails.class);
+
   private Utils() {
   }
 
@@ -111,6 +209,24 @@ public class Utils {
     }
   }
 
+  public static byte[] compress(String content) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream outputStream = new GZIPOutputStream(bytes)) {
+      outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalStateException("Error while compressing content", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static String decompress(byte[] compressedContent) {
+    try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressedContent))) {
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Error while decompressing content", e);
+    }
+  }
+
   public static String decode(String encryptedToken) {
     try {
       CodecInitializer codecInitializer = CommonsUtils.getService(CodecInitializer.class);
@@ -121,6 +237,23 @@ public class Utils {
     }
   }
 
+  /**
+   * @param accessToken Crowdin access token
+   * @return a SHA-256 hash of the token, to be used in cache keys instead of
+   *         the token itself
+   */
+  public static String hashToken(String accessToken) {
+    if (accessToken == null) {
+      return "";
+    }
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(messageDigest.digest(accessToken.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 algorithm isn't available", e);
+    }
+  }
+
   public static String generateRandomSecret(int length) {
     SecureRandom secureRandom = new SecureRandom();
     StringBuilder word = new StringBuilder();
@@ -137,57 +270,125 @@ public class Utils {
     return word.toString();
   }
 
-  @SuppressWarnings("unchecked")
-  public static Map<String, Object> fromJsonStringToMap(String jsonString) {
-    try {
-      ObjectMapper objectMapper = new ObjectMapper();
-      return objectMapper.readValue(jsonString, Map.class);
+  /**
+   * Reads the events of a Crowdin webhook batch one at a time, binding each
+   * event into an immutable {@link WebhookEvent}, so that memory usage doesn't
+   * depend on the batch size.
+   *
+   * @param payload raw webhook batch
+   * @param consumer called for each event of the batch, in payload order
+   * @return the number of read events
+   */
+  public static int parseWebhookEvents(String payload, Consumer<WebhookEvent> consumer) {
+    int count = 0;
+    try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(payload)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalStateException("Crowdin webhook payload isn't a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        if (parser.nextToken() == JsonToken.START_ARRAY && EVENTS.equals(fieldName)) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            consumer.accept(WEBHOOK_EVENT_READER.readValue(parser));
+            count++;
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
     } catch (IOException e) {
-      throw new IllegalStateException("Error converting JSON string to map: " + jsonString, e);
+      throw new IllegalStateException("Error parsing Crowdin webhook payload", e);
     }
+    return count;
   }
 
-  @SuppressWarnings("unchecked")
-  public static String extractSubItem(Map<String, Object> map, String... keys) {
-    Object currentObject = map;
-    for (String key : keys) {
-      if (currentObject instanceof Map) {
-        currentObject = ((Map<String, Object>) currentObject).get(key);
-      } else {
-        return null;
-      }
+  /**
+   * @param eventDetails event details
+   * @return the JSON representation of the event details
+   */
+  public static String toEventDetails(EventDetails eventDetails) {
+    try {
+      return EVENT_DETAILS_WRITER.writeValueAsString(eventDetails);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Error serializing Crowdin event details", e);
     }
-    return currentObject != null ? currentObject.toString() : null;
   }
 
-  public static boolean verifyWebhookSecret(String bearerToken, String expected) {
-    if (bearerToken == null) {
-      LOG.warn("Bearer token is required to verify Crowdin webhook secret");
-      return false;
+  /**
+   * Decodes event details, either in the JSON format or in the legacy
+   * "{key: value, key: value}" format of realizations stored before it.
+   *
+   * @param eventDetails serialized event details
+   * @return the decoded event details
+   */
+  public static EventDetails parseEventDetails(String eventDetails) {
+    if (eventDetails.startsWith("{\"")) {
+      try {
+        return EVENT_DETAILS_READER.readValue(eventDetails);
+      } catch (IOException e) {
+        throw new IllegalStateException("Error parsing Crowdin event details", e);
+      }
+    }
+    Map<String, String> legacyDetails = new HashMap<>();
+    String[] pairs = eventDetails.substring(1, eventDetails.length() - 1).split(", ");
+    for (String pair : pairs) {
+      String[] keyValue = pair.split(": ");
+      legacyDetails.put(keyValue[0].trim(), keyValue[1].trim());
     }
-    if (expected == null) {
-      LOG.warn("Expected string is required to verify Crowdin webhook secret");
-      return false;
+    return new EventDetails(EventDetails.LEGACY_VERSION,
+                            legacyDetails.get(PROJECT_ID),
+                            legacyDetails.get(LANGUAGE_ID),
+                            Boolean.parseBoolean(legacyDetails.get(MUST_BE_HUMAN)),
+                            legacyDetails.get(DIRECTORY_ID),
+                            NumberUtils.toInt(legacyDetails.get(TOTAL_TARGET_ITEM)));
+  }
+
+  /**
+   * @param authorization authorization header sent by Crowdin
+   * @return the webhook secret sent as bearer token, else null
+   */
+  public static String extractBearerSecret(String authorization) {
+    if (authorization == null || !authorization.startsWith(TOKEN)) {
+      return null;
     }
-    return expected.equals(bearerToken);
+    return authorization.substring(TOKEN.length());
   }
 
-  public static String constructObjectIdAsJsonString(Map<String, Object> payload, String payloadObjectName) {
-    String id = extractSubItem(payload, payloadObjectName, ID);
-    String stringId = extractSubItem(payload, payloadObjectName, STRING, ID);
-    String projectSlug = extractSubItem(payload, payloadObjectName, STRING, PROJECT, IDENTIFIER);
-    String fileId = extractSubItem(payload, payloadObjectName, STRING, FILE, ID);
-    String sourceLanguageId = extractSubItem(payload, payloadObjectName, STRING, PROJECT, SOURCE_LANGUAGE_ID);
-    String targetLanguageId = extractSubItem(payload, payloadObjectName, TARGET_LANGUAGE, ID);
-    return "{\"id\":" + id + ",\"stringUrl\":\"https://crowdin.com/editor/" + projectSlug + "/" + fileId + "/" + sourceLanguageId
-        + "-" + targetLanguageId + "?view=comfortable#" + stringId + "\"}";
+  public static String constructObjectIdAsJsonString(WebhookEvent.StringActivity activity) {
+    return "{\"id\":" + activity.id() + ",\"stringUrl\":\"https://crowdin.com/editor/" + activity.projectIdentifier() + "/"
+        + activity.fileId() + "/" + activity.sourceLanguageId() + "-" + activity.targetLanguageId() + "?view=comfortable#"
+        + activity.stringId() + "\"}";
   }
 
-  public static int countWords(String text) {
-    if (text == null || text.isEmpty()) {
-      return 0;
+  /**
+   * Binds a task to the container of the calling thread, so that the thread
+   * executing it later runs it inside a request of that container, with the
+   * container services and the JPA transaction bound to it, as
+   * {@link io.meeds.common.ContainerTransactional} methods do.
+   *
+   * @param task task to execute on another thread
+   * @return the task wrapped in a container request, or the task itself when
+   *         the calling thread has no container
+   */
+  public static Runnable withContainerRequest(Runnable task) {
+    ExoContainer currentContainer = ExoContainerContext.getCurrentContainerIfPresent();
+    if (currentContainer == null) {
+      return task;
     }
-    String[] words = text.split("\\s+");
-    return words.length;
+    ExoContainer container = currentContainer instanceof PortalContainer ? currentContainer : PortalContainer.getInstance();
+    return () -> {
+      ExoContainerContext.setCurrentContainer(container);
+      RequestLifeCycle.begin(container);
+      try {
+        task.run();
+      } finally {
+        RequestLifeCycle.end();
+        ExoContainerContext.setCurrentContainer(null);
+      }
+    };
+  }
+
+  public static int countWords(String text) {
+    return WordCounter.countWords(text);
   }
 }
@@ -0,0 +1,216 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.utils;
+
+import java.text.BreakIterator;
+import java.text.StringCharacterIterator;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Counts the words of a translation text by scanning its code points, without
+ * allocating for whitespace delimited and CJK texts. The segmentation is
+ * selected from the language of the counted text, which is the source language
+ * of the project for a translated string:
+ * <ul>
+ * <li>{@link Segmentation#WHITESPACE}: words are runs of letters and digits
+ * separated by spaces,</li>
+ * <li>{@link Segmentation#SCRIPT}: in addition, each Han, Hiragana and
+ * Katakana character counts as a word, and runs of Thai, Lao, Khmer and
+ * Myanmar characters, which are written without spaces, are segmented by a
+ * word {@link BreakIterator} of their script language. The precision of this
+ * segmentation depends on the dictionaries shipped with the JDK: a run of
+ * characters without dictionary counts as a single word.</li>
+ * </ul>
+ */
+public class WordCounter {
+
+  public enum Segmentation {
+    WHITESPACE, SCRIPT
+  }
+
+  private static final Set<String> SCRIPT_LANGUAGES       = Set.of("zh", "ja", "yue", "th", "lo", "km", "my");
+
+  private static final Locale      THAI_LOCALE            = Locale.forLanguageTag("th");
+
+  private static final Locale      LAO_LOCALE             = Locale.forLanguageTag("lo");
+
+  private static final Locale      KHMER_LOCALE           = Locale.forLanguageTag("km");
+
+  private static final Locale      MYANMAR_LOCALE         = Locale.forLanguageTag("my");
+
+  /**
+   * First code point of the Thai block, no code point below it needs a script
+   * lookup
+   */
+  private static final int         FIRST_SCRIPT_CODEPOINT = 0x0E00;
+
+  private WordCounter() {
+    // Class with static methods
+  }
+
+  /**
+   * @param languageId Crowdin language identifier, as 'fr' or 'zh-CN'
+   * @return the segmentation to use for texts of the language, or
+   *         {@link Segmentation#SCRIPT} when the language is unknown
+   */
+  public static Segmentation getSegmentation(String languageId) {
+    if (languageId == null || languageId.isEmpty()) {
+      return Segmentation.SCRIPT;
+    }
+    int separatorIndex = languageId.indexOf('-');
+    String language = separatorIndex > 0 ? languageId.substring(0, separatorIndex) : languageId;
+    return SCRIPT_LANGUAGES.contains(language.toLowerCase(Locale.ROOT)) ? Segmentation.SCRIPT : Segmentation.WHITESPACE;
+  }
+
+  public static int countWords(String text) {
+    return countWords(text, null);
+  }
+
+  /**
+   * @param text text to count
+   * @param languageId Crowdin identifier of the text language
+   * @return the number of words of the text
+   */
+  public static int countWords(String text, String languageId) {
+    if (text == null || text.isEmpty()) {
+      return 0;
+    }
+    return getSegmentation(languageId) == Segmentation.WHITESPACE ? countWhitespaceWords(text)
+                                                                   : countScriptWords(text);
+  }
+
+  private static int countWhitespaceWords(String text) {
+    int count = 0;
+    boolean inWord = false;
+    int length = text.length();
+    int index = 0;
+    while (index < length) {
+      int codePoint = text.codePointAt(index);
+      if (isSeparator(codePoint)) {
+        inWord = false;
+      } else if (!inWord && Character.isLetterOrDigit(codePoint)) {
+        inWord = true;
+        count++;
+      }
+      index += Character.charCount(codePoint);
+    }
+    return count;
+  }
+
+  private static int countScriptWords(String text) {
+    int count = 0;
+    boolean inWord = false;
+    int length = text.length();
+    int index = 0;
+    while (index < length) {
+      int codePoint = text.codePointAt(index);
+      Character.UnicodeScript script = codePoint < FIRST_SCRIPT_CODEPOINT ? null : Character.UnicodeScript.of(codePoint);
+      if (isDictionaryScript(script)) {
+        int end = getDictionaryRunEnd(text, index);
+        count += countDictionaryWords(text, index, end, script);
+        inWord = false;
+        index = end;
+        continue;
+      } else if (isCharacterScript(script)) {
+        count++;
+        inWord = false;
+      } else if (isSeparator(codePoint)) {
+        inWord = false;
+      } else if (!inWord && isWordStart(codePoint)) {
+        inWord = true;
+        count++;
+      }
+      index += Character.charCount(codePoint);
+    }
+    return count;
+  }
+
+  private static int getDictionaryRunEnd(String text, int start) {
+    int index = start;
+    while (index < text.length()) {
+      int codePoint = text.codePointAt(index);
+      if (!isDictionaryScript(Character.UnicodeScript.of(codePoint))
+          && Character.getType(codePoint) != Character.NON_SPACING_MARK) {
+        break;
+      }
+      index += Character.charCount(codePoint);
+    }
+    return index;
+  }
+
+  private static int countDictionaryWords(String text, int start, int end, Character.UnicodeScript script) {
+    BreakIterator breakIterator = BreakIterator.getWordInstance(getScriptLocale(script));
+    breakIterator.setText(new StringCharacterIterator(text, start, end, start));
+    int count = 0;
+    int wordStart = breakIterator.first();
+    int wordEnd = breakIterator.next();
+    while (wordEnd != BreakIterator.DONE) {
+      if (containsLetterOrDigit(text, wordStart, wordEnd)) {
+        count++;
+      }
+      wordStart = wordEnd;
+      wordEnd = breakIterator.next();
+    }
+    return count;
+  }
+
+  private static boolean containsLetterOrDigit(String text, int start, int end) {
+    int index = start;
+    while (index < end) {
+      int codePoint = text.codePointAt(index);
+      if (Character.isLetterOrDigit(codePoint)) {
+        return true;
+      }
+      index += Character.charCount(codePoint);
+    }
+    return false;
+  }
+
+  private static Locale getScriptLocale(Character.UnicodeScript script) {
+    return switch (script) {
+    case THAI -> THAI_LOCALE;
+    case LAO -> LAO_LOCALE;
+    case KHMER -> KHMER_LOCALE;
+    default -> MYANMAR_LOCALE;
+    };
+  }
+
+  /**
+   * Modifier letters, as the Katakana prolonged sound mark, extend the
+   * previous word and never start a new one
+   */
+  private static boolean isWordStart(int codePoint) {
+    return Character.isLetterOrDigit(codePoint) && Character.getType(codePoint) != Character.MODIFIER_LETTER;
+  }
+
+  private static boolean isSeparator(int codePoint) {
+    return Character.isWhitespace(codePoint) || Character.isSpaceChar(codePoint);
+  }
+
+  private static boolean isCharacterScript(Character.UnicodeScript script) {
+    return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+        || script == Character.UnicodeScript.KATAKANA;
+  }
+
+  private static boolean isDictionaryScript(Character.UnicodeScript script) {
+    return script == Character.UnicodeScript.THAI || script == Character.UnicodeScript.LAO
+        || script == Character.UnicodeScript.KHMER || script == Character.UnicodeScript.MYANMAR;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.benchmark;
+
+import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.EventDetails;
+import io.meeds.crowdin.gamification.plugin.CrowdinEventPlugin;
+import io.meeds.crowdin.gamification.services.DirectoryTreeService;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of producing the details of an event and matching them
+ * against the rules of a project, between the legacy "{key: value}" details,
+ * parsed again for each rule, and the JSON details decoded once per event. The
+ * allocation rate is reported by the GC profiler. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.meeds.crowdin.gamification.benchmark.EventDetailsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventDetailsBenchmark {
+
+  @Param({ "1", "20" })
+  private int                       rulesCount;
+
+  private List<Map<String, String>> rules;
+
+  private CrowdinEventPlugin        crowdinEventPlugin;
+
+  private int                       counter;
+
+  @Setup
+  public void setup() {
+    crowdinEventPlugin = new CrowdinEventPlugin();
+    ReflectionTestUtils.setField(crowdinEventPlugin, "directoryTreeService", new DirectoryTreeService());
+    rules = new ArrayList<>();
+    for (int i = 0; i < rulesCount; i++) {
+      Map<String, String> eventProperties = new HashMap<>();
+      eventProperties.put(PROJECT_ID, "123");
+      eventProperties.put(MUST_BE_HUMAN, "true");
+      eventProperties.put(DIRECTORY_IDS, "10,11,12," + (20 + i));
+      eventProperties.put(LANGUAGE_IDS, "fr,de,it,es");
+      rules.add(eventProperties);
+    }
+  }
+
+  @Benchmark
+  public void legacyDetails(Blackhole blackhole) {
+    Event event = newEvent();
+    String eventDetails = "{" + PROJECT_ID + ": " + event.getProjectId() + ", " + LANGUAGE_ID + ": " + event.getLanguageId()
+        + ", " + MUST_BE_HUMAN + ": " + event.isMustBeHuman() + ", " + DIRECTORY_ID + ": " + event.getDirectoryId() + ", "
+        + TOTAL_TARGET_ITEM + ": " + event.getTotalWords() + "}";
+    for (Map<String, String> rule : rules) {
+      blackhole.consume(isValidLegacyEvent(rule, eventDetails));
+    }
+  }
+
+  @Benchmark
+  public void structuredDetails(Blackhole blackhole) {
+    String eventDetails = toEventDetails(EventDetails.of(newEvent()));
+    for (Map<String, String> rule : rules) {
+      blackhole.consume(crowdinEventPlugin.isValidEvent(rule, eventDetails));
+    }
+  }
+
+  private Event newEvent() {
+    return new Event(SUGGESTION_ADDED_EVENT_NAME, "user", "user", "1", TRANSLATION, "123", "fr", true, "12", false, counter++);
+  }
+
+  private static boolean isValidLegacyEvent(Map<String, String> eventProperties, String triggerDetails) {
+    String desiredMustBeHuman = eventProperties.get(MUST_BE_HUMAN);
+    List<String> desiredDirectoryIds = Arrays.asList(eventProperties.get(DIRECTORY_IDS).split(","));
+    List<String> desiredLanguageIds = Arrays.asList(eventProperties.get(LANGUAGE_IDS).split(","));
+    Map<String, String> triggerDetailsMap = new HashMap<>();
+    String mapAsString = triggerDetails.substring(1, triggerDetails.length() - 1);
+    for (String pair : mapAsString.split(", ")) {
+      String[] keyValue = pair.split(": ");
+      triggerDetailsMap.put(keyValue[0].trim(), keyValue[1].trim());
+    }
+    return eventProperties.get(PROJECT_ID).equals(triggerDetailsMap.get(PROJECT_ID))
+        && (desiredMustBeHuman.equals("false") || desiredMustBeHuman.equals(triggerDetailsMap.get(MUST_BE_HUMAN)))
+        && desiredDirectoryIds.contains(triggerDetailsMap.get(DIRECTORY_ID))
+        && desiredLanguageIds.contains(triggerDetailsMap.get(LANGUAGE_ID));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(EventDetailsBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.benchmark;
+
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.services.PartitionedEventDispatcher;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares the throughput and latency percentiles of a webhook batch processed
+ * on platform thread lanes and on virtual threads. Each event simulates the
+ * blocking I/O of identity, connector and realization lookups. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.meeds.crowdin.gamification.benchmark.EventDispatcherBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventDispatcherBenchmark {
+
+  @Param({ "platform", "virtual" })
+  private String                     executionMode;
+
+  @Param({ "200" })
+  private int                        batchSize;
+
+  @Param({ "20" })
+  private int                        partitions;
+
+  @Param({ "2000000" })
+  private long                       blockingNanos;
+
+  private PartitionedEventDispatcher partitionedEventDispatcher;
+
+  @Setup
+  public void setup() {
+    partitionedEventDispatcher = new PartitionedEventDispatcher();
+    ReflectionTestUtils.setField(partitionedEventDispatcher, "crowdinMetricsService", new CrowdinMetricsService());
+    ReflectionTestUtils.setField(partitionedEventDispatcher, "executionMode", executionMode);
+    ReflectionTestUtils.setField(partitionedEventDispatcher, "lanesCount", 4);
+    ReflectionTestUtils.setField(partitionedEventDispatcher, "maxConcurrency", 50);
+    partitionedEventDispatcher.init();
+  }
+
+  @TearDown
+  public void tearDown() {
+    partitionedEventDispatcher.destroy();
+  }
+
+  @Benchmark
+  public void processBatch() {
+    CompletableFuture<?>[] futures = new CompletableFuture[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      futures[i] = partitionedEventDispatcher.dispatch("123:" + (i % partitions), () -> LockSupport.parkNanos(blockingNanos));
+    }
+    CompletableFuture.allOf(futures).join();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(EventDispatcherBenchmark.class.getSimpleName()).build()).run();
+  }
+}
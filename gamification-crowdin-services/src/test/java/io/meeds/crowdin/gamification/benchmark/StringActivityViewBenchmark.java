@@ -0,0 +1,102 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.benchmark;
+
+import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.StringActivityView;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of computing the gamification events of an approved
+ * suggestion, between extracting the translation fields for each computed
+ * event and extracting them once in a {@link StringActivityView}. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.meeds.crowdin.gamification.benchmark.StringActivityViewBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StringActivityViewBenchmark {
+
+  private WebhookEvent.Translation translation;
+
+  @Setup
+  public void setup() {
+    WebhookEvent.StringItem stringItem =
+                                       new WebhookEvent.StringItem("7",
+                                                                   "Click on the save button to keep the changes of the current space",
+                                                                   new WebhookEvent.File("3", "4"),
+                                                                   new WebhookEvent.Project("12", "en", "meeds"));
+    translation = new WebhookEvent.Translation("5",
+                                               null,
+                                               new WebhookEvent.Language("fr"),
+                                               new WebhookEvent.User("1", "root", "Root", null),
+                                               stringItem);
+  }
+
+  @Benchmark
+  public void extractPerEvent(Blackhole blackhole) {
+    String objectId = constructObjectIdAsJsonString(translation);
+    blackhole.consume(newEvent(APPROVE_SUGGESTION_EVENT_NAME, translation.username(), objectId));
+    blackhole.consume(newEvent(SUGGESTION_APPROVED_EVENT_NAME, "2", objectId));
+  }
+
+  @Benchmark
+  public void extractOnce(Blackhole blackhole) {
+    StringActivityView activity = StringActivityView.of(translation);
+    blackhole.consume(activity.toEvent(APPROVE_SUGGESTION_EVENT_NAME, activity.username(), false));
+    blackhole.consume(activity.toEvent(SUGGESTION_APPROVED_EVENT_NAME, "2", false));
+  }
+
+  private Event newEvent(String eventName, String earner, String objectId) {
+    return new Event(eventName,
+                     earner,
+                     earner,
+                     objectId,
+                     TRANSLATION,
+                     translation.projectId(),
+                     translation.targetLanguageId(),
+                     translation.provider() == null,
+                     translation.directoryId(),
+                     false,
+                     countWords(translation.text()));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(StringActivityViewBenchmark.class.getSimpleName())
+                                   .addProfiler(GCProfiler.class)
+                                   .build()).run();
+  }
+}
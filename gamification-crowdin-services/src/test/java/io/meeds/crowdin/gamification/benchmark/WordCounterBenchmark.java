@@ -0,0 +1,80 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.benchmark;
+
+import io.meeds.crowdin.gamification.utils.WordCounter;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of counting the words of a translation between the former
+ * regular expression split and the {@link WordCounter} code point scan, for
+ * whitespace delimited, CJK and Thai texts. The allocation rate is reported by
+ * the GC profiler. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.meeds.crowdin.gamification.benchmark.WordCounterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WordCounterBenchmark {
+
+  private static final Map<String, String> TEXTS = Map.of("en",
+                                                          "Click on the save button to keep the changes of the current space",
+                                                          "ja",
+                                                          "現在のスペースの変更を保存するには、保存ボタンをクリックしてください",
+                                                          "th",
+                                                          "คลิกปุ่มบันทึกเพื่อเก็บการเปลี่ยนแปลงของพื้นที่ปัจจุบัน");
+
+  @Param({ "en", "ja", "th" })
+  private String                           languageId;
+
+  private String                           text;
+
+  @Setup
+  public void setup() {
+    text = TEXTS.get(languageId);
+  }
+
+  @Benchmark
+  public int split() {
+    return text.split("\\s+").length;
+  }
+
+  @Benchmark
+  public int wordCounter() {
+    return WordCounter.countWords(text, languageId);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(WordCounterBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+  }
+}
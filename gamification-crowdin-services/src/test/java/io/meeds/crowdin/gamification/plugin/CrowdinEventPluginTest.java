@@ -20,8 +20,12 @@ package io.meeds.crowdin.gamification.plugin;
 
 import org.junit.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import io.meeds.crowdin.gamification.model.DirectoryTree;
+import io.meeds.crowdin.gamification.model.RemoteDirectory;
 import io.meeds.crowdin.gamification.plugin.CrowdinEventPlugin;
+import io.meeds.crowdin.gamification.services.DirectoryTreeService;
 
 import java.util.HashMap;
 import java.util.List;
@@ -30,13 +34,17 @@ import java.util.Map;
 import static io.meeds.crowdin.gamification.plugin.CrowdinEventPlugin.EVENT_TYPE;
 import static io.meeds.crowdin.gamification.utils.Utils.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 @SpringBootTest(classes = { CrowdinEventPlugin.class, })
 public class CrowdinEventPluginTest {
 
+  private DirectoryTreeService directoryTreeService = mock(DirectoryTreeService.class);
+
   @Test
   public void testIsValidEvent() {
-    CrowdinEventPlugin crowdinEventPlugin = new CrowdinEventPlugin();
+    CrowdinEventPlugin crowdinEventPlugin = newCrowdinEventPlugin();
     assertEquals(EVENT_TYPE, crowdinEventPlugin.getEventType());
     assertEquals(List.of(STRING_COMMENT_CREATED_EVENT_NAME,
                          SUGGESTION_ADDED_EVENT_NAME,
@@ -62,5 +70,77 @@ public class CrowdinEventPluginTest {
                                                "{" + PROJECT_ID + ": " + 132452 + ", " + DIRECTORY_ID + ": " + "1115454" + ", "
                                                    + MUST_BE_HUMAN + ": " + "true" + "}"));
 
+    eventProperties.put(LANGUAGE_IDS, "fr,de");
+    assertTrue(crowdinEventPlugin.isValidEvent(eventProperties,
+                                               "{\"v\":1,\"projectId\":\"132452\",\"languageId\":\"fr\","
+                                                   + "\"mustBeHuman\":true,\"directoryId\":\"1115454\"}"));
+    assertFalse(crowdinEventPlugin.isValidEvent(eventProperties,
+                                                "{\"v\":1,\"projectId\":\"132452\",\"languageId\":\"it\","
+                                                    + "\"mustBeHuman\":true,\"directoryId\":\"1115454\"}"));
+    assertFalse(crowdinEventPlugin.isValidEvent(eventProperties,
+                                                "{\"v\":1,\"projectId\":\"132452\",\"languageId\":\"fr\","
+                                                    + "\"mustBeHuman\":false,\"directoryId\":\"1115454\"}"));
+  }
+
+  @Test
+  public void testIsValidEventWithCompiledRule() {
+    CrowdinEventPlugin crowdinEventPlugin = newCrowdinEventPlugin();
+    Map<String, String> eventProperties = new HashMap<>();
+    eventProperties.put(PROJECT_ID, "132452");
+    eventProperties.put(DIRECTORY_IDS, "1115454,2225454");
+    eventProperties.put(MUST_BE_HUMAN, "false");
+    String eventDetails = "{\"v\":1,\"projectId\":\"132452\",\"languageId\":\"fr\",\"mustBeHuman\":false}";
+    assertFalse(crowdinEventPlugin.isValidEvent(eventProperties, eventDetails));
+
+    eventProperties.remove(DIRECTORY_IDS);
+    assertTrue(crowdinEventPlugin.isValidEvent(eventProperties, eventDetails));
+
+    crowdinEventPlugin.clearRuleMatchers();
+    assertTrue(crowdinEventPlugin.isValidEvent(eventProperties, eventDetails));
+  }
+
+  @Test
+  public void testIsValidEventInDirectorySubtree() {
+    CrowdinEventPlugin crowdinEventPlugin = newCrowdinEventPlugin();
+    Map<String, String> eventProperties = new HashMap<>();
+    eventProperties.put(PROJECT_ID, "132452");
+    eventProperties.put(DIRECTORY_IDS, "10");
+    eventProperties.put(MUST_BE_HUMAN, "false");
+    String eventDetails = "{\"v\":1,\"projectId\":\"132452\",\"mustBeHuman\":false,\"directoryId\":\"12\"}";
+    assertFalse(crowdinEventPlugin.isValidEvent(eventProperties, eventDetails));
+
+    DirectoryTree directoryTree = new DirectoryTree(List.of(new RemoteDirectory(10, 132452, "/docs", null),
+                                                            new RemoteDirectory(11, 132452, "/docs/guides", 10L),
+                                                            new RemoteDirectory(12, 132452, "/docs/guides/admin", 11L),
+                                                            new RemoteDirectory(20, 132452, "/ui", null)));
+    when(directoryTreeService.getDirectoryTree("132452")).thenReturn(directoryTree);
+    assertTrue(crowdinEventPlugin.isValidEvent(eventProperties, eventDetails));
+    assertFalse(crowdinEventPlugin.isValidEvent(eventProperties,
+                                                "{\"v\":1,\"projectId\":\"132452\",\"mustBeHuman\":false,\"directoryId\":\"20\"}"));
+  }
+
+  @Test
+  public void testIsValidEventWithoutDirectoryTree() {
+    CrowdinEventPlugin crowdinEventPlugin = newCrowdinEventPlugin();
+    Map<String, String> eventProperties = new HashMap<>();
+    eventProperties.put(PROJECT_ID, "132453");
+    eventProperties.put(DIRECTORY_IDS, "10");
+    eventProperties.put(MUST_BE_HUMAN, "false");
+
+    assertTrue(crowdinEventPlugin.isValidEvent(eventProperties,
+                                               "{\"v\":1,\"projectId\":\"132453\",\"mustBeHuman\":false,\"directoryId\":\"10\"}"));
+    verify(directoryTreeService, never()).getDirectoryTree(anyString());
+
+    // Tree not loaded: exact directory match, without any loading
+    assertFalse(crowdinEventPlugin.isValidEvent(eventProperties,
+                                                "{\"v\":1,\"projectId\":\"132453\",\"mustBeHuman\":false,\"directoryId\":\"11\"}"));
+    verify(directoryTreeService, times(1)).getDirectoryTree("132453");
+    verifyNoMoreInteractions(directoryTreeService);
+  }
+
+  private CrowdinEventPlugin newCrowdinEventPlugin() {
+    CrowdinEventPlugin crowdinEventPlugin = new CrowdinEventPlugin();
+    ReflectionTestUtils.setField(crowdinEventPlugin, "directoryTreeService", directoryTreeService);
+    return crowdinEventPlugin;
   }
 }
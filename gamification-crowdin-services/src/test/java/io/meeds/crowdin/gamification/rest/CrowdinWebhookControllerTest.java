@@ -0,0 +1,70 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import io.meeds.crowdin.gamification.exception.WebhookRejectedException;
+import io.meeds.crowdin.gamification.services.CrowdinTriggerService;
+
+@SpringBootTest(classes = { CrowdinWebhookController.class, })
+class CrowdinWebhookControllerTest {
+
+  private static final String      BEARER_TOKEN = "Bearer secret";
+
+  private static final String      PAYLOAD      = "{\"events\":[]}";
+
+  @MockBean
+  private CrowdinTriggerService    crowdinTriggerService;
+
+  @Autowired
+  private CrowdinWebhookController crowdinWebhookController;
+
+  @Test
+  void testCrowdinEvent() {
+    ResponseEntity<Object> response = crowdinWebhookController.crowdinEvent(BEARER_TOKEN, PAYLOAD);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+  }
+
+  @Test
+  void testCrowdinEventWithUnknownSecret() throws Exception {
+    doThrow(new IllegalAccessException("unknown")).when(crowdinTriggerService).handleTriggerAsync(BEARER_TOKEN, PAYLOAD);
+
+    ResponseEntity<Object> response = crowdinWebhookController.crowdinEvent(BEARER_TOKEN, PAYLOAD);
+    assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+  }
+
+  @Test
+  void testCrowdinEventWhenSaturated() throws Exception {
+    doThrow(new WebhookRejectedException("saturated", 30)).when(crowdinTriggerService).handleTriggerAsync(BEARER_TOKEN, PAYLOAD);
+
+    ResponseEntity<Object> response = crowdinWebhookController.crowdinEvent(BEARER_TOKEN, PAYLOAD);
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    assertEquals("30", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+  }
+}
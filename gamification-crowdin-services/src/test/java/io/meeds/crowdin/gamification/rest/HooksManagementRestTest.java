@@ -21,6 +21,7 @@ package io.meeds.crowdin.gamification.rest;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import org.exoplatform.commons.ObjectAlreadyExistsException;
@@ -44,6 +45,10 @@ import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import io.meeds.crowdin.gamification.exception.CrowdinRateLimitException;
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.services.DeadLetterService;
+import io.meeds.crowdin.gamification.services.ReplayService;
 import io.meeds.crowdin.gamification.services.WebhookService;
 import io.meeds.crowdin.gamification.storage.CrowdinConsumerStorage;
 import io.meeds.spring.web.security.PortalAuthenticationManager;
@@ -51,6 +56,8 @@ import io.meeds.spring.web.security.WebSecurityConfiguration;
 
 import jakarta.servlet.Filter;
 
+import java.util.Date;
+
 @SpringBootTest(classes = { HooksManagementRest.class, PortalAuthenticationManager.class, })
 @ContextConfiguration(classes = { WebSecurityConfiguration.class })
 @AutoConfigureWebMvc
@@ -72,6 +79,15 @@ class HooksManagementRestTest {
   @MockBean
   private CrowdinConsumerStorage crowdinConsumerStorage;
 
+  @MockBean
+  private CrowdinMetricsService  crowdinMetricsService;
+
+  @MockBean
+  private DeadLetterService      deadLetterService;
+
+  @MockBean
+  private ReplayService          replayService;
+
   @Autowired
   private SecurityFilterChain    filterChain;
 
@@ -171,6 +187,19 @@ class HooksManagementRestTest {
     response.andExpect(status().isNotFound());
   }
 
+  @Test
+  void getProjectDirectoriesRateLimited() throws Exception {
+    doThrow(new CrowdinRateLimitException("Crowdin API rate limit exceeded", 5)).when(webhookService)
+                                                                                .getProjectDirectories(4L,
+                                                                                                       SIMPLE_USER,
+                                                                                                       0,
+                                                                                                       10);
+
+    ResultActions response =
+                           mockMvc.perform(get(HOOKS_PATH + "/4/directories").param("offset", "0").param("limit", "10").with(testSimpleUser()));
+    response.andExpect(status().isTooManyRequests()).andExpect(header().string("Retry-After", "5"));
+  }
+
   @Test
   void getProjectsAnonymously() throws Exception {
     ResultActions response = mockMvc.perform(get(HOOKS_PATH + "/projects").param("hookId", "hookId")
@@ -307,6 +336,85 @@ class HooksManagementRestTest {
     response.andExpect(status().isOk());
   }
 
+  @Test
+  void getMetricsSimpleUser() throws Exception {
+    ResultActions response = mockMvc.perform(get(HOOKS_PATH + "/metrics").with(testSimpleUser()));
+    response.andExpect(status().isForbidden());
+  }
+
+  @Test
+  void getMetricsAdmin() throws Exception {
+    ResultActions response = mockMvc.perform(get(HOOKS_PATH + "/metrics").with(testAdminUser()));
+    response.andExpect(status().isOk());
+    verify(crowdinMetricsService, times(1)).getMetrics();
+  }
+
+  @Test
+  void getDeadLettersSimpleUser() throws Exception {
+    ResultActions response = mockMvc.perform(get(HOOKS_PATH + "/1/deadLetters").with(testSimpleUser()));
+    response.andExpect(status().isForbidden());
+  }
+
+  @Test
+  void getDeadLettersAdmin() throws Exception {
+    ResultActions response = mockMvc.perform(get(HOOKS_PATH + "/1/deadLetters").with(testAdminUser()));
+    response.andExpect(status().isOk());
+    verify(deadLetterService, times(1)).getDeadLetters(1L, ADMIN_USER, 0, 20);
+
+    doThrow(new IllegalAccessException()).when(deadLetterService).getDeadLetters(1L, ADMIN_USER, 0, 20);
+    response = mockMvc.perform(get(HOOKS_PATH + "/1/deadLetters").with(testAdminUser()));
+    response.andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void retryDeadLettersAdmin() throws Exception {
+    ResultActions response = mockMvc.perform(post(HOOKS_PATH + "/1/deadLetters/retry").with(testAdminUser()));
+    response.andExpect(status().isOk());
+    verify(deadLetterService, times(1)).retryDeadLetters(1L, ADMIN_USER);
+  }
+
+  @Test
+  void purgeDeadLettersAdmin() throws Exception {
+    ResultActions response = mockMvc.perform(delete(HOOKS_PATH + "/1/deadLetters").with(testSimpleUser()));
+    response.andExpect(status().isForbidden());
+
+    response = mockMvc.perform(delete(HOOKS_PATH + "/1/deadLetters").with(testAdminUser()));
+    response.andExpect(status().isOk());
+    verify(deadLetterService, times(1)).purgeDeadLetters(1L, ADMIN_USER);
+  }
+
+  @Test
+  void startReplaySimpleUser() throws Exception {
+    ResultActions response = mockMvc.perform(post(HOOKS_PATH + "/1/replay").param("from", "1")
+                                                                           .param("to", "2")
+                                                                           .with(testSimpleUser()));
+    response.andExpect(status().isForbidden());
+  }
+
+  @Test
+  void startReplayAdmin() throws Exception {
+    ResultActions response = mockMvc.perform(post(HOOKS_PATH + "/1/replay").param("from", "1")
+                                                                           .param("to", "2")
+                                                                           .with(testAdminUser()));
+    response.andExpect(status().isOk());
+    verify(replayService, times(1)).startReplay(1L, new Date(1), new Date(2), 0L, ADMIN_USER);
+
+    when(replayService.startReplay(1L, new Date(1), new Date(2), 0L, ADMIN_USER)).thenThrow(new IllegalStateException());
+    response = mockMvc.perform(post(HOOKS_PATH + "/1/replay").param("from", "1").param("to", "2").with(testAdminUser()));
+    response.andExpect(status().isConflict());
+  }
+
+  @Test
+  void getReplayJobAdmin() throws Exception {
+    ResultActions response = mockMvc.perform(get(HOOKS_PATH + "/replay/1").with(testAdminUser()));
+    response.andExpect(status().isOk());
+    verify(replayService, times(1)).getReplayJob(1L, ADMIN_USER);
+
+    response = mockMvc.perform(delete(HOOKS_PATH + "/replay/1").with(testAdminUser()));
+    response.andExpect(status().isOk());
+    verify(replayService, times(1)).cancelReplay(1L, ADMIN_USER);
+  }
+
   private RequestPostProcessor testAdminUser() {
     return user(ADMIN_USER).password(TEST_PASSWORD).authorities(new SimpleGrantedAuthority("rewarding"));
   }
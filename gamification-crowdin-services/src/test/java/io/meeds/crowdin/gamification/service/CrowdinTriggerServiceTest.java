@@ -19,64 +19,102 @@
 package io.meeds.crowdin.gamification.service;
 
 import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
+import io.meeds.crowdin.gamification.model.CrowdinUserResolution;
 import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.model.WebhookBatch;
+import io.meeds.crowdin.gamification.exception.WebhookRejectedException;
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
 import io.meeds.crowdin.gamification.services.CrowdinTriggerService;
-import io.meeds.crowdin.gamification.storage.WebHookStorage;
-import io.meeds.gamification.service.ConnectorService;
-import io.meeds.gamification.service.TriggerService;
-import org.exoplatform.services.listener.ListenerService;
-import org.exoplatform.social.core.manager.IdentityManager;
+import io.meeds.crowdin.gamification.services.CrowdinUserResolver;
+import io.meeds.crowdin.gamification.services.CrowdinWebhookExecutor;
+import io.meeds.crowdin.gamification.services.DeadLetterService;
+import io.meeds.crowdin.gamification.services.DirectoryTreeService;
+import io.meeds.crowdin.gamification.services.EventRateLimiter;
+import io.meeds.crowdin.gamification.services.PartitionedEventDispatcher;
+import io.meeds.crowdin.gamification.services.TranslationAuthorService;
+import io.meeds.crowdin.gamification.services.TriggerEnablementCache;
+import io.meeds.crowdin.gamification.plugin.CrowdinTriggerPlugin;
+import io.meeds.crowdin.gamification.services.WebhookEventDeduplicator;
+import io.meeds.crowdin.gamification.services.WebhookSecretIndex;
+import io.meeds.crowdin.gamification.storage.WebhookArchiveStorage;
+import io.meeds.crowdin.gamification.storage.WebhookInboxStorage;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @SpringBootTest(classes = { CrowdinTriggerService.class, })
 class CrowdinTriggerServiceTest {
 
-  private static final String    USER = "user";
+  private static final String        USER = "user";
 
   @MockBean
-  private TriggerService         triggerService;
+  private TriggerEnablementCache     triggerEnablementCache;
 
   @MockBean
-  private ConnectorService       connectorService;
+  private CrowdinUserResolver        crowdinUserResolver;
 
   @MockBean
-  private IdentityManager        identityManager;
+  private DeadLetterService          deadLetterService;
 
   @MockBean
-  private ListenerService        listenerService;
+  private WebhookSecretIndex         webhookSecretIndex;
 
   @MockBean
-  private WebHookStorage         webHookStorage;
+  private WebhookInboxStorage        webhookInboxStorage;
 
   @MockBean
-  private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+  private CrowdinWebhookExecutor     crowdinWebhookExecutor;
+
+  @MockBean
+  private CrowdinMetricsService      crowdinMetricsService;
+
+  @MockBean
+  private PartitionedEventDispatcher partitionedEventDispatcher;
+
+  @MockBean
+  private WebhookEventDeduplicator   webhookEventDeduplicator;
+
+  @MockBean
+  private WebhookArchiveStorage      webhookArchiveStorage;
+
+  @MockBean
+  private TranslationAuthorService   translationAuthorService;
+
+  @MockBean
+  private DirectoryTreeService       directoryTreeService;
+
+  @MockBean
+  private EventRateLimiter           eventRateLimiter;
 
   @Autowired
-  private CrowdinTriggerService  crowdinTriggerService;
+  private CrowdinTriggerService      crowdinTriggerService;
 
   @Test
-  void testProcessEvents() {
+  void testProcessEvents() throws Exception {
     Event event = new Event("stringComment.created", USER, USER, "1", "objectType", "123", "1", true, "1", false, 3);
     Event event1 = new Event("stringComment.deleted", USER, USER, "1", "objectType", "123", "1", true, "1", false, 4);
 
-    when(triggerService.isTriggerEnabledForAccount("stringComment.created", 123L)).thenReturn(true);
-    when(triggerService.isTriggerEnabledForAccount("stringComment.deleted", 123L)).thenReturn(false);
-    when(connectorService.getAssociatedUsername(CONNECTOR_NAME, USER)).thenReturn("1");
+    when(triggerEnablementCache.isTriggerEnabled("stringComment.created", 123L)).thenReturn(true);
+    when(triggerEnablementCache.isTriggerEnabled("stringComment.deleted", 123L)).thenReturn(false);
+    when(crowdinUserResolver.resolve(USER)).thenReturn(new CrowdinUserResolution("1", true, System.currentTimeMillis()));
 
-    String eventDetails = "{" + PROJECT_ID + ": " + event.getProjectId() + ", " + LANGUAGE_ID + ": " + event.getLanguageId()
-        + ", " + MUST_BE_HUMAN + ": " + event.isMustBeHuman() + ", " + DIRECTORY_ID + ": " + event.getDirectoryId() + ", "
-        + TOTAL_TARGET_ITEM + ": " + event.getTotalWords() + "}";
+    String eventDetails = """
+        {"v":1,"projectId":"123","languageId":"1","mustBeHuman":true,"directoryId":"1","totalTargetItem":3}""";
 
     crowdinTriggerService.processEvents(List.of(event1, event), "123");
     Map<String, String> gam = new HashMap<>();
@@ -87,7 +125,302 @@ class CrowdinTriggerServiceTest {
     gam.put("eventDetails", eventDetails);
     gam.put("ruleTitle", event.getName());
 
-    verify(listenerService, times(1)).broadcast(GAMIFICATION_GENERIC_EVENT, gam, "");
+    verify(deadLetterService, times(1)).broadcast(gam, false);
+  }
+
+  @Test
+  void testProcessEventsWhenBroadcastFails() throws Exception {
+    Event event = new Event("stringComment.created", USER, USER, "1", "objectType", "123", "1", true, "1", false, 3);
+    when(triggerEnablementCache.isTriggerEnabled("stringComment.created", 123L)).thenReturn(true);
+    when(crowdinUserResolver.resolve(USER)).thenReturn(new CrowdinUserResolution("1", true, System.currentTimeMillis()));
+    IllegalStateException error = new IllegalStateException("Database unavailable");
+    doThrow(error).when(deadLetterService).broadcast(anyMap(), anyBoolean());
+
+    crowdinTriggerService.processEvents(List.of(event), "123");
+
+    verify(deadLetterService, times(1)).addDeadLetter(eq(123L), anyMap(), eq(false), eq(error));
+  }
+
+  @Test
+  void testProcessEventsWithRateLimit() throws Exception {
+    Event event = new Event("stringComment.created", USER, USER, "1", "objectType", "123", "1", true, "1", false, 3);
+    when(triggerEnablementCache.isTriggerEnabled("stringComment.created", 123L)).thenReturn(true);
+    when(crowdinUserResolver.resolve(USER)).thenReturn(new CrowdinUserResolution("1", true, System.currentTimeMillis()));
+    when(eventRateLimiter.acquire("1", "stringComment.created", "123")).thenReturn(EventRateLimiter.REJECTED, 5000L);
+
+    assertEquals(0, crowdinTriggerService.processEvents(List.of(event), "123"));
+    verify(crowdinMetricsService, times(1)).increment(RATE_LIMIT_DROPPED_METRIC);
+
+    assertEquals(1, crowdinTriggerService.processEvents(List.of(event), "123"));
+    verify(crowdinMetricsService, times(1)).increment(RATE_LIMIT_DEFERRED_METRIC);
+    verify(deadLetterService, times(1)).deferEvent(eq(123L), anyMap(), eq(false), eq(5000L));
+    verify(deadLetterService, never()).broadcast(anyMap(), anyBoolean());
+  }
+
+  @Test
+  void testHandleTriggerAsync() throws Exception {
+    when(webhookSecretIndex.getWebhookBySecret("secret")).thenReturn(newWebHook(123L));
+    crowdinTriggerService.handleTriggerAsync("Bearer secret", "{\"events\":[]}");
+
+    verify(webhookInboxStorage, times(1)).appendBatch(123L, "Bearer secret", "{\"events\":[]}");
+    verify(crowdinWebhookExecutor, times(1)).execute(any());
+  }
+
+  @Test
+  void testHandleTriggerAsyncWithUnknownSecret() {
+    assertThrows(IllegalAccessException.class,
+                 () -> crowdinTriggerService.handleTriggerAsync("Bearer forged", "{\"events\":[]}"));
+    assertThrows(IllegalAccessException.class,
+                 () -> crowdinTriggerService.handleTriggerAsync("secret", "{\"events\":[]}"));
+
+    verify(webhookInboxStorage, never()).appendBatch(anyLong(), anyString(), anyString());
+    verify(crowdinMetricsService, times(2)).increment(WEBHOOK_UNAUTHORIZED_METRIC);
+  }
+
+  @Test
+  void testHandleTriggerAsyncWhenSaturated() {
+    when(webhookSecretIndex.getWebhookBySecret("secret")).thenReturn(newWebHook(123L));
+    when(crowdinWebhookExecutor.isSaturated()).thenReturn(true);
+
+    WebhookRejectedException exception = assertThrows(WebhookRejectedException.class,
+                                                      () -> crowdinTriggerService.handleTriggerAsync("Bearer secret",
+                                                                                                     "{\"events\":[]}"));
+    assertEquals(60, exception.getRetryAfter());
+    verify(webhookInboxStorage, never()).appendBatch(anyLong(), anyString(), anyString());
+    verify(crowdinMetricsService, times(1)).increment(WEBHOOK_REJECTED_METRIC);
+  }
+
+  @Test
+  void testDrainInbox() {
+    WebhookBatch batch = new WebhookBatch(1L, "Bearer secret", "{\"events\":[]}", new Date());
+    when(webhookInboxStorage.claimBatch(anyString(), anyLong())).thenReturn(batch, (WebhookBatch) null);
+    when(webhookInboxStorage.deleteBatch(eq(1L), anyString())).thenReturn(true);
+
+    crowdinTriggerService.drainInbox();
+
+    verify(webhookInboxStorage, times(2)).claimBatch(anyString(), anyLong());
+    verify(webhookInboxStorage, times(1)).deleteBatch(eq(1L), anyString());
+  }
+
+  @Test
+  void testHandleTriggerDispatchesByString() {
+    when(webhookSecretIndex.getWebhookBySecret("secret")).thenReturn(newWebHook(123L));
+    when(partitionedEventDispatcher.dispatch(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    String payload = """
+        {"events":[
+          {"event":"suggestion.added","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}},
+          {"event":"suggestion.deleted","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}},
+          {"event":"stringComment.created","comment":{"id":"2","string":{"id":"6","project":{"id":"123"}}}}
+        ]}
+        """;
+
+    crowdinTriggerService.handleTrigger("Bearer secret", payload, new Date());
+
+    verify(partitionedEventDispatcher, times(2)).dispatch(eq("123:5"), any());
+    verify(partitionedEventDispatcher, times(1)).dispatch(eq("123:6"), any());
+  }
+
+  @Test
+  void testHandleTriggerDropsDuplicates() {
+    when(webhookSecretIndex.getWebhookBySecret("secret")).thenReturn(newWebHook(123L));
+    when(partitionedEventDispatcher.dispatch(anyString(), any())).thenAnswer(invocation -> {
+      invocation.<Runnable> getArgument(1).run();
+      return CompletableFuture.completedFuture(null);
+    });
+    CrowdinTriggerPlugin triggerPlugin = mock(CrowdinTriggerPlugin.class);
+    when(triggerPlugin.getEventName()).thenReturn(SUGGESTION_ADDED_TRIGGER);
+    when(triggerPlugin.getCancellingEventName()).thenReturn(SUGGESTION_DELETED_TRIGGER);
+    when(triggerPlugin.getProjectId(any())).thenReturn("123");
+    when(triggerPlugin.getGamificationEventNames()).thenReturn(List.of(SUGGESTION_ADDED_EVENT_NAME));
+    when(triggerPlugin.getEvents(anyString(), any())).thenReturn(List.of(new Event(SUGGESTION_ADDED_EVENT_NAME,
+                                                                                   "1",
+                                                                                   "1",
+                                                                                   "1",
+                                                                                   TRANSLATION,
+                                                                                   "123",
+                                                                                   "fr",
+                                                                                   true,
+                                                                                   "1",
+                                                                                   false,
+                                                                                   2)));
+    when(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L)).thenReturn(true);
+    crowdinTriggerService.addPlugin(triggerPlugin);
+    String addedKey = WebhookEventDeduplicator.getEventKey(SUGGESTION_ADDED_TRIGGER, "123", "1");
+    String deletedKey = WebhookEventDeduplicator.getEventKey(SUGGESTION_DELETED_TRIGGER, "123", "1");
+    when(webhookEventDeduplicator.isDuplicate(addedKey, deletedKey)).thenReturn(false, true);
+    String payload = """
+        {"events":[
+          {"event":"suggestion.added","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}},
+          {"event":"suggestion.added","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}}
+        ]}
+        """;
+
+    crowdinTriggerService.handleTrigger("Bearer secret", payload, new Date());
+
+    verify(triggerPlugin, times(1)).getEvents(eq(SUGGESTION_ADDED_TRIGGER), any());
+    verify(translationAuthorService, times(1)).addAuthor(any());
+    verify(webhookEventDeduplicator, times(1)).markProcessed(addedKey);
+    verify(crowdinMetricsService, times(1)).increment(WEBHOOK_DUPLICATE_METRIC);
+    verify(webhookArchiveStorage, times(1)).archiveBatch(eq(123L), any(), eq(payload));
+  }
+
+  @Test
+  void testHandleTriggerDropsDisabledEvents() {
+    when(webhookSecretIndex.getWebhookBySecret("secret")).thenReturn(newWebHook(123L));
+    when(partitionedEventDispatcher.dispatch(anyString(), any())).thenAnswer(invocation -> {
+      invocation.<Runnable> getArgument(1).run();
+      return CompletableFuture.completedFuture(null);
+    });
+    CrowdinTriggerPlugin triggerPlugin = mock(CrowdinTriggerPlugin.class);
+    when(triggerPlugin.getEventName()).thenReturn(SUGGESTION_ADDED_TRIGGER);
+    when(triggerPlugin.getCancellingEventName()).thenReturn(SUGGESTION_DELETED_TRIGGER);
+    when(triggerPlugin.getProjectId(any())).thenReturn("123");
+    when(triggerPlugin.getGamificationEventNames()).thenReturn(List.of(SUGGESTION_ADDED_EVENT_NAME));
+    crowdinTriggerService.addPlugin(triggerPlugin);
+    String payload = """
+        {"events":[
+          {"event":"suggestion.added","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}}
+        ]}
+        """;
+
+    crowdinTriggerService.handleTrigger("Bearer secret", payload, new Date());
+
+    verify(triggerPlugin, never()).getEvents(anyString(), any());
+    verify(webhookEventDeduplicator, never()).isDuplicate(anyString(), anyString());
+    verify(crowdinMetricsService, times(1)).increment(WEBHOOK_DISABLED_METRIC);
+  }
+
+  @Test
+  void testHandleTriggerResolvesBatchOnce() {
+    when(webhookSecretIndex.getWebhookBySecret("secret")).thenReturn(newWebHook(123L));
+    when(partitionedEventDispatcher.dispatch(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    CrowdinTriggerPlugin triggerPlugin = mock(CrowdinTriggerPlugin.class);
+    when(triggerPlugin.getEventName()).thenReturn(SUGGESTION_ADDED_TRIGGER);
+    when(triggerPlugin.getCancellingEventName()).thenReturn(SUGGESTION_DELETED_TRIGGER);
+    when(triggerPlugin.getGamificationEventNames()).thenReturn(List.of(SUGGESTION_ADDED_EVENT_NAME));
+    crowdinTriggerService.addPlugin(triggerPlugin);
+    when(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L)).thenReturn(true);
+    StringBuilder payload = new StringBuilder("{\"events\":[");
+    for (int i = 0; i < 500; i++) {
+      payload.append(i == 0 ? "" : ",")
+             .append("{\"event\":\"suggestion.added\",\"translation\":{\"id\":\"")
+             .append(i)
+             .append("\",\"user\":{\"username\":\"user")
+             .append(i % 10)
+             .append("\"},\"string\":{\"id\":\"5\",\"project\":{\"id\":\"123\"}}}}");
+    }
+    payload.append("]}");
+
+    crowdinTriggerService.handleTrigger("Bearer secret", payload.toString(), new Date());
+
+    verify(partitionedEventDispatcher, times(500)).dispatch(anyString(), any());
+    verify(translationAuthorService, times(1)).preloadAuthors(anyList());
+    verify(crowdinUserResolver, times(1)).resolveAll(argThat(usernames -> usernames.size() == 10));
+    verify(triggerEnablementCache, times(1)).isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L);
+  }
+
+  @Test
+  void testHandleTriggerSkipsLookupsForDisabledEvents() {
+    when(webhookSecretIndex.getWebhookBySecret("secret")).thenReturn(newWebHook(123L));
+    when(partitionedEventDispatcher.dispatch(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    CrowdinTriggerPlugin triggerPlugin = mock(CrowdinTriggerPlugin.class);
+    when(triggerPlugin.getEventName()).thenReturn(SUGGESTION_ADDED_TRIGGER);
+    when(triggerPlugin.getCancellingEventName()).thenReturn(SUGGESTION_DELETED_TRIGGER);
+    when(triggerPlugin.getGamificationEventNames()).thenReturn(List.of(SUGGESTION_ADDED_EVENT_NAME));
+    crowdinTriggerService.addPlugin(triggerPlugin);
+    String payload = """
+        {"events":[
+          {"event":"suggestion.added","translation":{"id":"1","user":{"username":"user1"},"string":{"id":"5","project":{"id":"123"}}}},
+          {"event":"suggestion.added","translation":{"id":"2","user":{"username":"user2"},"string":{"id":"5","project":{"id":"123"}}}}
+        ]}
+        """;
+
+    crowdinTriggerService.handleTrigger("Bearer secret", payload, new Date());
+
+    verify(triggerEnablementCache, times(1)).isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L);
+    verify(translationAuthorService, never()).preloadAuthors(anyList());
+    verify(crowdinUserResolver, never()).resolveAll(any());
+    verify(directoryTreeService, never()).refreshDirectories(anyLong(), any());
+  }
+
+  @Test
+  void testReplayBatch() {
+    when(partitionedEventDispatcher.dispatch(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    String payload = """
+        {"events":[
+          {"event":"suggestion.added","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}}
+        ]}
+        """;
+
+    assertEquals(1, crowdinTriggerService.replayBatch(newWebHook(123L), payload, new HashSet<>()));
+    verify(webhookArchiveStorage, never()).archiveBatch(anyLong(), any(), anyString());
+  }
+
+  @Test
+  void testReplayBatchOfAddAndDeletePairs() {
+    when(partitionedEventDispatcher.dispatch(anyString(), any())).thenAnswer(invocation -> {
+      invocation.<Runnable> getArgument(1).run();
+      return CompletableFuture.completedFuture(null);
+    });
+    CrowdinTriggerPlugin triggerPlugin = mock(CrowdinTriggerPlugin.class);
+    when(triggerPlugin.getEventName()).thenReturn(SUGGESTION_ADDED_TRIGGER);
+    when(triggerPlugin.getCancellingEventName()).thenReturn(SUGGESTION_DELETED_TRIGGER);
+    when(triggerPlugin.getProjectId(any())).thenReturn("123");
+    when(triggerPlugin.getGamificationEventNames()).thenReturn(List.of(SUGGESTION_ADDED_EVENT_NAME));
+    when(triggerPlugin.getEvents(anyString(), any())).thenReturn(List.of(new Event(SUGGESTION_ADDED_EVENT_NAME,
+                                                                                   "1",
+                                                                                   "1",
+                                                                                   "1",
+                                                                                   TRANSLATION,
+                                                                                   "123",
+                                                                                   "fr",
+                                                                                   true,
+                                                                                   "1",
+                                                                                   false,
+                                                                                   2)));
+    when(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L)).thenReturn(true);
+    crowdinTriggerService.addPlugin(triggerPlugin);
+    // Translation 1 was added and deleted live, translation 2 was never
+    // processed, for instance because its rule was disabled
+    when(webhookEventDeduplicator.isProcessed(anyString(), anyString())).thenAnswer(invocation -> invocation.<String> getArgument(0)
+                                                                                                            .endsWith(":1"));
+    String payload = """
+        {"events":[
+          {"event":"suggestion.added","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}},
+          {"event":"suggestion.added","translation":{"id":"2","string":{"id":"5","project":{"id":"123"}}}},
+          {"event":"suggestion.deleted","translation":{"id":"1","string":{"id":"5","project":{"id":"123"}}}},
+          {"event":"suggestion.deleted","translation":{"id":"2","string":{"id":"5","project":{"id":"123"}}}}
+        ]}
+        """;
+    Set<String> replayedObjects = new HashSet<>();
+
+    crowdinTriggerService.replayBatch(newWebHook(123L), payload, replayedObjects);
+
+    // Only translation 2 is replayed, in its original order
+    verify(triggerPlugin, times(1)).getEvents(eq(SUGGESTION_ADDED_TRIGGER), any());
+    verify(triggerPlugin, times(1)).getEvents(eq(SUGGESTION_DELETED_TRIGGER), any());
+    verify(translationAuthorService, times(1)).addAuthor(argThat(translation -> "2".equals(translation.id())));
+    verify(translationAuthorService, times(1)).removeAuthor(argThat(translation -> "2".equals(translation.id())));
+    verify(translationAuthorService, never()).removeAuthor(argThat(translation -> "1".equals(translation.id())));
+    verify(webhookEventDeduplicator, times(3)).isProcessed(anyString(), anyString());
+    // Redeliveries archived twice are still dropped within the replay
+    verify(webhookEventDeduplicator, times(1)).isDuplicate(WebhookEventDeduplicator.getEventKey(SUGGESTION_DELETED_TRIGGER, "123", "2"),
+                                                           WebhookEventDeduplicator.getEventKey(SUGGESTION_ADDED_TRIGGER, "123", "2"));
+  }
+
+  @Test
+  void testHandleTriggerWithRevokedSecret() {
+    crowdinTriggerService.handleTrigger("Bearer secret",
+                                        "{\"events\":[{\"event\":\"suggestion.added\",\"translation\":{\"id\":\"1\"}}]}",
+                                        new Date());
+
+    verify(partitionedEventDispatcher, never()).dispatch(anyString(), any());
+  }
 
+  private WebHook newWebHook(long projectId) {
+    WebHook webHook = new WebHook();
+    webHook.setProjectId(projectId);
+    webHook.setSecret("secret");
+    return webHook;
   }
 }
@@ -0,0 +1,151 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.model.CrowdinUserResolution;
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.services.CrowdinUserResolver;
+import io.meeds.gamification.service.ConnectorService;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.listener.ListenerService;
+import org.exoplatform.social.core.identity.model.Identity;
+import org.exoplatform.social.core.manager.IdentityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest(classes = { CrowdinUserResolver.class, }, properties = "gamification.crowdin.userCache.negativeTtl=60000")
+class CrowdinUserResolverTest {
+
+  private static final Map<String, CrowdinUserResolution>      CACHE_CONTENT = new HashMap<>();
+
+  @SuppressWarnings("unchecked")
+  private static final ExoCache<String, CrowdinUserResolution> USER_CACHE    = mock(ExoCache.class);
+
+  static {
+    when(USER_CACHE.get(any())).thenAnswer(invocation -> CACHE_CONTENT.get(invocation.getArgument(0)));
+    doAnswer(invocation -> CACHE_CONTENT.put(invocation.getArgument(0), invocation.getArgument(1))).when(USER_CACHE)
+                                                                                                  .put(any(), any());
+    doAnswer(invocation -> {
+      CACHE_CONTENT.clear();
+      return null;
+    }).when(USER_CACHE).clearCache();
+  }
+
+  @MockBean
+  private CacheService                                         cacheService;
+
+  @MockBean
+  private ConnectorService                                     connectorService;
+
+  @MockBean
+  private IdentityManager                                      identityManager;
+
+  @MockBean
+  private CrowdinMetricsService                                crowdinMetricsService;
+
+  @MockBean
+  private ListenerService                                      listenerService;
+
+  @Autowired
+  private CrowdinUserResolver                                  crowdinUserResolver;
+
+  @BeforeEach
+  void setup() {
+    CACHE_CONTENT.clear();
+    when(cacheService.<String, CrowdinUserResolution> getCacheInstance(USER_CACHE_NAME)).thenReturn(USER_CACHE);
+  }
+
+  @Test
+  void testResolveConnectedUser() {
+    when(connectorService.getAssociatedUsername(CONNECTOR_NAME, "crowdinUser")).thenReturn("root");
+    when(identityManager.getOrCreateUserIdentity("root")).thenReturn(mock(Identity.class));
+
+    CrowdinUserResolution resolution = crowdinUserResolver.resolve("crowdinUser");
+    assertEquals("root", resolution.username());
+    assertTrue(resolution.identityExists());
+
+    assertEquals(resolution, crowdinUserResolver.resolve("crowdinUser"));
+    verify(connectorService, times(1)).getAssociatedUsername(CONNECTOR_NAME, "crowdinUser");
+    verify(identityManager, times(1)).getOrCreateUserIdentity("root");
+    verify(crowdinMetricsService, times(1)).increment(USER_CACHE_MISS_METRIC);
+    verify(crowdinMetricsService, times(1)).increment(USER_CACHE_HIT_METRIC);
+  }
+
+  @Test
+  void testResolveUnconnectedUser() {
+    CrowdinUserResolution resolution = crowdinUserResolver.resolve("anonymous");
+    assertFalse(resolution.isConnected());
+    assertFalse(resolution.identityExists());
+
+    assertFalse(crowdinUserResolver.resolve("anonymous").isConnected());
+    verify(connectorService, times(1)).getAssociatedUsername(CONNECTOR_NAME, "anonymous");
+    verify(identityManager, never()).getOrCreateUserIdentity(any());
+  }
+
+  @Test
+  void testExpiredNegativeEntryIsResolvedAgain() {
+    CACHE_CONTENT.put("anonymous", new CrowdinUserResolution(null, false, System.currentTimeMillis() - 120000));
+    when(connectorService.getAssociatedUsername(CONNECTOR_NAME, "anonymous")).thenReturn("root");
+
+    assertEquals("root", crowdinUserResolver.resolve("anonymous").username());
+    verify(crowdinMetricsService, times(1)).increment(USER_CACHE_MISS_METRIC);
+  }
+
+  @Test
+  void testResolveAll() {
+    when(connectorService.getAssociatedUsername(CONNECTOR_NAME, "crowdinUser")).thenReturn("root");
+
+    Map<String, CrowdinUserResolution> resolutions = crowdinUserResolver.resolveAll(List.of("crowdinUser",
+                                                                                            "anonymous",
+                                                                                            "crowdinUser",
+                                                                                            ""));
+    assertEquals(2, resolutions.size());
+    assertEquals("root", resolutions.get("crowdinUser").username());
+    assertFalse(resolutions.get("anonymous").isConnected());
+    verify(connectorService, times(1)).getAssociatedUsername(CONNECTOR_NAME, "crowdinUser");
+  }
+
+  @Test
+  void testClearOnConnectorAccountChange() {
+    assertFalse(crowdinUserResolver.resolve("crowdinUser").isConnected());
+
+    // Account connected, then the connection event broadcast
+    when(connectorService.getAssociatedUsername(CONNECTOR_NAME, "crowdinUser")).thenReturn("root");
+    crowdinUserResolver.onEvent(null);
+
+    assertEquals("root", crowdinUserResolver.resolve("crowdinUser").username());
+    verify(connectorService, times(2)).getAssociatedUsername(CONNECTOR_NAME, "crowdinUser");
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.model.DeadLetterEvent;
+import io.meeds.crowdin.gamification.model.DeadLetterStatus;
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.services.DeadLetterService;
+import io.meeds.crowdin.gamification.services.DirectoryTreeService;
+import io.meeds.crowdin.gamification.storage.DeadLetterStorage;
+import org.exoplatform.services.listener.ListenerService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@SpringBootTest(classes = { DeadLetterService.class, })
+class DeadLetterServiceTest {
+
+  private static final String   ADMIN_USER = "root";
+
+  private static final String   USER       = "user";
+
+  @MockBean
+  private DeadLetterStorage     deadLetterStorage;
+
+  @MockBean
+  private ListenerService       listenerService;
+
+  @MockBean
+  private CrowdinMetricsService crowdinMetricsService;
+
+  @MockBean
+  private DirectoryTreeService  directoryTreeService;
+
+  @Autowired
+  private DeadLetterService     deadLetterService;
+
+  @Test
+  void testAddDeadLetter() {
+    Map<String, String> eventData = Map.of("ruleTitle", "suggestionAdded");
+    long before = System.currentTimeMillis();
+
+    deadLetterService.addDeadLetter(123L, eventData, false, new IllegalStateException("Database unavailable"));
+
+    ArgumentCaptor<DeadLetterEvent> captor = ArgumentCaptor.forClass(DeadLetterEvent.class);
+    verify(deadLetterStorage, times(1)).saveDeadLetter(captor.capture());
+    DeadLetterEvent deadLetter = captor.getValue();
+    assertEquals(123L, deadLetter.getProjectId());
+    assertEquals(eventData, deadLetter.getEventData());
+    assertEquals(1, deadLetter.getAttempts());
+    assertEquals(DeadLetterStatus.PENDING, deadLetter.getStatus());
+    assertEquals("java.lang.IllegalStateException: Database unavailable", deadLetter.getFailureReason());
+    assertTrue(deadLetter.getNextRetryDate().getTime() >= before + 30000);
+    verify(crowdinMetricsService, times(1)).increment(DEAD_LETTER_ADDED_METRIC);
+  }
+
+  @Test
+  void testDeferEvent() {
+    Map<String, String> eventData = Map.of("ruleTitle", "suggestionAdded");
+    long before = System.currentTimeMillis();
+
+    deadLetterService.deferEvent(123L, eventData, false, 5000L);
+
+    ArgumentCaptor<DeadLetterEvent> captor = ArgumentCaptor.forClass(DeadLetterEvent.class);
+    verify(deadLetterStorage, times(1)).saveDeadLetter(captor.capture());
+    DeadLetterEvent deadLetter = captor.getValue();
+    assertEquals(0, deadLetter.getAttempts());
+    assertEquals(DeadLetterStatus.DEFERRED, deadLetter.getStatus());
+    assertTrue(deadLetter.getNextRetryDate().getTime() >= before + 5000);
+    verify(crowdinMetricsService, never()).increment(DEAD_LETTER_ADDED_METRIC);
+  }
+
+  @Test
+  void testRetryDeadLettersSucceeds() throws Exception {
+    DeadLetterEvent deadLetter = newDeadLetter(1);
+    when(deadLetterStorage.claimDueDeadLetters(anyInt(), anyLong())).thenReturn(List.of(deadLetter), List.of());
+
+    deadLetterService.retryDeadLetters();
+
+    verify(listenerService, times(1)).broadcast(GAMIFICATION_CANCEL_EVENT, deadLetter.getEventData(), "");
+    verify(deadLetterStorage, times(1)).deleteDeadLetter(1L);
+    verify(crowdinMetricsService, times(1)).increment(DEAD_LETTER_RETRIED_METRIC);
+  }
+
+  @Test
+  void testRetryDeadLettersLoadsDirectories() throws Exception {
+    DeadLetterEvent deadLetter = newDeadLetter(1);
+    deadLetter.setEventData(Map.of("ruleTitle",
+                                   "suggestionAdded",
+                                   "eventDetails",
+                                   "{\"v\":1,\"projectId\":\"123\",\"mustBeHuman\":false,\"directoryId\":\"11\"}"));
+    when(deadLetterStorage.claimDueDeadLetters(anyInt(), anyLong())).thenReturn(List.of(deadLetter, newDeadLetter(2)), List.of());
+
+    deadLetterService.retryDeadLetters();
+
+    verify(directoryTreeService, times(1)).refreshDirectories(123L, Set.of("11"));
+    verify(listenerService, times(2)).broadcast(eq(GAMIFICATION_CANCEL_EVENT), anyMap(), eq(""));
+  }
+
+  @Test
+  void testRetryDeferredEvents() throws Exception {
+    DeadLetterEvent deferredEvent = newDeadLetter(0);
+    deferredEvent.setStatus(DeadLetterStatus.DEFERRED);
+    when(deadLetterStorage.claimDueDeadLetters(anyInt(), anyLong())).thenReturn(List.of(deferredEvent), List.of());
+
+    deadLetterService.retryDeadLetters();
+
+    verify(deadLetterStorage, times(1)).deleteDeadLetter(1L);
+    verify(crowdinMetricsService, never()).increment(DEAD_LETTER_RETRIED_METRIC);
+
+    DeadLetterEvent failedEvent = newDeadLetter(0);
+    failedEvent.setStatus(DeadLetterStatus.DEFERRED);
+    when(deadLetterStorage.claimDueDeadLetters(anyInt(), anyLong())).thenReturn(List.of(failedEvent), List.of());
+    doThrow(new IllegalStateException("error")).when(listenerService).broadcast(anyString(), any(), any());
+
+    deadLetterService.retryDeadLetters();
+
+    assertEquals(1, failedEvent.getAttempts());
+    assertEquals(DeadLetterStatus.PENDING, failedEvent.getStatus());
+    verify(deadLetterStorage, times(1)).saveDeadLetter(failedEvent);
+    verify(crowdinMetricsService, times(1)).increment(DEAD_LETTER_ADDED_METRIC);
+  }
+
+  @Test
+  void testRetryDeadLettersWithBackoff() throws Exception {
+    DeadLetterEvent deadLetter = newDeadLetter(2);
+    when(deadLetterStorage.claimDueDeadLetters(anyInt(), anyLong())).thenReturn(List.of(deadLetter), List.of());
+    doThrow(new IllegalStateException("error")).when(listenerService).broadcast(anyString(), any(), any());
+    long before = System.currentTimeMillis();
+
+    deadLetterService.retryDeadLetters();
+
+    verify(deadLetterStorage, never()).deleteDeadLetter(anyLong());
+    verify(deadLetterStorage, times(1)).saveDeadLetter(deadLetter);
+    assertEquals(3, deadLetter.getAttempts());
+    assertEquals(DeadLetterStatus.PENDING, deadLetter.getStatus());
+    // Third attempt waits between half and the whole of 4 base delays
+    assertTrue(deadLetter.getNextRetryDate().getTime() >= before + 120000);
+    assertTrue(deadLetter.getNextRetryDate().getTime() <= System.currentTimeMillis() + 240000);
+  }
+
+  @Test
+  void testRetryDeadLettersParksAfterMaxAttempts() throws Exception {
+    DeadLetterEvent deadLetter = newDeadLetter(7);
+    when(deadLetterStorage.claimDueDeadLetters(anyInt(), anyLong())).thenReturn(List.of(deadLetter), List.of());
+    doThrow(new IllegalStateException("error")).when(listenerService).broadcast(anyString(), any(), any());
+
+    deadLetterService.retryDeadLetters();
+
+    assertEquals(8, deadLetter.getAttempts());
+    assertEquals(DeadLetterStatus.PARKED, deadLetter.getStatus());
+    verify(deadLetterStorage, times(1)).saveDeadLetter(deadLetter);
+    verify(crowdinMetricsService, times(1)).increment(DEAD_LETTER_PARKED_METRIC);
+  }
+
+  @Test
+  void testManageDeadLetters() throws Exception {
+    assertThrows(IllegalAccessException.class, () -> deadLetterService.getDeadLetters(123L, USER, 0, 10));
+    assertThrows(IllegalAccessException.class, () -> deadLetterService.retryDeadLetters(123L, USER));
+    assertThrows(IllegalAccessException.class, () -> deadLetterService.purgeDeadLetters(123L, USER));
+
+    DeadLetterEvent deadLetter = newDeadLetter(8);
+    deadLetter.setStatus(DeadLetterStatus.PARKED);
+    when(deadLetterStorage.getDeadLetters(123L)).thenReturn(List.of(deadLetter));
+
+    assertEquals(1, deadLetterService.retryDeadLetters(123L, ADMIN_USER));
+    assertEquals(0, deadLetter.getAttempts());
+    assertEquals(DeadLetterStatus.PENDING, deadLetter.getStatus());
+    verify(deadLetterStorage, times(1)).saveDeadLetter(deadLetter);
+
+    deadLetterService.purgeDeadLetters(123L, ADMIN_USER);
+    verify(deadLetterStorage, times(1)).deleteDeadLetters(123L);
+  }
+
+  private DeadLetterEvent newDeadLetter(int attempts) {
+    return new DeadLetterEvent(1L,
+                               123L,
+                               Map.of("ruleTitle", "suggestionAdded"),
+                               true,
+                               "error",
+                               attempts,
+                               new Date(),
+                               DeadLetterStatus.PENDING,
+                               new Date());
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.model.DirectoryTree;
+import io.meeds.crowdin.gamification.model.RemoteDirectory;
+import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.services.DirectoryTreeService;
+import io.meeds.crowdin.gamification.storage.CrowdinConsumerStorage;
+import io.meeds.crowdin.gamification.storage.WebHookStorage;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+@SpringBootTest(classes = { DirectoryTreeService.class, }, properties = "gamification.crowdin.directoryTree.pageSize=2")
+class DirectoryTreeServiceTest {
+
+  @MockBean
+  private WebHookStorage         webHookStorage;
+
+  @MockBean
+  private CrowdinConsumerStorage crowdinConsumerStorage;
+
+  @Autowired
+  private DirectoryTreeService   directoryTreeService;
+
+  @Test
+  void testRefreshDirectories() throws Exception {
+    WebHook webHook = new WebHook();
+    webHook.setProjectId(1L);
+    webHook.setToken("token");
+    when(webHookStorage.getWebhookByProjectId(1L)).thenReturn(webHook);
+    when(crowdinConsumerStorage.getProjectDirectories(1L, 0, 2, "token")).thenReturn(List.of(newDirectory(10, "/docs", null),
+                                                                                             newDirectory(11, "/docs/guides", 10L)));
+    when(crowdinConsumerStorage.getProjectDirectories(1L, 2, 2, "token")).thenReturn(List.of(newDirectory(20, "/ui", null)));
+    assertNull(directoryTreeService.getDirectoryTree("1"));
+
+    directoryTreeService.refreshDirectories(1L, List.of("11"));
+    DirectoryTree directoryTree = directoryTreeService.getDirectoryTree("1");
+    assertNotNull(directoryTree);
+    assertArrayEquals(new String[] { "11", "10" }, directoryTree.getAncestors("11"));
+    assertArrayEquals(new String[] { "20" }, directoryTree.getAncestors("20"));
+
+    directoryTreeService.refreshDirectories(1L, List.of("10", "11", "20"));
+    verify(crowdinConsumerStorage, times(2)).getProjectDirectories(anyLong(), anyInt(), anyInt(), anyString());
+    verify(crowdinConsumerStorage, never()).getProjectDirectory(anyLong(), anyLong(), anyString());
+
+    when(crowdinConsumerStorage.getProjectDirectory(1L, 13L, "token")).thenReturn(newDirectory(13, "/docs/guides/new/admin", 12L));
+    when(crowdinConsumerStorage.getProjectDirectory(1L, 12L, "token")).thenReturn(newDirectory(12, "/docs/guides/new", 11L));
+    directoryTreeService.refreshDirectories(1L, List.of("13"));
+    assertArrayEquals(new String[] { "13", "12", "11", "10" }, directoryTree.getAncestors("13"));
+    verify(crowdinConsumerStorage, times(2)).getProjectDirectory(anyLong(), anyLong(), anyString());
+  }
+
+  @Test
+  void testRefreshDirectoriesSkipsMissedDirectories() throws Exception {
+    WebHook webHook = new WebHook();
+    webHook.setProjectId(2L);
+    webHook.setToken("token");
+    when(webHookStorage.getWebhookByProjectId(2L)).thenReturn(webHook);
+    when(crowdinConsumerStorage.getProjectDirectories(2L, 0, 2, "token")).thenReturn(List.of(newDirectory(30, "/docs", null)));
+
+    // Deleted directory referenced by events
+    directoryTreeService.refreshDirectories(2L, List.of("30", "31"));
+    assertNotNull(directoryTreeService.getDirectoryTree("2"));
+    verify(crowdinConsumerStorage, times(1)).getProjectDirectories(anyLong(), anyInt(), anyInt(), anyString());
+
+    directoryTreeService.refreshDirectories(2L, List.of("31"));
+    directoryTreeService.refreshDirectories(2L, List.of("31"));
+    verify(crowdinConsumerStorage, never()).getProjectDirectory(anyLong(), anyLong(), anyString());
+
+    ReflectionTestUtils.setField(directoryTreeService, "missTtl", 0L);
+    directoryTreeService.refreshDirectories(2L, List.of("32"));
+    directoryTreeService.refreshDirectories(2L, List.of("32"));
+    verify(crowdinConsumerStorage, times(2)).getProjectDirectory(2L, 32L, "token");
+  }
+
+  private RemoteDirectory newDirectory(long id, String path, Long parentId) {
+    return new RemoteDirectory(id, 1L, path, parentId);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.APPROVE_SUGGESTION_EVENT_NAME;
+import static io.meeds.crowdin.gamification.utils.Utils.SUGGESTION_APPROVED_EVENT_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.services.EventRateLimiter;
+import io.meeds.crowdin.gamification.storage.RateLimitStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@SpringBootTest(classes = { EventRateLimiter.class, }, properties = { "gamification.crowdin.rateLimit.capacity=3",
+    "gamification.crowdin.rateLimit.ratePerMinute=1" })
+class EventRateLimiterTest {
+
+  private static final String PROJECT_ID = "123";
+
+  private static final String TRIGGER    = "suggestionAddedEvent";
+
+  @MockBean
+  private RateLimitStorage    rateLimitStorage;
+
+  @Autowired
+  private EventRateLimiter    eventRateLimiter;
+
+  @BeforeEach
+  void setup() {
+    ReflectionTestUtils.setField(eventRateLimiter, "mode", "local");
+    ReflectionTestUtils.setField(eventRateLimiter, "overflow", "drop");
+  }
+
+  @Test
+  void testAcquireDropsWhenBucketIsEmpty() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, eventRateLimiter.acquire("dropUser", TRIGGER, PROJECT_ID));
+    }
+    assertEquals(EventRateLimiter.REJECTED, eventRateLimiter.acquire("dropUser", TRIGGER, PROJECT_ID));
+    // Buckets are distinct per user, trigger and project
+    assertEquals(0, eventRateLimiter.acquire("otherUser", TRIGGER, PROJECT_ID));
+    assertEquals(0, eventRateLimiter.acquire("dropUser", "commentEvent", PROJECT_ID));
+    assertEquals(0, eventRateLimiter.acquire("dropUser", TRIGGER, "456"));
+    verifyNoInteractions(rateLimitStorage);
+  }
+
+  @Test
+  void testAcquireDefersWhenBucketIsEmpty() {
+    ReflectionTestUtils.setField(eventRateLimiter, "overflow", "defer");
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, eventRateLimiter.acquire("deferUser", TRIGGER, PROJECT_ID));
+    }
+    long firstDelay = eventRateLimiter.acquire("deferUser", TRIGGER, PROJECT_ID);
+    assertTrue(firstDelay > 0 && firstDelay <= 60000, "Unexpected delay " + firstDelay);
+    long secondDelay = eventRateLimiter.acquire("deferUser", TRIGGER, PROJECT_ID);
+    assertTrue(secondDelay > firstDelay && secondDelay <= 120000, "Unexpected delay " + secondDelay);
+
+    ReflectionTestUtils.setField(eventRateLimiter, "maxDeferral", 60000L);
+    assertEquals(EventRateLimiter.REJECTED, eventRateLimiter.acquire("deferUser", TRIGGER, PROJECT_ID));
+    ReflectionTestUtils.setField(eventRateLimiter, "maxDeferral", 3600000L);
+  }
+
+  @Test
+  void testAcquireInClusterMode() {
+    ReflectionTestUtils.setField(eventRateLimiter, "mode", "cluster");
+    Map<String, Long> storedBuckets = new HashMap<>();
+    when(rateLimitStorage.getTheoreticalArrival(anyString()))
+                                                         .thenAnswer(invocation -> storedBuckets.getOrDefault(invocation.getArgument(0),
+                                                                                                              -1L));
+    when(rateLimitStorage.compareAndSet(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+      storedBuckets.put(invocation.getArgument(0), invocation.getArgument(2));
+      return true;
+    });
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, eventRateLimiter.acquire("clusterUser", TRIGGER, PROJECT_ID));
+    }
+    assertEquals(EventRateLimiter.REJECTED, eventRateLimiter.acquire("clusterUser", TRIGGER, PROJECT_ID));
+    verify(rateLimitStorage, times(1)).compareAndSet(eq(TRIGGER + ":" + PROJECT_ID + ":clusterUser"), eq(-1L), anyLong());
+  }
+
+  @Test
+  void testAcquireDoesntLimitApprovalEvents() {
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, eventRateLimiter.acquire("approver", APPROVE_SUGGESTION_EVENT_NAME, PROJECT_ID));
+      assertEquals(0, eventRateLimiter.acquire("translator", SUGGESTION_APPROVED_EVENT_NAME, PROJECT_ID));
+    }
+  }
+
+  @Test
+  void testAcquireWhenDisabled() {
+    ReflectionTestUtils.setField(eventRateLimiter, "mode", "disabled");
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, eventRateLimiter.acquire("disabledUser", TRIGGER, PROJECT_ID));
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.services.PartitionedEventDispatcher;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.container.component.ComponentRequestLifecycle;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SpringBootTest(classes = { PartitionedEventDispatcher.class, })
+class PartitionedEventDispatcherTest {
+
+  @MockBean
+  private CrowdinMetricsService      crowdinMetricsService;
+
+  @Autowired
+  private PartitionedEventDispatcher partitionedEventDispatcher;
+
+  @Test
+  void testSamePartitionIsProcessedInOrder() {
+    Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      String key = "project" + (i % 3) + ":" + (i % 17);
+      int sequence = i;
+      futures.add(partitionedEventDispatcher.dispatch(key, () -> {
+        randomPause();
+        processed.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+    assertEquals(2000, processed.values().stream().mapToInt(List::size).sum());
+    processed.values().forEach(this::assertAscending);
+  }
+
+  @Test
+  void testConcurrentProducersKeepPartitionOrder() throws Exception {
+    Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+    ExecutorService producers = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<CompletableFuture<Void>>>> produced = new ArrayList<>();
+      for (int p = 0; p < 4; p++) {
+        String key = "producer" + p;
+        produced.add(producers.submit(() -> {
+          List<CompletableFuture<Void>> futures = new ArrayList<>();
+          for (int i = 0; i < 500; i++) {
+            int sequence = i;
+            futures.add(partitionedEventDispatcher.dispatch(key, () -> {
+              randomPause();
+              processed.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+            }));
+          }
+          return futures;
+        }));
+      }
+      for (Future<List<CompletableFuture<Void>>> future : produced) {
+        CompletableFuture.allOf(future.get(30, TimeUnit.SECONDS).toArray(new CompletableFuture[0])).join();
+      }
+    } finally {
+      producers.shutdown();
+    }
+
+    assertEquals(4, processed.size());
+    processed.values().forEach(sequences -> {
+      assertEquals(500, sequences.size());
+      assertAscending(sequences);
+    });
+  }
+
+  @Test
+  void testDifferentPartitionsRunInParallel() throws Exception {
+    String firstKey = "123:1";
+    String secondKey = findKeyOnOtherLane(firstKey);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+
+    CompletableFuture<Void> first = partitionedEventDispatcher.dispatch(firstKey, () -> awaitLatch(bothStarted));
+    CompletableFuture<Void> second = partitionedEventDispatcher.dispatch(secondKey, () -> awaitLatch(bothStarted));
+
+    CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+    assertEquals(0, bothStarted.getCount());
+  }
+
+  @Test
+  void testFailureDoesNotBlockPartition() {
+    CompletableFuture<Void> failed = partitionedEventDispatcher.dispatch("123:1", () -> {
+      throw new IllegalStateException("error");
+    });
+    List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+    CompletableFuture<Void> next = partitionedEventDispatcher.dispatch("123:1", () -> processed.add(1));
+
+    assertThrows(CompletionException.class, failed::join);
+    next.join();
+    assertEquals(List.of(1), processed);
+  }
+
+  @Test
+  void testEventRunsInContainerRequest() {
+    PortalContainer container = mock(PortalContainer.class);
+    ComponentRequestLifecycle transactionalService = mock(ComponentRequestLifecycle.class);
+    when(container.getComponentInstancesOfType(ComponentRequestLifecycle.class)).thenReturn(List.of(transactionalService));
+    AtomicReference<Thread> requestThread = new AtomicReference<>();
+    doAnswer(invocation -> {
+      requestThread.set(Thread.currentThread());
+      return null;
+    }).when(transactionalService).startRequest(container);
+    AtomicReference<Thread> processingThread = new AtomicReference<>();
+    AtomicReference<Object> processingContainer = new AtomicReference<>();
+
+    ExoContainerContext.setCurrentContainer(container);
+    try {
+      partitionedEventDispatcher.dispatch("123:1", () -> {
+        processingThread.set(Thread.currentThread());
+        processingContainer.set(ExoContainerContext.getCurrentContainerIfPresent());
+      }).join();
+    } finally {
+      ExoContainerContext.setCurrentContainer(null);
+    }
+
+    assertNotSame(Thread.currentThread(), processingThread.get());
+    assertSame(processingThread.get(), requestThread.get());
+    assertSame(container, processingContainer.get());
+    verify(transactionalService, times(1)).endRequest(container);
+  }
+
+  private String findKeyOnOtherLane(String key) {
+    int lane = partitionedEventDispatcher.getLane(key);
+    for (int i = 2;; i++) {
+      String candidate = "123:" + i;
+      if (partitionedEventDispatcher.getLane(candidate) != lane) {
+        return candidate;
+      }
+    }
+  }
+
+  private void assertAscending(List<Integer> sequences) {
+    for (int i = 1; i < sequences.size(); i++) {
+      assertTrue(sequences.get(i - 1) < sequences.get(i), "Events of the same partition processed out of order");
+    }
+  }
+
+  private void awaitLatch(CountDownLatch latch) {
+    latch.countDown();
+    try {
+      assertTrue(latch.await(5, TimeUnit.SECONDS), "Partitions were not processed in parallel");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void randomPause() {
+    if (ThreadLocalRandom.current().nextInt(10) == 0) {
+      Thread.yield();
+    }
+  }
+}
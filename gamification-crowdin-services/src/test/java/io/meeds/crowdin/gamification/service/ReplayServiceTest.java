@@ -0,0 +1,133 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.model.ReplayJob;
+import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.model.WebhookArchive;
+import io.meeds.crowdin.gamification.services.CrowdinTriggerService;
+import io.meeds.crowdin.gamification.services.ReplayService;
+import io.meeds.crowdin.gamification.storage.WebHookStorage;
+import io.meeds.crowdin.gamification.storage.WebhookArchiveStorage;
+import org.exoplatform.commons.exception.ObjectNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(classes = { ReplayService.class, }, properties = "gamification.crowdin.replay.maxEventsPerSecond=0")
+class ReplayServiceTest {
+
+  private static final String   ADMIN_USER = "root";
+
+  private static final String   USER       = "user";
+
+  @MockBean
+  private CrowdinTriggerService crowdinTriggerService;
+
+  @MockBean
+  private WebHookStorage        webHookStorage;
+
+  @MockBean
+  private WebhookArchiveStorage webhookArchiveStorage;
+
+  @Autowired
+  private ReplayService         replayService;
+
+  @Test
+  void testStartReplayValidation() {
+    Date from = new Date(System.currentTimeMillis() - 3600000);
+    Date to = new Date();
+    assertThrows(IllegalAccessException.class, () -> replayService.startReplay(123L, from, to, 0, USER));
+    assertThrows(IllegalArgumentException.class, () -> replayService.startReplay(123L, to, from, 0, ADMIN_USER));
+    assertThrows(IllegalArgumentException.class,
+                 () -> replayService.startReplay(123L, new Date(0), to, 0, ADMIN_USER));
+    assertThrows(ObjectNotFoundException.class, () -> replayService.startReplay(123L, from, to, 0, ADMIN_USER));
+  }
+
+  @Test
+  void testReplay() throws Exception {
+    WebHook webHook = new WebHook();
+    webHook.setProjectId(124L);
+    when(webHookStorage.getWebhookByProjectId(124L)).thenReturn(webHook);
+    Date from = new Date(System.currentTimeMillis() - 3600000);
+    Date to = new Date();
+    when(webhookArchiveStorage.getArchivedBatches(124L, from, to, 5L, 10)).thenReturn(List.of(new WebhookArchive(6L, 124L, from, "payload6"),
+                                                                                            new WebhookArchive(7L, 124L, to, "payload7")));
+    when(crowdinTriggerService.replayBatch(eq(webHook), anyString(), any())).thenReturn(3);
+
+    ReplayJob replayJob = replayService.startReplay(124L, from, to, 5L, ADMIN_USER);
+    assertEquals(ReplayJob.Status.RUNNING, replayJob.getStatus());
+
+    replayJob = awaitReplay(replayJob.getId());
+    assertEquals(ReplayJob.Status.COMPLETED, replayJob.getStatus());
+    assertEquals(7L, replayJob.getCursor());
+    assertEquals(2, replayJob.getReplayedBatches());
+    assertEquals(6, replayJob.getReplayedEvents());
+    verify(crowdinTriggerService, times(1)).replayBatch(eq(webHook), eq("payload6"), any());
+    verify(crowdinTriggerService, times(1)).replayBatch(eq(webHook), eq("payload7"), any());
+  }
+
+  @Test
+  void testCancelReplay() throws Exception {
+    WebHook webHook = new WebHook();
+    webHook.setProjectId(125L);
+    when(webHookStorage.getWebhookByProjectId(125L)).thenReturn(webHook);
+    when(webhookArchiveStorage.getArchivedBatches(eq(125L), any(), any(), anyLong(), anyInt())).thenReturn(List.of(new WebhookArchive(1L, 125L, new Date(), "payload1"),
+                                                                                                                 new WebhookArchive(2L, 125L, new Date(), "payload2")));
+    CountDownLatch replayStarted = new CountDownLatch(1);
+    CountDownLatch replayCancelled = new CountDownLatch(1);
+    when(crowdinTriggerService.replayBatch(eq(webHook), anyString(), any())).thenAnswer(invocation -> {
+      replayStarted.countDown();
+      replayCancelled.await(5, TimeUnit.SECONDS);
+      return 1;
+    });
+    Date from = new Date(System.currentTimeMillis() - 3600000);
+    ReplayJob replayJob = replayService.startReplay(125L, from, new Date(), 0, ADMIN_USER);
+    assertTrue(replayStarted.await(5, TimeUnit.SECONDS));
+    assertThrows(IllegalStateException.class, () -> replayService.startReplay(125L, from, new Date(), 0, ADMIN_USER));
+
+    assertEquals(ReplayJob.Status.CANCELLED, replayService.cancelReplay(replayJob.getId(), ADMIN_USER).getStatus());
+    replayCancelled.countDown();
+
+    replayJob = awaitReplay(replayJob.getId());
+    assertEquals(ReplayJob.Status.CANCELLED, replayJob.getStatus());
+    assertEquals(1L, replayJob.getCursor());
+    verify(crowdinTriggerService, never()).replayBatch(eq(webHook), eq("payload2"), any());
+  }
+
+  private ReplayJob awaitReplay(long jobId) throws Exception {
+    long timeout = System.currentTimeMillis() + 10000;
+    ReplayJob replayJob = replayService.getReplayJob(jobId, ADMIN_USER);
+    while (replayJob.getStatus() == ReplayJob.Status.RUNNING && System.currentTimeMillis() < timeout) {
+      Thread.sleep(20);
+      replayJob = replayService.getReplayJob(jobId, ADMIN_USER);
+    }
+    return replayJob;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.model.WebhookEvent;
+import io.meeds.crowdin.gamification.services.TranslationAuthorService;
+import io.meeds.crowdin.gamification.storage.TranslationAuthorStorage;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest(classes = { TranslationAuthorService.class, })
+class TranslationAuthorServiceTest {
+
+  @MockBean
+  private TranslationAuthorStorage translationAuthorStorage;
+
+  @Autowired
+  private TranslationAuthorService translationAuthorService;
+
+  @Test
+  void testAddAuthor() {
+    WebhookEvent.Translation translation = newTranslation("11", "translator");
+    translationAuthorService.addAuthor(translation);
+
+    verify(translationAuthorStorage, times(1)).saveAuthor(11L, 123L, "translator");
+    assertEquals("translator", translationAuthorService.getAuthor(translation));
+    verify(translationAuthorStorage, never()).getAuthors(anyCollection());
+  }
+
+  @Test
+  void testPreloadAuthors() {
+    when(translationAuthorStorage.getAuthors(List.of(21L, 22L))).thenReturn(Map.of(21L, "translator"));
+    translationAuthorService.preloadAuthors(List.of(new WebhookEvent(SUGGESTION_APPROVED_TRIGGER,
+                                                                     newTranslation("21", null),
+                                                                     null),
+                                                    new WebhookEvent(SUGGESTION_APPROVED_TRIGGER,
+                                                                     newTranslation("21", null),
+                                                                     null),
+                                                    new WebhookEvent(SUGGESTION_DISAPPROVED_TRIGGER,
+                                                                     newTranslation("22", null),
+                                                                     null),
+                                                    new WebhookEvent(SUGGESTION_ADDED_TRIGGER,
+                                                                     newTranslation("23", "translator"),
+                                                                     null)));
+
+    assertEquals("translator", translationAuthorService.getAuthor(newTranslation("21", null)));
+    verify(translationAuthorStorage, times(1)).getAuthors(anyCollection());
+    assertNull(translationAuthorService.getAuthor(newTranslation("22", null)));
+    verify(translationAuthorStorage, times(1)).getAuthors(List.of(22L));
+  }
+
+  @Test
+  void testGetAuthorDoesntCacheMisses() {
+    WebhookEvent.Translation translation = newTranslation("41", null);
+    when(translationAuthorStorage.getAuthors(List.of(41L))).thenReturn(Map.of());
+    assertNull(translationAuthorService.getAuthor(translation));
+
+    when(translationAuthorStorage.getAuthors(List.of(41L))).thenReturn(Map.of(41L, "translator"));
+    assertEquals("translator", translationAuthorService.getAuthor(translation));
+    assertEquals("translator", translationAuthorService.getAuthor(translation));
+    verify(translationAuthorStorage, times(2)).getAuthors(List.of(41L));
+  }
+
+  @Test
+  void testRemoveAuthor() {
+    WebhookEvent.Translation translation = newTranslation("31", "translator");
+    translationAuthorService.addAuthor(translation);
+    translationAuthorService.removeAuthor(translation);
+
+    verify(translationAuthorStorage, times(1)).deleteAuthor(31L);
+    when(translationAuthorStorage.getAuthors(List.of(31L))).thenReturn(Map.of());
+    assertNull(translationAuthorService.getAuthor(translation));
+  }
+
+  private WebhookEvent.Translation newTranslation(String id, String username) {
+    return new WebhookEvent.Translation(id,
+                                        null,
+                                        new WebhookEvent.Language("fr"),
+                                        username == null ? null : new WebhookEvent.User("1", username, username, null),
+                                        new WebhookEvent.StringItem("5",
+                                                                    "text",
+                                                                    new WebhookEvent.File("1", "2"),
+                                                                    new WebhookEvent.Project("123", "en", "project")));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static io.meeds.gamification.utils.Utils.POST_CREATE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_DELETE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_UPDATE_RULE_EVENT;
+import static io.meeds.gamification.utils.Utils.POST_UPDATE_TRIGGER_EVENT;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.services.TriggerEnablementCache;
+import io.meeds.gamification.service.TriggerService;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.listener.ListenerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@SpringBootTest(classes = { TriggerEnablementCache.class, })
+class TriggerEnablementCacheTest {
+
+  private static final Map<String, Boolean>      CACHE_CONTENT = new HashMap<>();
+
+  @SuppressWarnings("unchecked")
+  private static final ExoCache<String, Boolean> TRIGGER_CACHE = mock(ExoCache.class);
+
+  static {
+    when(TRIGGER_CACHE.get(any())).thenAnswer(invocation -> CACHE_CONTENT.get(invocation.getArgument(0)));
+    doAnswer(invocation -> CACHE_CONTENT.put(invocation.getArgument(0), invocation.getArgument(1))).when(TRIGGER_CACHE)
+                                                                                                  .put(any(), any());
+    doAnswer(invocation -> {
+      CACHE_CONTENT.clear();
+      return null;
+    }).when(TRIGGER_CACHE).clearCache();
+  }
+
+  @MockBean
+  private CacheService                           cacheService;
+
+  @MockBean
+  private TriggerService                         triggerService;
+
+  @MockBean
+  private ListenerService                        listenerService;
+
+  @Autowired
+  private TriggerEnablementCache                 triggerEnablementCache;
+
+  @BeforeEach
+  void setup() {
+    CACHE_CONTENT.clear();
+    when(cacheService.<String, Boolean> getCacheInstance(TRIGGER_CACHE_NAME)).thenReturn(TRIGGER_CACHE);
+  }
+
+  @Test
+  void testIsTriggerEnabled() {
+    when(triggerService.isTriggerEnabledForAccount(SUGGESTION_ADDED_EVENT_NAME, 123L)).thenReturn(true);
+
+    assertTrue(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L));
+    assertTrue(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L));
+    assertFalse(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 456L));
+    assertFalse(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 456L));
+    verify(triggerService, times(1)).isTriggerEnabledForAccount(SUGGESTION_ADDED_EVENT_NAME, 123L);
+    verify(triggerService, times(1)).isTriggerEnabledForAccount(SUGGESTION_ADDED_EVENT_NAME, 456L);
+  }
+
+  @Test
+  void testListensToRulesAndTriggersChanges() {
+    clearInvocations(listenerService);
+    triggerEnablementCache.init();
+
+    verify(listenerService, times(1)).addListener(POST_CREATE_RULE_EVENT, triggerEnablementCache);
+    verify(listenerService, times(1)).addListener(POST_UPDATE_RULE_EVENT, triggerEnablementCache);
+    verify(listenerService, times(1)).addListener(POST_DELETE_RULE_EVENT, triggerEnablementCache);
+    verify(listenerService, times(1)).addListener(POST_UPDATE_TRIGGER_EVENT, triggerEnablementCache);
+  }
+
+  @Test
+  void testRuleChangeClearsSnapshot() {
+    when(triggerService.isTriggerEnabledForAccount(SUGGESTION_ADDED_EVENT_NAME, 123L)).thenReturn(true);
+    assertTrue(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L));
+
+    when(triggerService.isTriggerEnabledForAccount(SUGGESTION_ADDED_EVENT_NAME, 123L)).thenReturn(false);
+    triggerEnablementCache.onEvent(null);
+
+    assertFalse(triggerEnablementCache.isTriggerEnabled(SUGGESTION_ADDED_EVENT_NAME, 123L));
+    verify(triggerService, times(2)).isTriggerEnabledForAccount(SUGGESTION_ADDED_EVENT_NAME, 123L);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.services.PartitionedEventDispatcher;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+@SpringBootTest(classes = { PartitionedEventDispatcher.class, }, properties = {
+  "gamification.crowdin.webhook.executionMode=virtual",
+  "gamification.crowdin.webhook.virtual.maxConcurrency=5",
+})
+class VirtualPartitionedEventDispatcherTest {
+
+  @MockBean
+  private CrowdinMetricsService      crowdinMetricsService;
+
+  @Autowired
+  private PartitionedEventDispatcher partitionedEventDispatcher;
+
+  @Test
+  void testSamePartitionIsProcessedInOrder() {
+    assertTrue(partitionedEventDispatcher.isVirtualMode());
+    Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      String key = "project" + (i % 3) + ":" + (i % 17);
+      int sequence = i;
+      futures.add(partitionedEventDispatcher.dispatch(key, () -> {
+        if (sequence % 7 == 0) {
+          throw new IllegalStateException("error");
+        }
+        processed.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+      }));
+    }
+    CompletableFuture.allOf(futures.stream().map(f -> f.exceptionally(e -> null)).toArray(CompletableFuture[]::new)).join();
+
+    assertEquals(2000 - 286, processed.values().stream().mapToInt(List::size).sum());
+    processed.values().forEach(sequences -> {
+      for (int i = 1; i < sequences.size(); i++) {
+        assertTrue(sequences.get(i - 1) < sequences.get(i), "Events of the same partition processed out of order");
+      }
+    });
+  }
+
+  @Test
+  void testGetLaneNotAvailable() {
+    assertThrows(IllegalStateException.class, () -> partitionedEventDispatcher.getLane("project1:1"));
+  }
+
+  @Test
+  void testMaxConcurrency() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      futures.add(partitionedEventDispatcher.dispatch("123:" + i, () -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        LockSupport.parkNanos(1_000_000);
+        running.decrementAndGet();
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+    assertTrue(maxRunning.get() <= 5, "Concurrency limit exceeded: " + maxRunning.get());
+    assertTrue(maxRunning.get() > 1, "Partitions were not processed in parallel");
+  }
+}
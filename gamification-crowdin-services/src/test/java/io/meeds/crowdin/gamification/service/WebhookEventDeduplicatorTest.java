@@ -0,0 +1,133 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.services.WebhookEventDeduplicator;
+import io.meeds.crowdin.gamification.storage.ProcessedEventStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SpringBootTest(classes = { WebhookEventDeduplicator.class, })
+class WebhookEventDeduplicatorTest {
+
+  private static final String      APPROVED_TRIGGER    = "suggestion.approved";
+
+  private static final String      DISAPPROVED_TRIGGER = "suggestion.disapproved";
+
+  private final Map<String, Date>  processedDates      = new HashMap<>();
+
+  private final AtomicLong         clock               = new AtomicLong(System.currentTimeMillis());
+
+  @MockBean
+  private ProcessedEventStorage    processedEventStorage;
+
+  @Autowired
+  private WebhookEventDeduplicator webhookEventDeduplicator;
+
+  @BeforeEach
+  void setup() {
+    processedDates.clear();
+    when(processedEventStorage.getProcessedDates(anyCollection())).thenAnswer(invocation -> {
+      Map<String, Date> result = new HashMap<>();
+      invocation.<Collection<String>> getArgument(0).forEach(key -> {
+        if (processedDates.containsKey(key)) {
+          result.put(key, processedDates.get(key));
+        }
+      });
+      return result;
+    });
+    // Events processed one after the other get distinct processing dates
+    doAnswer(invocation -> processedDates.put(invocation.getArgument(0),
+                                              new Date(clock.incrementAndGet()))).when(processedEventStorage)
+                                                                                 .markProcessed(anyString(), any());
+  }
+
+  @Test
+  void testIsDuplicate() {
+    String eventKey = WebhookEventDeduplicator.getEventKey(APPROVED_TRIGGER, "123", "1");
+    String counterpartKey = WebhookEventDeduplicator.getEventKey(DISAPPROVED_TRIGGER, "123", "1");
+    assertFalse(webhookEventDeduplicator.isDuplicate(eventKey, counterpartKey));
+
+    webhookEventDeduplicator.markProcessed(eventKey);
+    verify(processedEventStorage, times(1)).markProcessed(eq(eventKey), any());
+
+    assertTrue(webhookEventDeduplicator.isDuplicate(eventKey, counterpartKey));
+    assertTrue(webhookEventDeduplicator.isDuplicate(eventKey, null));
+  }
+
+  @Test
+  void testIsDuplicateOnlyWithinRedeliveryWindow() {
+    String eventKey = WebhookEventDeduplicator.getEventKey(APPROVED_TRIGGER, "123", "2");
+    processedDates.put(eventKey, new Date(System.currentTimeMillis() - 7200000L));
+
+    assertFalse(webhookEventDeduplicator.isDuplicate(eventKey, null));
+  }
+
+  @Test
+  void testStateChangesAreNotDuplicates() {
+    String approvedKey = WebhookEventDeduplicator.getEventKey(APPROVED_TRIGGER, "123", "3");
+    String disapprovedKey = WebhookEventDeduplicator.getEventKey(DISAPPROVED_TRIGGER, "123", "3");
+
+    // Approved, disapproved then approved again
+    assertTrue(process(approvedKey, disapprovedKey));
+    assertTrue(process(disapprovedKey, approvedKey));
+    assertTrue(process(approvedKey, disapprovedKey));
+
+    // Redelivery of the last state change
+    assertFalse(process(approvedKey, disapprovedKey));
+  }
+
+  @Test
+  void testIsProcessedWhateverTheRedeliveryWindow() {
+    String approvedKey = WebhookEventDeduplicator.getEventKey(APPROVED_TRIGGER, "123", "4");
+    String disapprovedKey = WebhookEventDeduplicator.getEventKey(DISAPPROVED_TRIGGER, "123", "4");
+    assertFalse(webhookEventDeduplicator.isProcessed(approvedKey, disapprovedKey));
+
+    processedDates.put(disapprovedKey, new Date(System.currentTimeMillis() - 7200000L));
+    assertTrue(webhookEventDeduplicator.isProcessed(approvedKey, disapprovedKey));
+  }
+
+  @Test
+  void testPurgeExpiredEvents() {
+    webhookEventDeduplicator.purgeExpiredEvents();
+    verify(processedEventStorage, times(1)).deleteProcessedBefore(any(Date.class));
+  }
+
+  private boolean process(String eventKey, String counterpartEventKey) {
+    if (webhookEventDeduplicator.isDuplicate(eventKey, counterpartEventKey)) {
+      return false;
+    }
+    webhookEventDeduplicator.markProcessed(eventKey);
+    return true;
+  }
+}
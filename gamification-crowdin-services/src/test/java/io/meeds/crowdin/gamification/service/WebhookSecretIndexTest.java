@@ -0,0 +1,89 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.services.WebhookSecretIndex;
+import io.meeds.crowdin.gamification.storage.WebHookStorage;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.List;
+
+@SpringBootTest(classes = { WebhookSecretIndex.class, })
+class WebhookSecretIndexTest {
+
+  @MockBean
+  private WebHookStorage     webHookStorage;
+
+  @Autowired
+  private WebhookSecretIndex webhookSecretIndex;
+
+  @Test
+  void testGetWebhookBySecret() {
+    WebHook webHook = newWebHook(1L, "secret");
+    when(webHookStorage.getWebhooks(0, -1)).thenReturn(List.of(webHook));
+    webhookSecretIndex.invalidate();
+
+    assertEquals(webHook, webhookSecretIndex.getWebhookBySecret("secret"));
+    assertEquals(webHook, webhookSecretIndex.getWebhookBySecret("secret"));
+    verify(webHookStorage, times(1)).getWebhooks(0, -1);
+
+    assertNull(webhookSecretIndex.getWebhookBySecret(null));
+    assertNull(webhookSecretIndex.getWebhookBySecret(""));
+  }
+
+  @Test
+  void testUnknownSecretReloadIsThrottled() {
+    when(webHookStorage.getWebhooks(0, -1)).thenReturn(List.of(newWebHook(1L, "secret")));
+    webhookSecretIndex.invalidate();
+
+    for (int i = 0; i < 10; i++) {
+      assertNull(webhookSecretIndex.getWebhookBySecret("forged" + i));
+    }
+    verify(webHookStorage, times(1)).getWebhooks(0, -1);
+  }
+
+  @Test
+  void testInvalidate() {
+    when(webHookStorage.getWebhooks(0, -1)).thenReturn(List.of(newWebHook(1L, "secret")));
+    webhookSecretIndex.invalidate();
+    assertNull(webhookSecretIndex.getWebhookBySecret("newSecret"));
+
+    WebHook newWebHook = newWebHook(2L, "newSecret");
+    when(webHookStorage.getWebhooks(0, -1)).thenReturn(List.of(newWebHook(1L, "secret"), newWebHook));
+    webhookSecretIndex.invalidate();
+
+    assertEquals(newWebHook, webhookSecretIndex.getWebhookBySecret("newSecret"));
+  }
+
+  private WebHook newWebHook(long projectId, String secret) {
+    WebHook webHook = new WebHook();
+    webHook.setProjectId(projectId);
+    webHook.setSecret(secret);
+    return webHook;
+  }
+}
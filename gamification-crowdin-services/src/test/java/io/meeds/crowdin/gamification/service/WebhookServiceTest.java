@@ -31,6 +31,7 @@ import org.exoplatform.commons.exception.ObjectNotFoundException;
 
 import io.meeds.crowdin.gamification.model.RemoteProject;
 import io.meeds.crowdin.gamification.model.WebHook;
+import io.meeds.crowdin.gamification.services.WebhookSecretIndex;
 import io.meeds.crowdin.gamification.services.WebhookService;
 import io.meeds.crowdin.gamification.storage.CrowdinConsumerStorage;
 import io.meeds.crowdin.gamification.storage.WebHookStorage;
@@ -57,6 +58,9 @@ class WebhookServiceTest {
   @MockBean
   private WebHookStorage         webHookStorage;
 
+  @MockBean
+  private WebhookSecretIndex     webhookSecretIndex;
+
   @Autowired
   private WebhookService         webhookService;
 
@@ -172,6 +176,7 @@ class WebhookServiceTest {
 
     // Then
     assertNotNull(deletedWebhook);
+    verify(webhookSecretIndex, atLeastOnce()).invalidate();
   }
 
   @Test
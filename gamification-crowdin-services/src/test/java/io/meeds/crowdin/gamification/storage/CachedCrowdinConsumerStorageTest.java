@@ -0,0 +1,128 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import io.meeds.crowdin.gamification.model.RemoteDirectory;
+import io.meeds.crowdin.gamification.model.RemoteProject;
+import io.meeds.crowdin.gamification.services.CrowdinMetricsService;
+import io.meeds.crowdin.gamification.storage.cached.CachedCrowdinConsumerStorage;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest(classes = { CachedCrowdinConsumerStorage.class, })
+class CachedCrowdinConsumerStorageTest {
+
+  private static final String                         ACCESS_TOKEN  = "accessToken";
+
+  private static final Map<String, Serializable>      CACHE_CONTENT = new HashMap<>();
+
+  @SuppressWarnings("unchecked")
+  private static final ExoCache<String, Serializable> CACHE         = mock(ExoCache.class);
+
+  static {
+    when(CACHE.get(any())).thenAnswer(invocation -> CACHE_CONTENT.get(invocation.getArgument(0)));
+    doAnswer(invocation -> CACHE_CONTENT.put(invocation.getArgument(0), invocation.getArgument(1))).when(CACHE).put(any(), any());
+    doAnswer(invocation -> {
+      CACHE_CONTENT.clear();
+      return null;
+    }).when(CACHE).clearCache();
+  }
+
+  @MockBean
+  private CacheService                                cacheService;
+
+  @MockBean
+  private CrowdinMetricsService                       crowdinMetricsService;
+
+  @Autowired
+  private CachedCrowdinConsumerStorage                cachedCrowdinConsumerStorage;
+
+  @BeforeEach
+  void setup() {
+    CACHE_CONTENT.clear();
+    when(cacheService.<String, Serializable> getCacheInstance(any())).thenReturn(CACHE);
+  }
+
+  @Test
+  void testGetCachedProjects() throws Exception {
+    RemoteProject project = new RemoteProject(12L, "meeds", "Meeds", null, null, null);
+    CACHE_CONTENT.put(hash(ACCESS_TOKEN), new ArrayList<>(List.of(project)));
+
+    List<RemoteProject> projects = cachedCrowdinConsumerStorage.getProjects(ACCESS_TOKEN);
+    assertEquals(List.of(project), projects);
+    assertNotSame(project, projects.get(0));
+    verify(crowdinMetricsService, times(1)).increment(REMOTE_CACHE_HIT_METRIC);
+    verify(crowdinMetricsService, never()).increment(REMOTE_CACHE_MISS_METRIC);
+  }
+
+  @Test
+  void testRetrieveCachedRemoteProject() throws Exception {
+    RemoteProject project = new RemoteProject(12L, "meeds", "Meeds", null, null, null);
+    CACHE_CONTENT.put("12:true:" + hash(ACCESS_TOKEN), project);
+
+    RemoteProject remoteProject = cachedCrowdinConsumerStorage.retrieveRemoteProject(12L, true, ACCESS_TOKEN);
+    assertEquals(project, remoteProject);
+    assertNotSame(project, remoteProject);
+    // The token hash is part of the key, the token itself is never stored
+    assertTrue(CACHE_CONTENT.keySet().stream().noneMatch(key -> key.contains(ACCESS_TOKEN)));
+  }
+
+  @Test
+  void testGetCachedProjectDirectories() throws Exception {
+    RemoteDirectory directory = new RemoteDirectory(4L, 12L, "/docs", null);
+    CACHE_CONTENT.put("12:0:500:" + hash(ACCESS_TOKEN), new ArrayList<>(List.of(directory)));
+
+    assertEquals(List.of(directory), cachedCrowdinConsumerStorage.getProjectDirectories(12L, 0, 500, ACCESS_TOKEN));
+    verify(crowdinMetricsService, times(1)).increment(REMOTE_CACHE_HIT_METRIC);
+  }
+
+  @Test
+  void testClearCache() {
+    CACHE_CONTENT.put("12:true:" + hash(ACCESS_TOKEN), new RemoteProject());
+
+    cachedCrowdinConsumerStorage.clearCache();
+
+    assertTrue(CACHE_CONTENT.isEmpty());
+  }
+
+  private String hash(String token) throws Exception {
+    MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+    return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.meeds.crowdin.gamification.exception.CrowdinRateLimitException;
+import io.meeds.crowdin.gamification.storage.CrowdinApiRateLimiter.Reservation;
+
+class CrowdinApiRateLimiterTest {
+
+  private static final String TOKEN_KEY       = "tokenKey";
+
+  private static final String OTHER_TOKEN_KEY = "otherTokenKey";
+
+  @Test
+  void testReserveWithinCapacity() {
+    CrowdinApiRateLimiter rateLimiter = new CrowdinApiRateLimiter(2, 0.01, 0);
+    assertEquals(0, rateLimiter.reserve(TOKEN_KEY).delay());
+    assertEquals(0, rateLimiter.reserve(TOKEN_KEY).delay());
+    CrowdinRateLimitException exception = assertThrows(CrowdinRateLimitException.class, () -> rateLimiter.reserve(TOKEN_KEY));
+    assertTrue(exception.getRetryAfter() > 0);
+
+    // Each access token has its own bucket
+    assertEquals(0, rateLimiter.reserve(OTHER_TOKEN_KEY).delay());
+  }
+
+  @Test
+  void testReserveQueuesCallers() {
+    CrowdinApiRateLimiter rateLimiter = new CrowdinApiRateLimiter(1, 20, 1000);
+    assertEquals(0, rateLimiter.reserve(TOKEN_KEY).delay());
+    // Callers reserve the next permits in their arrival order
+    long firstDelay = rateLimiter.reserve(TOKEN_KEY).delay();
+    long secondDelay = rateLimiter.reserve(TOKEN_KEY).delay();
+    assertTrue(firstDelay > 0 && firstDelay <= 50);
+    assertTrue(secondDelay > firstDelay && secondDelay <= 100);
+  }
+
+  @Test
+  void testUpdateWithRateLimitHeaders() {
+    CrowdinApiRateLimiter rateLimiter = new CrowdinApiRateLimiter(10, 10, 0);
+    rateLimiter.update(TOKEN_KEY, 0, System.currentTimeMillis() + 5000);
+    CrowdinRateLimitException exception = assertThrows(CrowdinRateLimitException.class, () -> rateLimiter.reserve(TOKEN_KEY));
+    assertEquals(5, exception.getRetryAfter());
+
+    rateLimiter.update(OTHER_TOKEN_KEY, 1, null);
+    assertEquals(0, rateLimiter.reserve(OTHER_TOKEN_KEY).delay());
+    assertThrows(CrowdinRateLimitException.class, () -> rateLimiter.reserve(OTHER_TOKEN_KEY));
+  }
+
+  @Test
+  void testBlock() {
+    CrowdinApiRateLimiter rateLimiter = new CrowdinApiRateLimiter(10, 10, 200);
+    rateLimiter.block(TOKEN_KEY, 3000);
+    CrowdinRateLimitException exception = assertThrows(CrowdinRateLimitException.class, () -> rateLimiter.reserve(TOKEN_KEY));
+    assertEquals(3, exception.getRetryAfter());
+
+    // A short suspension is waited instead of failing
+    rateLimiter.block(OTHER_TOKEN_KEY, 50);
+    long delay = rateLimiter.reserve(OTHER_TOKEN_KEY).delay();
+    assertTrue(delay > 0 && delay <= 50);
+  }
+
+  @Test
+  void testBlockInvalidatesQueuedReservations() {
+    CrowdinApiRateLimiter rateLimiter = new CrowdinApiRateLimiter(1, 10, 5000);
+    Reservation sentReservation = rateLimiter.reserve(TOKEN_KEY);
+    List<Reservation> queuedReservations = List.of(rateLimiter.reserve(TOKEN_KEY),
+                                                   rateLimiter.reserve(TOKEN_KEY),
+                                                   rateLimiter.reserve(TOKEN_KEY));
+    queuedReservations.forEach(reservation -> assertTrue(reservation.delay() > 0 && reservation.delay() <= 300));
+
+    // The sent request is rejected while the other callers are waiting
+    rateLimiter.block(TOKEN_KEY, 2000);
+    assertFalse(rateLimiter.isValid(TOKEN_KEY, sentReservation));
+    queuedReservations.forEach(reservation -> assertFalse(rateLimiter.isValid(TOKEN_KEY, reservation)));
+
+    // Waiting callers reserve again, after the suspension and in order
+    long previousDelay = 0;
+    for (int i = 0; i < queuedReservations.size(); i++) {
+      Reservation reservation = rateLimiter.reserve(TOKEN_KEY);
+      assertTrue(reservation.delay() >= 1900 && reservation.delay() > previousDelay);
+      assertTrue(rateLimiter.isValid(TOKEN_KEY, reservation));
+      previousDelay = reservation.delay();
+    }
+
+    // A suspension that doesn't extend the current one keeps the reservations
+    Reservation reservation = rateLimiter.reserve(TOKEN_KEY);
+    rateLimiter.block(TOKEN_KEY, 100);
+    assertTrue(rateLimiter.isValid(TOKEN_KEY, reservation));
+  }
+}
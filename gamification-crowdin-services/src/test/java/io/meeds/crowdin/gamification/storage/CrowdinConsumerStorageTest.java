@@ -0,0 +1,333 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.meeds.crowdin.gamification.exception.CrowdinRateLimitException;
+import io.meeds.crowdin.gamification.model.RemoteDirectory;
+import io.meeds.crowdin.gamification.model.RemoteProject;
+import io.meeds.crowdin.gamification.model.WebHook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(classes = { CrowdinConsumerStorage.class, })
+class CrowdinConsumerStorageTest {
+
+  private static final String    ACCESS_TOKEN     = "accessToken";
+
+  private static final String    PROJECT_ETAG     = "\"project-v1\"";
+
+  private static final String    DIRECTORIES_DATE = "Tue, 06 Oct 2026 08:00:00 GMT";
+
+  private static final String    PROJECT_BODY     = """
+      {"data":{"id":12,"identifier":"meeds","name":"Meeds","logo":null,
+      "targetLanguages":[{"id":"fr","name":"French"}]}}""";
+
+  private static final String    DIRECTORIES_BODY = """
+      {"data":[{"data":{"id":4,"projectId":12,"path":"/docs","directoryId":null}},
+      {"data":{"id":5,"projectId":12,"path":"/docs/api","directoryId":4}}]}""";
+
+  @Autowired
+  private CrowdinConsumerStorage crowdinConsumerStorage;
+
+  private HttpServer             server;
+
+  private final List<Integer>    statusCodes      = new CopyOnWriteArrayList<>();
+
+  private final List<Integer>    bodySizes        = new CopyOnWriteArrayList<>();
+
+  private final List<Long>       responseTimes    = new CopyOnWriteArrayList<>();
+
+  private final CountDownLatch   release          = new CountDownLatch(1);
+
+  @BeforeEach
+  void setup() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/projects/12/directories", exchange -> {
+      if (DIRECTORIES_DATE.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+        respond(exchange, 304, null);
+      } else {
+        exchange.getResponseHeaders().add("Last-Modified", DIRECTORIES_DATE);
+        respond(exchange, 200, DIRECTORIES_BODY);
+      }
+    });
+    server.createContext("/projects/12", exchange -> {
+      if (PROJECT_ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        respond(exchange, 304, null);
+      } else {
+        exchange.getResponseHeaders().add("ETag", PROJECT_ETAG);
+        respond(exchange, 200, PROJECT_BODY);
+      }
+    });
+    server.createContext("/projects/13", exchange -> {
+      awaitRelease();
+      respond(exchange, 200, PROJECT_BODY);
+    });
+    server.createContext("/projects/14", exchange -> {
+      awaitRelease();
+      respond(exchange, 500, null);
+    });
+    server.createContext("/projects/15", exchange -> {
+      if (statusCodes.isEmpty()) {
+        exchange.getResponseHeaders().add("Retry-After", "1");
+        respond(exchange, 429, null);
+      } else {
+        respond(exchange, 200, PROJECT_BODY);
+      }
+    });
+    server.createContext("/projects/16", exchange -> respond(exchange, 429, null));
+    server.createContext("/projects/17/directories", exchange -> {
+      responseTimes.add(System.currentTimeMillis());
+      if (statusCodes.isEmpty()) {
+        exchange.getResponseHeaders().add("Retry-After", "1");
+        respond(exchange, 429, null);
+      } else {
+        respond(exchange, 200, DIRECTORIES_BODY);
+      }
+    });
+    server.start();
+    ReflectionTestUtils.setField(crowdinConsumerStorage, "apiUrl", "http://localhost:" + server.getAddress().getPort());
+    ReflectionTestUtils.setField(crowdinConsumerStorage, "rateLimitMaxRetries", 2);
+    ReflectionTestUtils.setField(crowdinConsumerStorage, "rateLimitRetryDelay", 10L);
+    crowdinConsumerStorage.initClient();
+  }
+
+  @AfterEach
+  void teardown() {
+    server.stop(0);
+  }
+
+  @Test
+  void testRetrieveRemoteProjectRevalidatesWithEtag() throws Exception {
+    RemoteProject project = crowdinConsumerStorage.retrieveRemoteProject(12L, true, ACCESS_TOKEN);
+    assertEquals("Meeds", project.getName());
+    assertEquals(1, project.getLanguages().size());
+
+    RemoteProject revalidatedProject = crowdinConsumerStorage.retrieveRemoteProject(12L, true, ACCESS_TOKEN);
+    assertEquals(project, revalidatedProject);
+    assertNotSame(project, revalidatedProject);
+    // The revalidation costs a round trip without body
+    assertEquals(List.of(200, 304), statusCodes);
+    assertEquals(0, bodySizes.get(1));
+
+    // Validators aren't shared between tokens
+    crowdinConsumerStorage.retrieveRemoteProject(12L, true, "otherToken");
+    assertEquals(List.of(200, 304, 200), statusCodes);
+  }
+
+  @Test
+  void testGetProjectDirectoriesRevalidatesWithLastModified() throws Exception {
+    List<RemoteDirectory> directories = crowdinConsumerStorage.getProjectDirectories(12L, 0, 500, ACCESS_TOKEN);
+    assertEquals(2, directories.size());
+    assertEquals(4L, directories.get(1).getParentId());
+
+    assertEquals(directories, crowdinConsumerStorage.getProjectDirectories(12L, 0, 500, ACCESS_TOKEN));
+    assertEquals(List.of(200, 304), statusCodes);
+    assertTrue(bodySizes.get(0) > 0);
+    assertEquals(0, bodySizes.get(1));
+  }
+
+  @Test
+  void testComposeAsyncCalls() throws Exception {
+    CompletableFuture<RemoteProject> project = crowdinConsumerStorage.retrieveRemoteProjectAsync(12L, true, ACCESS_TOKEN);
+    CompletableFuture<List<RemoteDirectory>> directories = crowdinConsumerStorage.getProjectDirectoriesAsync(12L,
+                                                                                                           0,
+                                                                                                           500,
+                                                                                                           ACCESS_TOKEN);
+    assertEquals("Meeds:2", project.thenCombine(directories, (p, d) -> p.getName() + ":" + d.size()).get(10, TimeUnit.SECONDS));
+    assertEquals(List.of(200, 200), statusCodes);
+
+    // Errors are reported through the returned future
+    ExecutionException exception = assertThrows(ExecutionException.class,
+                                                 () -> crowdinConsumerStorage.retrieveRemoteProjectAsync(16L, true, ACCESS_TOKEN)
+                                                                             .get(10, TimeUnit.SECONDS));
+    assertInstanceOf(CrowdinRateLimitException.class, exception.getCause());
+  }
+
+  @Test
+  void testRetrieveRemoteProjectCoalescesConcurrentCalls() throws Exception {
+    List<RemoteProject> projects = new CopyOnWriteArrayList<>();
+    List<Thread> threads = startConcurrentCalls(13L, () -> {
+      RemoteProject project = crowdinConsumerStorage.retrieveRemoteProject(13L, true, ACCESS_TOKEN);
+      projects.add(project);
+    });
+    release.countDown();
+    joinAll(threads);
+
+    // A single request reached Crowdin for the concurrent identical calls
+    assertEquals(List.of(200), statusCodes);
+    assertEquals(threads.size(), projects.size());
+    for (RemoteProject project : projects) {
+      assertEquals("Meeds", project.getName());
+      assertEquals(projects.get(0), project);
+      // Each caller gets its own copy of the shared response
+      assertEquals(1, projects.stream().filter(p -> p == project).count());
+    }
+  }
+
+  @Test
+  void testRetrieveRemoteProjectPropagatesCoalescedError() throws Exception {
+    List<Exception> errors = new CopyOnWriteArrayList<>();
+    List<Thread> threads = startConcurrentCalls(14L, () -> {
+      try {
+        crowdinConsumerStorage.retrieveRemoteProject(14L, true, ACCESS_TOKEN);
+      } catch (IllegalAccessException e) {
+        errors.add(e);
+      }
+    });
+    release.countDown();
+    joinAll(threads);
+
+    assertEquals(List.of(500), statusCodes);
+    assertEquals(threads.size(), errors.size());
+
+    // Failed requests aren't kept in flight
+    assertThrows(IllegalAccessException.class, () -> crowdinConsumerStorage.retrieveRemoteProject(14L, true, ACCESS_TOKEN));
+    assertEquals(List.of(500, 500), statusCodes);
+  }
+
+  @Test
+  void testRetrieveRemoteProjectRetriesAfterRetryAfterDelay() throws Exception {
+    long start = System.currentTimeMillis();
+    RemoteProject project = crowdinConsumerStorage.retrieveRemoteProject(15L, true, ACCESS_TOKEN);
+    assertEquals("Meeds", project.getName());
+    assertEquals(List.of(429, 200), statusCodes);
+    // The retry waits for the delay sent in Retry-After header
+    assertTrue(System.currentTimeMillis() - start >= 900);
+  }
+
+  @Test
+  void testTooManyRequestsAfterRetries() {
+    CrowdinRateLimitException exception = assertThrows(CrowdinRateLimitException.class,
+                                                       () -> crowdinConsumerStorage.retrieveRemoteProject(16L,
+                                                                                                          true,
+                                                                                                          ACCESS_TOKEN));
+    assertTrue(exception.getRetryAfter() > 0);
+    assertEquals(List.of(429, 429, 429), statusCodes);
+
+    // Requests that aren't idempotent aren't retried
+    WebHook webHook = new WebHook();
+    webHook.setProjectId(16L);
+    webHook.setWebhookId(1L);
+    webHook.setToken(ACCESS_TOKEN);
+    assertThrows(CrowdinRateLimitException.class, () -> crowdinConsumerStorage.deleteWebhook(webHook));
+    assertEquals(List.of(429, 429, 429, 429), statusCodes);
+  }
+
+  @Test
+  void testQueuedCallsWaitForRetryAfterDelay() throws Exception {
+    ReflectionTestUtils.setField(crowdinConsumerStorage, "rateLimitCapacity", 1);
+    ReflectionTestUtils.setField(crowdinConsumerStorage, "rateLimitPerSecond", 2d);
+    crowdinConsumerStorage.initClient();
+    // Open the connection beforehand, so that the first call is sent first
+    crowdinConsumerStorage.retrieveRemoteProject(12L, true, "otherToken");
+    statusCodes.clear();
+
+    // The first call is rejected while the others wait for their permit
+    List<CompletableFuture<List<RemoteDirectory>>> calls = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      calls.add(crowdinConsumerStorage.getProjectDirectoriesAsync(17L, i * 500, 500, ACCESS_TOKEN));
+    }
+    CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+    assertEquals(List.of(429, 200, 200, 200, 200), statusCodes);
+    // No queued call was sent within the Retry-After delay
+    long rejectionTime = responseTimes.get(0);
+    responseTimes.subList(1, responseTimes.size()).forEach(time -> assertTrue(time - rejectionTime >= 900));
+  }
+
+  /**
+   * Starts concurrent calls and waits until all of them wait for the in-flight
+   * request
+   */
+  private List<Thread> startConcurrentCalls(long projectId, ConcurrentCall call) throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          call.run();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }, "crowdin-call-" + projectId + "-" + i);
+      threads.add(thread);
+      thread.start();
+    }
+    long deadline = System.currentTimeMillis() + 10000;
+    while (threads.stream().filter(thread -> thread.getState() == Thread.State.WAITING).count() < threads.size()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Concurrent calls didn't wait for the in-flight request");
+      Thread.sleep(10);
+    }
+    return threads;
+  }
+
+  private void joinAll(List<Thread> threads) throws InterruptedException {
+    for (Thread thread : threads) {
+      thread.join(10000);
+      assertFalse(thread.isAlive());
+    }
+  }
+
+  private void awaitRelease() throws IOException {
+    try {
+      if (!release.await(10, TimeUnit.SECONDS)) {
+        throw new IOException("Request not released");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ConcurrentCall {
+    void run() throws Exception;
+  }
+
+  private void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+    byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+    statusCodes.add(statusCode);
+    bodySizes.add(bytes.length);
+    exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import io.meeds.crowdin.gamification.dao.WebhookBatchDAO;
+import io.meeds.crowdin.gamification.entity.WebhookBatchEntity;
+import io.meeds.crowdin.gamification.model.WebhookBatch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+@SpringBootTest(classes = { WebhookInboxStorage.class, })
+class WebhookInboxStorageTest {
+
+  private static final String NODE_ID = "node1";
+
+  @Autowired
+  private WebhookInboxStorage webhookInboxStorage;
+
+  @MockBean
+  private WebhookBatchDAO     webhookBatchDAO;
+
+  @Test
+  void testClaimBatch() {
+    // Given
+    when(webhookBatchDAO.findClaimableBatchIds(any(), any())).thenReturn(List.of(1L, 2L, 3L));
+    when(webhookBatchDAO.claimBatch(eq(1L), eq(NODE_ID), any(), any())).thenReturn(0);
+    when(webhookBatchDAO.claimBatch(eq(2L), eq(NODE_ID), any(), any())).thenReturn(1);
+    when(webhookBatchDAO.findById(2L)).thenReturn(Optional.of(newBatchEntity(2L)));
+
+    // When
+    WebhookBatch batch = webhookInboxStorage.claimBatch(NODE_ID, 1000);
+
+    // Then
+    assertNotNull(batch);
+    assertEquals(2L, batch.getId());
+    verify(webhookBatchDAO, never()).claimBatch(eq(3L), anyString(), any(), any());
+  }
+
+  @Test
+  void testClaimBatchWhenAllLeased() {
+    // Given
+    when(webhookBatchDAO.findClaimableBatchIds(any(), any())).thenReturn(List.of(1L));
+    when(webhookBatchDAO.claimBatch(anyLong(), anyString(), any(), any())).thenReturn(0);
+
+    // When
+    WebhookBatch batch = webhookInboxStorage.claimBatch(NODE_ID, 1000);
+
+    // Then
+    assertNull(batch);
+    verify(webhookBatchDAO, never()).findById(any());
+  }
+
+  @Test
+  void testDeleteBatchLeasedByAnotherNode() {
+    // Given
+    when(webhookBatchDAO.deleteLeasedBatch(1L, NODE_ID)).thenReturn(1);
+    when(webhookBatchDAO.deleteLeasedBatch(2L, NODE_ID)).thenReturn(0);
+
+    // Then
+    assertTrue(webhookInboxStorage.deleteBatch(1L, NODE_ID));
+    assertFalse(webhookInboxStorage.deleteBatch(2L, NODE_ID));
+    verify(webhookBatchDAO, never()).deleteById(any());
+  }
+
+  private WebhookBatchEntity newBatchEntity(long id) {
+    WebhookBatchEntity webhookBatchEntity = new WebhookBatchEntity();
+    webhookBatchEntity.setId(id);
+    webhookBatchEntity.setProjectId(123L);
+    webhookBatchEntity.setPayload("{\"events\":[]}");
+    webhookBatchEntity.setCreatedDate(new Date());
+    webhookBatchEntity.setLeaseOwner(NODE_ID);
+    return webhookBatchEntity;
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package io.meeds.crowdin.gamification.utils;
+
+import static io.meeds.crowdin.gamification.utils.Utils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.meeds.crowdin.gamification.model.Event;
+import io.meeds.crowdin.gamification.model.EventDetails;
+import io.meeds.crowdin.gamification.model.StringActivityView;
+import io.meeds.crowdin.gamification.model.WebhookEvent;
+
+class UtilsTest {
+
+  private static final String PAYLOAD = """
+      {
+        "meta": {"ignored": [1, 2, {"nested": true}]},
+        "events": [
+          {
+            "event": "suggestion.added",
+            "translation": {
+              "id": 11,
+              "provider": null,
+              "unknownField": "ignored",
+              "targetLanguage": {"id": "fr"},
+              "user": {"id": "1", "username": "translator", "fullName": "Translator", "avatarUrl": ""},
+              "string": {
+                "id": 22,
+                "text": "Hello world",
+                "file": {"id": 33, "directoryId": 44},
+                "project": {"id": 55, "sourceLanguageId": "en", "identifier": "meeds"}
+              }
+            }
+          },
+          {
+            "event": "stringComment.created",
+            "comment": {
+              "id": 66,
+              "targetLanguage": {"id": "de"},
+              "user": {"id": "2", "username": "reviewer"},
+              "string": {"id": 22, "project": {"id": 55}}
+            }
+          }
+        ]
+      }
+      """;
+
+  @Test
+  void testParseWebhookEvents() {
+    List<WebhookEvent> events = new ArrayList<>();
+
+    int count = parseWebhookEvents(PAYLOAD, events::add);
+
+    assertEquals(2, count);
+    assertEquals(2, events.size());
+
+    WebhookEvent translationEvent = events.get(0);
+    assertEquals(SUGGESTION_ADDED_TRIGGER, translationEvent.event());
+    assertNull(translationEvent.comment());
+    WebhookEvent.Translation translation = translationEvent.translation();
+    assertEquals("11", translation.id());
+    assertNull(translation.provider());
+    assertEquals("translator", translation.username());
+    assertEquals("fr", translation.targetLanguageId());
+    assertEquals("44", translation.directoryId());
+    assertEquals("55", translation.projectId());
+    assertEquals("Hello world", translation.text());
+    assertEquals("{\"id\":11,\"stringUrl\":\"https://crowdin.com/editor/meeds/33/en-fr?view=comfortable#22\"}",
+                 constructObjectIdAsJsonString(translation));
+
+    WebhookEvent commentEvent = events.get(1);
+    assertEquals(COMMENT_CREATED_TRIGGER, commentEvent.event());
+    assertNull(commentEvent.translation());
+    assertEquals("reviewer", commentEvent.comment().username());
+    assertEquals("55", commentEvent.comment().projectId());
+    assertNull(commentEvent.comment().directoryId());
+  }
+
+  @Test
+  void testCompress() {
+    String payload = "{\"events\":[{\"event\":\"suggestion.added\",\"translation\":{\"id\":\"1\"}}]}";
+    byte[] compressed = compress(payload);
+    assertNotEquals(payload, new String(compressed));
+    assertEquals(payload, decompress(compressed));
+  }
+
+  @Test
+  void testEventDetails() {
+    EventDetails eventDetails = new EventDetails(EventDetails.CURRENT_VERSION, "123", "fr", true, null, 5);
+    String serialized = toEventDetails(eventDetails);
+    assertEquals("{\"v\":1,\"projectId\":\"123\",\"languageId\":\"fr\",\"mustBeHuman\":true,\"totalTargetItem\":5}",
+                 serialized);
+    assertEquals(eventDetails, parseEventDetails(serialized));
+
+    EventDetails legacyDetails = parseEventDetails("{projectId: 123, languageId: fr, mustBeHuman: true, directoryId: 4, "
+        + "totalTargetItem: 5}");
+    assertEquals(new EventDetails(EventDetails.LEGACY_VERSION, "123", "fr", true, "4", 5), legacyDetails);
+  }
+
+  @Test
+  void testStringActivityView() {
+    WebhookEvent.StringItem stringItem = new WebhookEvent.StringItem("7",
+                                                                     "Save the  changes",
+                                                                     new WebhookEvent.File("3", "4"),
+                                                                     new WebhookEvent.Project("12", "en", "meeds"));
+    WebhookEvent.Translation translation = new WebhookEvent.Translation("5",
+                                                                        null,
+                                                                        new WebhookEvent.Language("fr"),
+                                                                        new WebhookEvent.User("1", "root", "Root", null),
+                                                                        stringItem);
+    StringActivityView translationView = StringActivityView.of(translation);
+    assertEquals(constructObjectIdAsJsonString(translation), translationView.objectId());
+    assertEquals(TRANSLATION, translationView.objectType());
+    assertEquals("root", translationView.username());
+    assertEquals("12", translationView.projectId());
+    assertEquals("fr", translationView.languageId());
+    assertEquals("4", translationView.directoryId());
+    assertTrue(translationView.mustBeHuman());
+    assertEquals(3, translationView.wordsCount());
+
+    Event event = translationView.toEvent("approveSuggestion", "2", true);
+    assertEquals("2", event.getSender());
+    assertEquals("2", event.getReceiver());
+    assertEquals(translationView.objectId(), event.getObjectId());
+    assertTrue(event.isCancelling());
+    assertEquals(3, event.getTotalWords());
+
+    WebhookEvent.Comment comment = new WebhookEvent.Comment("6",
+                                                            new WebhookEvent.Language("fr"),
+                                                            new WebhookEvent.User("1", "root", "Root", null),
+                                                            stringItem);
+    StringActivityView commentView = StringActivityView.of(comment);
+    assertEquals(COMMENT, commentView.objectType());
+    assertTrue(commentView.mustBeHuman());
+    assertEquals(0, commentView.wordsCount());
+  }
+
+  @Test
+  void testStringActivityViewCountsSourceWords() {
+    WebhookEvent.StringItem cjkString = new WebhookEvent.StringItem("7",
+                                                                    "保存文件",
+                                                                    new WebhookEvent.File("3", "4"),
+                                                                    new WebhookEvent.Project("12", "zh-CN", "meeds"));
+    WebhookEvent.Translation cjkToLatin = new WebhookEvent.Translation("5",
+                                                                       null,
+                                                                       new WebhookEvent.Language("fr"),
+                                                                       new WebhookEvent.User("1", "root", "Root", null),
+                                                                       cjkString);
+    assertEquals(4, StringActivityView.of(cjkToLatin).wordsCount());
+
+    WebhookEvent.StringItem latinString = new WebhookEvent.StringItem("8",
+                                                                      "Save the  changes",
+                                                                      new WebhookEvent.File("3", "4"),
+                                                                      new WebhookEvent.Project("12", "en", "meeds"));
+    WebhookEvent.Translation latinToCjk = new WebhookEvent.Translation("6",
+                                                                       null,
+                                                                       new WebhookEvent.Language("ja"),
+                                                                       new WebhookEvent.User("1", "root", "Root", null),
+                                                                       latinString);
+    assertEquals(3, StringActivityView.of(latinToCjk).wordsCount());
+  }
+
+  @Test
+  void testParseInvalidWebhookPayload() {
+    assertThrows(IllegalStateException.class, () -> parseWebhookEvents("[]", event -> fail()));
+  }
+}
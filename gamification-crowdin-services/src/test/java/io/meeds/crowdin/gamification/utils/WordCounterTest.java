@@ -0,0 +1,80 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ *
+ * Copyright (C) 2020 - 2024 Meeds Lab contact@meedslab.com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package io.meeds.crowdin.gamification.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.meeds.crowdin.gamification.utils.WordCounter.Segmentation;
+
+class WordCounterTest {
+
+  private record Sample(String languageId, String text, int wordsCount) {
+  }
+
+  private static final List<Sample> CORPUS = List.of(new Sample("en", "Save the  changes", 3),
+                                                     new Sample("en", "  Hello, world! ", 2),
+                                                     new Sample("en", "Step 2 - Invite 10 users", 5),
+                                                     new Sample("fr", "l'espace d'équipe", 2),
+                                                     new Sample("fr", "Enregistrer les\tmodifications\n", 3),
+                                                     new Sample("de", "Änderungen speichern", 2),
+                                                     new Sample("ru", "Сохранить изменения", 2),
+                                                     new Sample("ar", "حفظ التغييرات", 2),
+                                                     new Sample("ko", "저장하기 버튼", 2),
+                                                     new Sample("ja", "ファイルを保存", 7),
+                                                     new Sample("ja", "スペースのメンバー", 7),
+                                                     new Sample("ja", "Meedsのスペース。", 5),
+                                                     new Sample("zh-CN", "保存文件", 4),
+                                                     new Sample("zh-TW", "Meeds 空間", 3),
+                                                     new Sample("th", "บันทึกการเปลี่ยนแปลง", 3),
+                                                     new Sample("th", "Meeds บันทึก", 2),
+                                                     new Sample("es", "...", 0),
+                                                     new Sample("es", "", 0));
+
+  @Test
+  void testCountWords() {
+    for (Sample sample : CORPUS) {
+      assertEquals(sample.wordsCount(),
+                   WordCounter.countWords(sample.text(), sample.languageId()),
+                   () -> "Wrong words count for " + sample);
+    }
+    assertEquals(0, WordCounter.countWords(null, "en"));
+  }
+
+  @Test
+  void testCountWordsWithoutLanguage() {
+    assertEquals(3, WordCounter.countWords("Save the  changes"));
+    assertEquals(4, WordCounter.countWords("保存文件"));
+    assertEquals(3, WordCounter.countWords("บันทึกการเปลี่ยนแปลง"));
+  }
+
+  @Test
+  void testGetSegmentation() {
+    assertEquals(Segmentation.SCRIPT, WordCounter.getSegmentation(null));
+    assertEquals(Segmentation.SCRIPT, WordCounter.getSegmentation("ja"));
+    assertEquals(Segmentation.SCRIPT, WordCounter.getSegmentation("zh-CN"));
+    assertEquals(Segmentation.SCRIPT, WordCounter.getSegmentation("th"));
+    assertEquals(Segmentation.WHITESPACE, WordCounter.getSegmentation("fr"));
+    assertEquals(Segmentation.WHITESPACE, WordCounter.getSegmentation("pt-BR"));
+    assertEquals(Segmentation.WHITESPACE, WordCounter.getSegmentation("ko"));
+  }
+}
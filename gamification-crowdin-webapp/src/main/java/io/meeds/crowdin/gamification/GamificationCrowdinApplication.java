@@ -24,6 +24,7 @@ import org.springframework.context.annotation.PropertySource;
 import io.meeds.spring.AvailableIntegration;
 import io.meeds.spring.kernel.PortalApplicationContextInitializer;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = {
   GamificationCrowdinApplication.MODULE_NAME,
@@ -33,6 +34,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
   AvailableIntegration.WEB_MODULE,
 })
 @EnableJpaRepositories(basePackages = GamificationCrowdinApplication.MODULE_NAME)
+@EnableScheduling
 @PropertySource("classpath:application.properties")
 @PropertySource("classpath:application-common.properties")
 @PropertySource("classpath:crowdin.properties")